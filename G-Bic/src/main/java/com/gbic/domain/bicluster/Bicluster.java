@@ -8,10 +8,9 @@
 
 package com.gbic.domain.bicluster;
 
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.json.JSONObject;
 
@@ -19,14 +18,15 @@ import com.gbic.domain.dataset.Dataset;
 import com.gbic.types.PatternType;
 import com.gbic.types.PlaidCoherency;
 import com.gbic.types.TimeProfile;
+import com.gbic.utils.SortedIntSet;
 
 public abstract class Bicluster {
 	
 	private int id;
 	
-	//row and column set of the bicluster
-	private SortedSet<Integer> columns;
-	private SortedSet<Integer> rows;
+	//row and column set of the bicluster, sorted in ascending order
+	private int[] columns;
+	private int[] rows;
 	
 	private int numOfMissings;
 	private int numOfNoisy;
@@ -40,6 +40,16 @@ public abstract class Bicluster {
 	 * @param columnPattern The bicluster's column pattern
 	 */
 	public Bicluster(int id, SortedSet<Integer> rows, SortedSet<Integer> cols) {
+		this(id, SortedIntSet.toArray(rows), SortedIntSet.toArray(cols));
+	}
+	
+	/**
+	 * Constructor
+	 * @param id The bicluster's ID
+	 * @param rows The bicluster's rows, sorted in ascending order and without repetitions
+	 * @param cols The bicluster's columns, sorted in ascending order and without repetitions
+	 */
+	public Bicluster(int id, int[] rows, int[] cols) {
 		
 		this.id = id;
 		this.rows = rows;
@@ -47,13 +57,23 @@ public abstract class Bicluster {
 	}
 	
 	public Bicluster(int id, SortedSet<Integer> rows, SortedSet<Integer> numericCols, SortedSet<Integer> symbolicCols) {
+		this(id, SortedIntSet.toArray(rows), SortedIntSet.toArray(numericCols), SortedIntSet.toArray(symbolicCols));
+	}
+	
+	/**
+	 * Constructor of a bicluster whose columns are split into numeric and symbolic ones
+	 * @param id The bicluster's ID
+	 * @param rows The bicluster's rows, sorted in ascending order and without repetitions
+	 * @param numericCols The bicluster's numeric columns, sorted in ascending order
+	 * @param symbolicCols The bicluster's symbolic columns, sorted in ascending order (disjoint from the numeric ones)
+	 */
+	public Bicluster(int id, int[] rows, int[] numericCols, int[] symbolicCols) {
 		
 		this.id = id;
 		this.rows = rows;
-		
-		this.columns = new TreeSet<>();
-		this.columns.addAll((Collection<? extends Integer>) numericCols);
-		this.columns.addAll((Collection<? extends Integer>) symbolicCols);
+		this.columns = Arrays.copyOf(numericCols, numericCols.length + symbolicCols.length);
+		System.arraycopy(symbolicCols, 0, this.columns, numericCols.length, symbolicCols.length);
+		Arrays.sort(this.columns);
 	}
 	
 	public int getSize() {
@@ -61,11 +81,11 @@ public abstract class Bicluster {
 	}
 
 	public int getNumRows() {
-		return this.rows.size();
+		return this.rows.length;
 	}
 	
 	public int getNumCols() {
-		return this.columns.size();
+		return this.columns.length;
 	}
 
 	/**
@@ -81,7 +101,7 @@ public abstract class Bicluster {
 	 * @param columns The column set
 	 */
 	public void setColumns(SortedSet<Integer> columns) {
-		this.columns = columns;
+		this.columns = SortedIntSet.toArray(columns);
 	}
 
 	/**
@@ -89,24 +109,40 @@ public abstract class Bicluster {
 	 * @param columns The row set
 	 */
 	public void setRows(SortedSet<Integer> rows) {
-		this.rows = rows;
+		this.rows = SortedIntSet.toArray(rows);
 	}
 
 	/**
 	 * get bic rows
 	 * 
-	 * @return
+	 * @return an unmodifiable view of the rows
 	 */
 	public SortedSet<Integer> getRows() {
-		return rows;
+		return new SortedIntSet(rows);
 	}
 
 	/**
 	 * get bic columns
 	 * 
-	 * @return
+	 * @return an unmodifiable view of the columns
 	 */
 	public SortedSet<Integer> getColumns() {
+		return new SortedIntSet(columns);
+	}
+	
+	/**
+	 * Get the bicluster's rows
+	 * @return The rows, sorted in ascending order (the array is shared, not to be modified)
+	 */
+	public int[] getRowArray() {
+		return rows;
+	}
+	
+	/**
+	 * Get the bicluster's columns
+	 * @return The columns, sorted in ascending order (the array is shared, not to be modified)
+	 */
+	public int[] getColumnArray() {
 		return columns;
 	}
 
@@ -115,7 +151,7 @@ public abstract class Bicluster {
 	 * @return number of rows
 	 */
 	public int numRows() {
-		return rows.size();
+		return rows.length;
 	}
 
 	/**
@@ -123,7 +159,7 @@ public abstract class Bicluster {
 	 * @return number of columns
 	 */
 	public int numColumns() {
-		return columns.size();
+		return columns.length;
 	}
 	
 	/**
@@ -178,7 +214,7 @@ public abstract class Bicluster {
 	 * @return A string in the format (|rows|, |columns|)
 	 */
 	public String toShortString() {
-		return "(" + rows.size() + "," + columns.size() + ")";
+		return "(" + rows.length + "," + columns.length + ")";
 	}
 	
 	/**
@@ -3,7 +3,6 @@ package com.gbic.domain.bicluster;
 import java.text.DecimalFormat;
 import java.util.Arrays;
 import java.util.Set;
-import java.util.SortedSet;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -22,9 +21,9 @@ public class MixedBicluster extends Bicluster{
 	 * @param numericComponent
 	 * @param symbolicComponent
 	 */
-	public MixedBicluster(int id, NumericBicluster<Double> numericComponent, SymbolicBicluster symbolicComponent, SortedSet<Integer> rows) {
+	public MixedBicluster(int id, NumericBicluster<Double> numericComponent, SymbolicBicluster symbolicComponent, int[] rows) {
 
-		super(id, rows, numericComponent.getColumns(), symbolicComponent.getColumns());
+		super(id, rows, numericComponent.getColumnArray(), symbolicComponent.getColumnArray());
 		this.id = id;
 		this.numericComponent = numericComponent;
 		this.symbolicComponent = symbolicComponent;
@@ -97,13 +96,13 @@ public class MixedBicluster extends Bicluster{
 
 			if(this.numericComponent.getRowFactors().length > 0) {
 				res.append(" RowFactors=[");
-				for (Double i : this.numericComponent.getRowFactors())
+				for (double i : this.numericComponent.getRowFactors())
 					res.append(df.format(i) + ",");
 				res.append("],");
 			}
 			if(this.numericComponent.getColumnFactors().length > 0) {
 				res.append(" ColumnFactors=[");
-				for (Double i : this.numericComponent.getColumnFactors())
+				for (double i : this.numericComponent.getColumnFactors())
 					res.append(df.format(i) + ",");
 				res.append("],");
 			}
@@ -161,7 +160,7 @@ public class MixedBicluster extends Bicluster{
 
 			if(this.numericComponent.getRowFactors().length > 0) {
 				
-				Double[] rowFactors = this.numericComponent.getRowFactors();
+				double[] rowFactors = this.numericComponent.getRowFactors();
 				String[] s = new String[this.numericComponent.numRows()];
 				
 				for(int i = 0; i < this.numericComponent.numRows(); i++) 
@@ -172,7 +171,7 @@ public class MixedBicluster extends Bicluster{
 
 			if(this.numericComponent.getColumnFactors().length > 0) {
 				
-				Double[] colFactors = this.numericComponent.getColumnFactors();
+				double[] colFactors = this.numericComponent.getColumnFactors();
 				String[] s = new String[this.numericComponent.numColumns()];
 				
 				for(int i = 0; i < this.numericComponent.numColumns(); i++) 
@@ -212,29 +211,22 @@ public class MixedBicluster extends Bicluster{
 		bicluster.put("%Errors", df.format(errorsPerc));
 		
 		
-		Integer[] rowsArray = new Integer[rows.size()];
-	    rows.toArray(rowsArray);
-		
-		Integer[] colsArray = new Integer[columns.size()];
-	    columns.toArray(colsArray);
+		int[] rowsArray = getRowArray();
+		int[] colsArray = getColumnArray();
 	    	
     	JSONArray bicData = new JSONArray();
     	
     	for(int row = 0; row < rowsArray.length; row++){
     		JSONArray rowData = new JSONArray();
 			for(int col = 0; col < colsArray.length; col ++) {
-				double value = 0;
+				HeterogeneousDataset heterogeneousDataset = (HeterogeneousDataset) generatedDataset;
 				
-				if(((HeterogeneousDataset)generatedDataset).isSymbolicFeature(colsArray[col])) 
-					rowData.put(((HeterogeneousDataset)generatedDataset).getSymbolicElement(rowsArray[row], colsArray[col]));
-				else {
-					value = ((HeterogeneousDataset)generatedDataset).getNumericElement(rowsArray[row], colsArray[col]).doubleValue();
-					
-					if(Double.compare(value, Integer.MIN_VALUE) == 0)
-						rowData.put("");
-					else
-						rowData.put(df.format(value));
-				}
+				if(heterogeneousDataset.isSymbolicFeature(colsArray[col])) 
+					rowData.put(heterogeneousDataset.getSymbolicElement(rowsArray[row], colsArray[col]));
+				else if(heterogeneousDataset.isMissingNumericElement(rowsArray[row], colsArray[col]))
+					rowData.put("");
+				else
+					rowData.put(df.format(heterogeneousDataset.getNumericValue(rowsArray[row], colsArray[col])));
 
 			}
 			bicData.put(rowData);
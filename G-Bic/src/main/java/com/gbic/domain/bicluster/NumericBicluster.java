@@ -9,7 +9,6 @@ package com.gbic.domain.bicluster;
 import java.text.DecimalFormat;
 import java.util.Arrays;
 import java.util.Set;
-import java.util.SortedSet;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -30,43 +29,39 @@ public class NumericBicluster<T extends Number> extends Bicluster{
 	private TimeProfile timeProfile;
 	private PlaidCoherency plaidPattern;
 	
+	//Seed of additive and multiplicative patterns (constant patterns are kept by the values planted in the dataset)
 	private T numericSeed;
 	
-	//Matrix seed to use in the case of constant patterns
-	private T[][] patternSeed;
-	
-	private T[] rowFactors;
-	private T[] columnFactors;
+	private double[] rowFactors;
+	private double[] columnFactors;
 	
 	/**
 	 * Constructs a Numeric Biclusters
-	 * @param rows Set of bicluster's rows
-	 * @param cols Set of bilcuster's columns
+	 * @param rows Bicluster's rows, sorted in ascending order
+	 * @param cols Bilcuster's columns, sorted in ascending order
 	 * @param rowPattern Bicluster's row pattern
 	 * @param columnPattern Bicluster's column pattern
 	 * @param rowFactors Bicluster's row factors
 	 * @param columnFactors Bicluster's column factors
 	 */
-	public NumericBicluster(int id, SortedSet<Integer> rows, SortedSet<Integer>  cols, PatternType rowPattern, PatternType columnPattern,
-			T[] rowFactors, T[] columnFactors, PlaidCoherency plaidPattern) {
+	public NumericBicluster(int id, int[] rows, int[] cols, PatternType rowPattern, PatternType columnPattern,
+			double[] rowFactors, double[] columnFactors, PlaidCoherency plaidPattern) {
 		super(id, rows, cols);
 		this.rowPattern = rowPattern;
 		this.columnPattern = columnPattern;
 		this.plaidPattern = plaidPattern;
-		this.patternSeed = null;
 		this.numericSeed = null;
 		this.rowFactors = rowFactors;
 		this.columnFactors = columnFactors;
 	}
 	
-	public NumericBicluster(int id, SortedSet<Integer> rows, SortedSet<Integer>  cols, PatternType rowPattern, PatternType columnPattern,
-			T[] rowFactors, T[] columnFactors, PlaidCoherency plaidPattern, TimeProfile timeProfile) {
+	public NumericBicluster(int id, int[] rows, int[] cols, PatternType rowPattern, PatternType columnPattern,
+			double[] rowFactors, double[] columnFactors, PlaidCoherency plaidPattern, TimeProfile timeProfile) {
 		super(id, rows, cols);
 		this.rowPattern = rowPattern;
 		this.columnPattern = columnPattern;
 		this.plaidPattern = plaidPattern;
 		this.timeProfile = timeProfile;
-		this.patternSeed = null;
 		this.numericSeed = null;
 		this.rowFactors = rowFactors;
 		this.columnFactors = columnFactors;
@@ -138,14 +133,6 @@ public class NumericBicluster<T extends Number> extends Bicluster{
 		this.numericSeed = seed;
 	}
 	
-	/**
-	 * Set Bicluster's pattern seed
-	 * @param seed Seed's matrix
-	 */
-	public void setSeed(T[][] seed) {
-		this.patternSeed = seed;
-	}
-	
 	/**
 	 * Get bicluster's numeric seed
 	 * @return the seed's value
@@ -154,19 +141,11 @@ public class NumericBicluster<T extends Number> extends Bicluster{
 		return this.numericSeed;
 	}
 	
-	/**
-	 * Get bicluster's pattern seed
-	 * @return the seed's matrix
-	 */
-	public T[][] getPatternSeed(){
-		return this.patternSeed;
-	}
-	
 	/**
 	 * Set the bicluster's row factors
 	 * @param rowFactors Array with row factors
 	 */
-	public void setRowFactors(T[] rowFactors) {
+	public void setRowFactors(double[] rowFactors) {
 		this.rowFactors = rowFactors;
 	}
 	
@@ -174,7 +153,7 @@ public class NumericBicluster<T extends Number> extends Bicluster{
 	 * Set the bicluster's column factors
 	 * @param rowFactors Array with column factors
 	 */
-	public void setColumnFactors(T[] columnFactors) {
+	public void setColumnFactors(double[] columnFactors) {
 		this.columnFactors = columnFactors;
 	}
 	
@@ -183,7 +162,7 @@ public class NumericBicluster<T extends Number> extends Bicluster{
 	 * @param row Row which factor will be updated
 	 * @param factor The factor's new value
 	 */
-	public void setRowFactor(int row, T factor) {
+	public void setRowFactor(int row, double factor) {
 		this.rowFactors[row] = factor;
 	}
 	
@@ -192,7 +171,7 @@ public class NumericBicluster<T extends Number> extends Bicluster{
 	 * @param col Column which factor will be updated
 	 * @param factor The factor's new value
 	 */
-	public void setColumnFactor(int col, T factor) {
+	public void setColumnFactor(int col, double factor) {
 		this.columnFactors[col] = factor;
 	}
 	
@@ -200,7 +179,7 @@ public class NumericBicluster<T extends Number> extends Bicluster{
 	 * Get the bicluster's row factors
 	 * @return Array with row factors
 	 */
-	public T[] getRowFactors() {
+	public double[] getRowFactors() {
 		return this.rowFactors;
 	}
 	
@@ -208,7 +187,7 @@ public class NumericBicluster<T extends Number> extends Bicluster{
 	 * Get the bicluster's column factors
 	 * @return Array with column factors
 	 */
-	public T[] getColumnFactors() {
+	public double[] getColumnFactors() {
 		return this.columnFactors;
 	}
 	
@@ -217,7 +196,7 @@ public class NumericBicluster<T extends Number> extends Bicluster{
 	 * @param row The row index
 	 * @return The factor of the given row
 	 */
-	public T getRowFactor(int row) {
+	public double getRowFactor(int row) {
 		return this.rowFactors[row];
 	}
 	
@@ -226,7 +205,7 @@ public class NumericBicluster<T extends Number> extends Bicluster{
 	 * @param col The column index
 	 * @return The factor of the given column
 	 */
-	public T getColumnFactor(int col) {
+	public double getColumnFactor(int col) {
 		return this.columnFactors[col];
 	}
 	
@@ -260,13 +239,13 @@ public class NumericBicluster<T extends Number> extends Bicluster{
 
 			if(getRowFactors().length > 0) {
 				res.append(" RowFactors=[");
-				for (T i : getRowFactors())
+				for (double i : getRowFactors())
 					res.append(df.format(i) + ",");
 				res.append("],");
 			}
 			if(getColumnFactors().length > 0) {
 				res.append(" ColumnFactors=[");
-				for (T i : getColumnFactors())
+				for (double i : getColumnFactors())
 					res.append(df.format(i) + ",");
 				res.append("],");
 			}
@@ -317,7 +296,7 @@ public class NumericBicluster<T extends Number> extends Bicluster{
 
 			if(getRowFactors().length > 0) {
 				
-				T[] rowFactors = getRowFactors();
+				double[] rowFactors = getRowFactors();
 				String[] s = new String[numRows()];
 				
 				for(int i = 0; i < numRows(); i++) 
@@ -328,7 +307,7 @@ public class NumericBicluster<T extends Number> extends Bicluster{
 
 			if(getColumnFactors().length > 0) {
 				
-				T[] colFactors = getColumnFactors();
+				double[] colFactors = getColumnFactors();
 				String[] s = new String[numColumns()];
 				
 				for(int i = 0; i < numColumns(); i++) 
@@ -353,11 +332,8 @@ public class NumericBicluster<T extends Number> extends Bicluster{
 		
 		JSONObject data = new JSONObject();
 		
-		Integer[] rowsArray = new Integer[rows.size()];
-	    rows.toArray(rowsArray);
-		
-		Integer[] colsArray = new Integer[columns.size()];
-	    columns.toArray(colsArray);
+		int[] rowsArray = getRowArray();
+		int[] colsArray = getColumnArray();
 		
 	    
 	    	
@@ -366,15 +342,20 @@ public class NumericBicluster<T extends Number> extends Bicluster{
     	for(int row = 0; row < rowsArray.length; row++){
     		JSONArray rowData = new JSONArray();
 			for(int col = 0; col < colsArray.length; col ++) {
-				double value = 0;
-				if(heterogeneous)
-					value = ((HeterogeneousDataset)generatedDataset).getNumericElement(rowsArray[row], colsArray[col]).doubleValue();
-				else
-					value = ((NumericDataset)generatedDataset).getMatrixItem(rowsArray[row], colsArray[col]).doubleValue();
-				if(Double.compare(value, Integer.MIN_VALUE) == 0)
-					rowData.put("");
-				else
-					rowData.put(df.format(value));
+				if(heterogeneous) {
+					HeterogeneousDataset heterogeneousDataset = (HeterogeneousDataset) generatedDataset;
+					if(heterogeneousDataset.isMissingNumericElement(rowsArray[row], colsArray[col]))
+						rowData.put("");
+					else
+						rowData.put(df.format(heterogeneousDataset.getNumericValue(rowsArray[row], colsArray[col])));
+				}
+				else {
+					NumericDataset<? extends Number> numericDataset = (NumericDataset<? extends Number>) generatedDataset;
+					if(numericDataset.isMissingItem(rowsArray[row], colsArray[col]))
+						rowData.put("");
+					else
+						rowData.put(df.format(numericDataset.getMatrixValue(rowsArray[row], colsArray[col])));
+				}
 				
 			}
 			bicData.put(rowData);
@@ -8,7 +8,6 @@ package com.gbic.domain.bicluster;
 
 import java.text.DecimalFormat;
 import java.util.Set;
-import java.util.SortedSet;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -29,17 +28,17 @@ public class SymbolicBicluster extends Bicluster{
 	private TimeProfile timeProfile;
 	private PlaidCoherency plaidPattern;
 	
-	//Pattern seed
-	private String[][] seed;
+	//Symbol of constant patterns
+	private String seed;
 	
 	/**
 	 * Construtor
-	 * @param rows Dataset's set of rows
-	 * @param cols Dataset's set of cols
+	 * @param rows Bicluster's rows, sorted in ascending order
+	 * @param cols Bicluster's columns, sorted in ascending order
 	 * @param rowPattern The row pattern
 	 * @param columnPattern The column pattern
 	 */
-	public SymbolicBicluster(int id, SortedSet<Integer> rows, SortedSet<Integer> cols, PatternType rowPattern, PatternType columnPattern, PlaidCoherency plaidPattern) {
+	public SymbolicBicluster(int id, int[] rows, int[] cols, PatternType rowPattern, PatternType columnPattern, PlaidCoherency plaidPattern) {
 		
 		super(id, rows, cols);
 		this.rowPattern = rowPattern;
@@ -47,7 +46,7 @@ public class SymbolicBicluster extends Bicluster{
 		this.plaidPattern = plaidPattern;
 	}
 	
-	public SymbolicBicluster(int id, SortedSet<Integer> rows, SortedSet<Integer> cols, PatternType rowPattern, PatternType columnPattern, PlaidCoherency plaidPattern,
+	public SymbolicBicluster(int id, int[] rows, int[] cols, PatternType rowPattern, PatternType columnPattern, PlaidCoherency plaidPattern,
 			TimeProfile timeProfile) {
 		
 		super(id, rows, cols);
@@ -117,9 +116,9 @@ public class SymbolicBicluster extends Bicluster{
 	
 	/**
 	 * Set the biclusters seed
-	 * @param seed The matrix
+	 * @param seed The symbol
 	 */
-	public void setSeed(String[][] seed) {
+	public void setSeed(String seed) {
 		this.seed = seed;
 	}
 	
@@ -127,7 +126,7 @@ public class SymbolicBicluster extends Bicluster{
 	 * Get biclusters seed
 	 * @return
 	 */
-	public String[][] getSeed() {
+	public String getSeed() {
 		return this.seed;
 	}
 
@@ -206,11 +205,8 @@ public class SymbolicBicluster extends Bicluster{
 		
 		bicluster.put("PlaidCoherency", new String(getPlaidCoherency().toString()));
 		
-		Integer[] rowsArray = new Integer[rows.size()];
-	    rows.toArray(rowsArray);
-		
-		Integer[] colsArray = new Integer[columns.size()];
-	    columns.toArray(colsArray);
+		int[] rowsArray = getRowArray();
+		int[] colsArray = getColumnArray();
 		
 	    	
     	JSONArray bicData = new JSONArray();
@@ -6,17 +6,15 @@
  */
 package com.gbic.domain.dataset;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
+import java.util.Random;
 
 import com.gbic.domain.bicluster.Bicluster;
 import com.gbic.types.Background;
+import com.gbic.utils.BitMatrix;
+import com.gbic.utils.OccupancyIndex;
+import com.gbic.utils.RandomObject;
 
 public abstract class Dataset {
 	
@@ -28,13 +26,24 @@ public abstract class Dataset {
 	private List<Feature> features;
 	
 	//private Background background;
-	private int backgroundSize;
+	//Root of the dataset's random streams, and the seed of the per-element background streams (see CounterRandom)
+	private long seed;
+	private long backgroundSeed;
 
-	private Map<String, List<Integer>> elementsReversed;
+	//Elements are identified by their row-major key (row * numCols + col)
+	//The IDs of the biclusters that hold each row (null if none does): the biclusters of an element are the ones of
+	//its row that also hold its column, so they are found without indexing each element
+	private int[][] biclustersByRow;
+	//The elements that belong to at least one bicluster, in row-major order and by row and column
+	private BitMatrix plantedElements;
+	private OccupancyIndex occupancy;
 	
-	private Set<String> missingElements;
-	private Set<String> noisyElements;
-	private Set<String> errorElements;
+	private BitMatrix missingElements;
+	private BitMatrix noisyElements;
+	private BitMatrix errorElements;
+	
+	//The planted biclusters, indexed by their ID
+	private Bicluster[] biclustersById;
 
 
 	/********************************
@@ -49,15 +58,30 @@ public abstract class Dataset {
 	 * @param background Background object with the background type and parameters
 	 */
 	public Dataset(int numRows, int numCols, int numBics) {
+		this(numRows, numCols, numBics, RandomObject.getInstance().nextLong());
+	}
+	
+	/**
+	 * Constructs a dataset with a given seed, such as one restored from a generation plan
+	 * @param numRows Dataset's number of rows
+	 * @param numCols Dataset's number of columns
+	 * @param numBics Dataset's number of biclusters
+	 * @param seed The dataset's seed
+	 */
+	protected Dataset(int numRows, int numCols, int numBics, long seed) {
 		
 		this.numRows = numRows;
 		this.numCols = numCols;
-		this.elementsReversed = new HashMap<>();
-		this.missingElements = new TreeSet<>();
-		this.noisyElements = new TreeSet<>();
-		this.errorElements = new TreeSet<>();
+		this.biclustersByRow = new int[numRows][];
+		this.plantedElements = new BitMatrix(numRows, numCols);
+		this.occupancy = new OccupancyIndex(numRows, numCols);
+		this.missingElements = new BitMatrix(numRows, numCols);
+		this.noisyElements = new BitMatrix(numRows, numCols);
+		this.errorElements = new BitMatrix(numRows, numCols);
 		this.numBics = numBics;
-		this.backgroundSize = 0;
+		this.biclustersById = new Bicluster[Math.max(numBics, 0)];
+		this.seed = seed;
+		this.backgroundSeed = RandomObject.deriveSeed(this.seed, RandomObject.BACKGROUND);
 		
 	}
 	
@@ -75,58 +99,102 @@ public abstract class Dataset {
 	 */
 	public int getBackgroundSize() {
 		
-		return this.getSize() - this.backgroundSize;
+		return this.getSize() - (int) this.plantedElements.cardinality();
+	}
+	
+	/**
+	 * Get the dataset's seed, from which its random streams are derived (see RandomObject)
+	 * @return the dataset's seed
+	 */
+	public long getSeed() {
+		return this.seed;
+	}
+	
+	/**
+	 * Get the seed of the background: background elements are a pure function of this seed and their position
+	 * @return the background seed
+	 */
+	public long getBackgroundSeed() {
+		return this.backgroundSeed;
+	}
+	
+	/**
+	 * Get an element's key
+	 * @param row The row ID
+	 * @param col The column ID
+	 * @return The element's position in row-major order
+	 */
+	public long getElementKey(int row, int col) {
+		return (long) row * this.numCols + col;
+	}
+	
+	/**
+	 * Get the row of an element
+	 * @param e The element's key
+	 * @return The row ID
+	 */
+	public int getElementRow(long e) {
+		return (int) (e / this.numCols);
+	}
+	
+	/**
+	 * Get the column of an element
+	 * @param e The element's key
+	 * @return The column ID
+	 */
+	public int getElementCol(long e) {
+		return (int) (e % this.numCols);
 	}
 	
 	/**
 	 * Adds an element as a missing element
-	 * @param e The position of the element in ctx:row:col format
+	 * @param e The element's key
 	 */
-	public void addMissingElement(String e) {
-		this.missingElements.add(e);
+	public void addMissingElement(long e) {
+		this.missingElements.set(e);
 	}
 	
 	/**
 	 * Checks if a certain element is a missing element
-	 * @param e The element in ctx:row:col format
+	 * @param e The element's key
 	 * @return True if the element is in the missing elements set, False otherwise
 	 */
-	public boolean isMissing(String e) {
-		return this.missingElements.contains(e);
+	public boolean isMissing(long e) {
+		return this.missingElements.get(e);
 	}
 	
 	/**
 	 * Adds an element as a noisy element
-	 * @param e The position of the element in ctx:row:col format
+	 * @param e The element's key
 	 */
-	public void addNoisyElement(String e) {
-		this.noisyElements.add(e);
+	public void addNoisyElement(long e) {
+		this.noisyElements.set(e);
 	}
 	
 	/**
 	 * Checks if a certain element is a noisy element
-	 * @param e The element in ctx:row:col format
+	 * @param e The element's key
 	 * @return True if the element is in the noisy elements set, False otherwise
 	 */
-	public boolean isNoisy(String e) {
-		return this.noisyElements.contains(e);
+	public boolean isNoisy(long e) {
+		return this.noisyElements.get(e);
 	}
 	
 	/**
 	 * Adds an element as an error element
-	 * @param e The position of the element in ctx:row:col format
+	 * @param e The element's key
 	 */
-	public void addErrorElement(String e) {
-		this.errorElements.add(e);
+	public void addErrorElement(long e) {
+		this.errorElements.set(e);
 	}
 	
 	/**
 	 * Checks if a certain elements is an error element
-	 * @param e The element in ctx:row:col format
+	 * @param e The element's key
 	 * @return True if the element is in the error elements set, False otherwise
 	 */
-	public boolean isError(String e) {
-		return this.errorElements.contains(e);
+	public boolean isError(long e) {
+		return this.errorElements.get(e);
 	}
 	
 	/**
@@ -158,7 +226,7 @@ public abstract class Dataset {
 	 * @return |Missing elements set|
 	 */
 	public int getNumberOfMissings() {
-		return this.missingElements.size();
+		return (int) this.missingElements.cardinality();
 	}
 
 	/**
@@ -166,7 +234,7 @@ public abstract class Dataset {
 	 * @return |Noisy elements set|
 	 */
 	public int getNumberOfNoisy() {
-		return this.noisyElements.size();
+		return (int) this.noisyElements.cardinality();
 	}
 	
 	/**
@@ -174,106 +242,307 @@ public abstract class Dataset {
 	 * @return |Error elements set|
 	 */
 	public int getNumberOfErrors() {
-		return this.errorElements.size();
+		return (int) this.errorElements.cardinality();
 	}
 	
 	/**
 	 * Get the dataset's missing elements
-	 * @return The set of missing elements
+	 * @return The keys of the missing elements, in row-major order
 	 */
-	public Set<String> getMissingElements(){
-		return this.missingElements;
+	public long[] getMissingElements(){
+		return toKeys(this.missingElements);
 	}
 	
 	/**
 	 * Get the dataset's noisy elements
-	 * @return The set of noisy elements
+	 * @return The keys of the noisy elements, in row-major order
 	 */
-	public Set<String> getNoisyElements(){
-		return this.noisyElements;
+	public long[] getNoisyElements(){
+		return toKeys(this.noisyElements);
 	}
 	
 	/**
 	 * Get the dataset's error elements
-	 * @return The set of error elements
+	 * @return The keys of the error elements, in row-major order
 	 */
-	public Set<String> getErrorElements(){
-		return this.errorElements;
+	public long[] getErrorElements(){
+		return toKeys(this.errorElements);
+	}
+	
+	private long[] toKeys(BitMatrix elements) {
+		
+		long[] keys = new long[(int) elements.cardinality()];
+		int i = 0;
+		for(long e = elements.nextSetKey(0); e != -1; e = elements.nextSetKey(e + 1))
+			keys[i++] = e;
+		
+		return keys;
 	}
 	
 	/**
 	 * Adds an element to a bicluster
-	 * @param e The element in ctx:row:col format
-	 * @param k The bicluster ID
+	 * @param e The element's key
+	 * @param k The bicluster ID (the bicluster is found from its rows and columns once it is added, see getBicsByElem)
 	 */
-	public void addElement(String e, int k) {
-		
-		if(!this.elementsReversed.containsKey(e)) {
-			List<Integer> bics = new ArrayList<>();
-			bics.add(k);
-			this.elementsReversed.put(e, bics);
-		}
-		else
-			this.elementsReversed.get(e).add(k);
-		
-		this.backgroundSize++;
+	public void addElement(long e, int k) {
 		
+		if(this.plantedElements.set(e))
+			this.occupancy.set(getElementRow(e), getElementCol(e));
 	}
 	
 	/**
 	 * Get bicluster by its ID
 	 * @param id The bicluster ID
-	 * @return bicluster with the specified ID
+	 * @return bicluster with the specified ID, or null if there is no such bicluster
 	 */
-	public abstract Bicluster getBiclusterById(int id);
+	public Bicluster getBiclusterById(int id) {
+		return (id >= 0 && id < this.biclustersById.length) ? this.biclustersById[id] : null;
+	}
 	
 	/**
-	 * Get bicluster's elements
+	 * Index a planted bicluster by its ID (subclasses call it whenever a bicluster is added)
+	 * @param bic The bicluster
+	 */
+	protected void indexBicluster(Bicluster bic) {
+		
+		if(bic.getId() >= this.biclustersById.length)
+			this.biclustersById = Arrays.copyOf(this.biclustersById, Math.max(bic.getId() + 1, 2 * this.biclustersById.length));
+		
+		this.biclustersById[bic.getId()] = bic;
+		
+		if(this.biclustersByRow != null)
+			for(int row : bic.getRowArray()) {
+				int[] ids = this.biclustersByRow[row];
+				ids = (ids == null) ? new int[1] : Arrays.copyOf(ids, ids.length + 1);
+				ids[ids.length - 1] = bic.getId();
+				this.biclustersByRow[row] = ids;
+			}
+	}
+	
+	/**
+	 * Remove all biclusters from the ID index
+	 */
+	protected void clearBiclusterIndex() {
+		Arrays.fill(this.biclustersById, null);
+		if(this.biclustersByRow != null)
+			Arrays.fill(this.biclustersByRow, null);
+	}
+	
+	/**
+	 * Get bicluster's elements (derived from the bicluster's rows and columns)
 	 * @param id The bicluster ID
-	 * @return The list of the bicluster's elements
+	 * @return The keys of the bicluster's elements, in row-major order
 	 */
-	public List<String> getBiclusterElements(int id){
-		List<String> elements = new ArrayList<String>();
+	public long[] getBiclusterElements(int id){
 		
-		for(Entry<String, List<Integer>> entry : this.elementsReversed.entrySet()) {
-			if(entry.getValue().contains(id))
-				elements.add(entry.getKey());
-		}
+		Bicluster bic = getBiclusterById(id);
+		long[] elements = new long[bic.getSize()];
+		int i = 0;
+		
+		for(int row : bic.getRowArray())
+			for(int col : bic.getColumnArray())
+				elements[i++] = getElementKey(row, col);
 		
 		return elements;
 	}
 	
 	/**
-	 * Get the set of elements that belong to a any bicluster
-	 * @return The set of elements
+	 * Get the bicluster's that contain a certain element
+	 * @param e The element's key
+	 * @return The IDs of the biclusters to which the element belongs
 	 */
-	public Set<String> getElements() {
-
-		return elementsReversed.keySet();
+	public int[] getBicsByElem(long e){
+		
+		int[] ids = this.biclustersByRow[getElementRow(e)];
+		if(ids == null)
+			return new int[0];
+		
+		int col = getElementCol(e);
+		int[] bics = new int[ids.length];
+		int numBics = 0;
+		for(int k : ids)
+			if(Arrays.binarySearch(this.biclustersById[k].getColumnArray(), col) >= 0)
+				bics[numBics++] = k;
+		
+		return Arrays.copyOf(bics, numBics);
 	}
 	
 	/**
-	 * Get the bicluster's that contain a certain element
-	 * @param e The element in ctx:row:col format
-	 * @return List of bicluster to which the element belongs
+	 * Checks if a certain element belongs to any bicluster
+	 * @param e The element's key
+	 * @return True if the elements belong to a certain element, False otherwise
 	 */
-	public List<Integer> getBicsByElem(String e){
+	public boolean isPlanted(long e) {
 		
-		return this.elementsReversed.get(e);
+		return this.plantedElements.get(e);
 	}
 	
 	/**
 	 * Checks if a certain element belongs to any bicluster
-	 * @param e The element
+	 * @param row The row ID
+	 * @param col The column ID
 	 * @return True if the elements belong to a certain element, False otherwise
 	 */
-	public boolean isPlanted(String e) {
+	public boolean isPlanted(int row, int col) {
 		
-		return this.elementsReversed.containsKey(e);
+		return this.occupancy.get(row, col);
+	}
+	
+	/**
+	 * Get the index of the elements that belong to any bicluster, by row and by column
+	 * @return The occupancy index
+	 */
+	public OccupancyIndex getOccupancy() {
+		return this.occupancy;
 	}
 	
 	public void destroyElementsMap() {
-		this.elementsReversed = null;
+		this.biclustersByRow = null;
+	}
+	
+	/**
+	 * Mark background elements (elements that do not belong to any bicluster) as missing, noisy or errors. The
+	 * elements are picked uniformly, without replacement, among the background elements that are not yet missing
+	 * (nor noisy, for noise and errors, nor errors, for errors)
+	 * @param count The number of elements to mark (capped to the number of elements that can be picked)
+	 * @param type The kind of elements: "Missings", "Noisy" or "Errors"
+	 * @param rand The random stream
+	 * @return The keys of the marked elements
+	 */
+	protected long[] markBackgroundElements(int count, String type, Random rand) {
+		
+		if(type.equals("Missings"))
+			return BitMatrix.sampleClear(count, rand, missingElements, plantedElements, missingElements);
+		else if(type.equals("Noisy"))
+			return BitMatrix.sampleClear(count, rand, noisyElements, plantedElements, missingElements, noisyElements);
+		else
+			return BitMatrix.sampleClear(count, rand, errorElements, plantedElements, missingElements, noisyElements,
+					errorElements);
+	}
+	
+	/**
+	 * Mark a bicluster's elements as missing, noisy or errors, until the bicluster has a given number of them. Elements
+	 * are drawn without replacement (partial Fisher-Yates), and an element that cannot be marked is dropped for good:
+	 * the sets and the overlapping biclusters' counts only grow, so it would not become eligible later on
+	 * @param bic The bicluster
+	 * @param total The number of elements of the kind the bicluster should have
+	 * @param type The kind of elements: "Missings", "Noisy" or "Errors"
+	 * @param percBicluster The maximum percentage of elements of the kind in each bicluster
+	 * @param rand The random stream
+	 * @return The keys of the marked elements (fewer than asked if the bicluster runs out of eligible elements)
+	 */
+	protected long[] markBiclusterElements(Bicluster bic, int total, String type, double percBicluster, Random rand) {
+		
+		long[] elems = this.getBiclusterElements(bic.getId());
+		long[] marked = new long[elems.length];
+		int numMarked = 0;
+		int remaining = elems.length;
+		
+		while(countOf(bic, type) < total && remaining > 0) {
+			
+			int i = rand.nextInt(remaining);
+			long e = elems[i];
+			elems[i] = elems[--remaining];
+			
+			if(this.isMissing(e) || (!type.equals("Missings") && this.isNoisy(e)) || (type.equals("Errors") && this.isError(e))
+					|| !respectsOverlapConstraint(e, type, percBicluster))
+				continue;
+			
+			for(int k : this.getBicsByElem(e)) {
+				Bicluster b = this.getBiclusterById(k);
+				if(type.equals("Missings"))
+					b.addMissing();
+				else if(type.equals("Noisy"))
+					b.addNoisy();
+				else
+					b.addError();
+			}
+			
+			if(type.equals("Missings"))
+				this.addMissingElement(e);
+			else if(type.equals("Noisy"))
+				this.addNoisyElement(e);
+			else
+				this.addErrorElement(e);
+			
+			marked[numMarked++] = e;
+		}
+		
+		return Arrays.copyOf(marked, numMarked);
+	}
+	
+	private int countOf(Bicluster bic, String type) {
+		if(type.equals("Missings"))
+			return bic.getNumberOfMissings();
+		else if(type.equals("Noisy"))
+			return bic.getNumberOfNoisy();
+		else
+			return bic.getNumberOfErrors();
+	}
+	
+	/**
+	 * Checks if marking an element keeps every bicluster it belongs to under the maximum percentage of elements of a kind
+	 * @param elem The element's key
+	 * @param type The kind of elements: "Missings", "Noisy" or "Errors"
+	 * @param percBicluster The maximum percentage of elements of the kind in each bicluster
+	 * @return True if the element can be marked, False otherwise
+	 */
+	protected boolean respectsOverlapConstraint(long elem, String type, double percBicluster) {
+
+		for(int k : this.getBicsByElem(elem)) {
+			Bicluster t = this.getBiclusterById(k);
+			if(countOf(t, type) + 1 > (int) (t.getSize() * percBicluster))
+				return false;
+		}
+
+		return true;
+	}
+	
+	/**
+	 * Draw a value uniformly from the values in [min, max] that deviate more than minDeviation from a given value,
+	 * by sampling the (at most two) allowed intervals directly
+	 * @param value The value to deviate from
+	 * @param minDeviation The minimum deviation
+	 * @param min The minimum value
+	 * @param max The maximum value
+	 * @param rand The random stream
+	 * @return The drawn value, or the bound farthest from the value if no value deviates enough
+	 */
+	protected static double drawDeviatingValue(double value, double minDeviation, double min, double max, Random rand) {
+		
+		double lower = Math.min(Math.max(value - minDeviation, min), max);
+		double upper = Math.max(Math.min(value + minDeviation, max), min);
+		double left = lower - min;
+		double right = max - upper;
+		//drawn even when no value deviates enough, so the draws that follow do not depend on the value
+		double u = rand.nextDouble();
+		
+		if(left + right <= 0)
+			return (value - min >= max - value) ? min : max;
+		
+		u *= left + right;
+		return (u < left) ? min + u : upper + (u - left);
+	}
+	
+	/**
+	 * Draw an alphabet index uniformly from the indexes that deviate more than minDeviation from a given index
+	 * @param index The index to deviate from
+	 * @param minDeviation The minimum deviation
+	 * @param alphabetLength The alphabet's number of symbols
+	 * @param rand The random stream
+	 * @return The drawn index, or the end of the alphabet farthest from the index if no index deviates enough
+	 */
+	protected static int drawDeviatingIndex(int index, int minDeviation, int alphabetLength, Random rand) {
+		
+		int left = Math.min(Math.max(index - minDeviation, 0), alphabetLength);
+		int upper = Math.min(Math.max(index + minDeviation + 1, 0), alphabetLength);
+		int right = alphabetLength - upper;
+		
+		if(left + right <= 0)
+			return (index >= alphabetLength - 1 - index) ? 0 : alphabetLength - 1;
+		
+		int r = rand.nextInt(left + right);
+		return (r < left) ? r : upper + (r - left);
 	}
 	
 	/**
@@ -0,0 +1,261 @@
+/**
+ * GenerationPlan Class
+ *
+ * What a numeric dataset is generated from, decided before any of its values exist: the dataset's seed (its
+ * background and every random stream derive from it), the background, the planned biclusters (placement, patterns,
+ * plaid coherency and factors, or the stream their values are drawn from) and the quality settings with the keys of
+ * the streams each phase draws from. The plan takes space proportional to the biclusters' rows plus columns, it can
+ * be written to and read from JSON, and it is rendered into the dataset's values by NumericDatasetGenerator, as a
+ * whole or a range of rows at a time, without placing the biclusters again.
+ */
+package com.gbic.domain.dataset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.gbic.types.Background;
+import com.gbic.types.BackgroundType;
+import com.gbic.utils.QualitySettings;
+import com.gbic.utils.RandomObject;
+
+public class GenerationPlan {
+
+	private final int numRows;
+	private final int numCols;
+	private final int numBics;
+	private final boolean realValued;
+	private final double minM;
+	private final double maxM;
+	private final long seed;
+	private final Background background;
+	//The planned biclusters, in the order they are planted (their plaid composition depends on it)
+	private final List<PlannedBicluster> biclusters;
+	//The missing, noise and error settings (null if the dataset has none), and the keys of each phase's stream
+	private QualitySettings quality;
+	private long[] missingsStream;
+	private long[] noiseStream;
+	private long[] errorsStream;
+
+	/**
+	 * Constructs a plan with no biclusters
+	 * @param numRows The dataset's number of rows
+	 * @param numCols The dataset's number of columns
+	 * @param numBics The number of biclusters asked for
+	 * @param realValued Whether the dataset is real valued
+	 * @param minM The dataset's minimum value
+	 * @param maxM The dataset's maximum value
+	 * @param seed The dataset's seed
+	 * @param background The dataset's background
+	 */
+	public GenerationPlan(int numRows, int numCols, int numBics, boolean realValued, double minM, double maxM, long seed,
+			Background background) {
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.numBics = numBics;
+		this.realValued = realValued;
+		this.minM = minM;
+		this.maxM = maxM;
+		this.seed = seed;
+		this.background = background;
+		this.biclusters = new ArrayList<>();
+	}
+
+	/**
+	 * Add a bicluster, planted after the ones already in the plan
+	 * @param bic The planned bicluster
+	 */
+	public void addBicluster(PlannedBicluster bic) {
+		this.biclusters.add(bic);
+	}
+
+	/**
+	 * Get the planned biclusters
+	 * @return The biclusters, in the order they are planted
+	 */
+	public List<PlannedBicluster> getBiclusters() {
+		return Collections.unmodifiableList(biclusters);
+	}
+
+	/**
+	 * Set the missing, noise and error settings, drawn from the dataset's streams for each phase (see RandomObject)
+	 * @param quality The quality settings, or null for none
+	 */
+	public void setQualitySettings(QualitySettings quality) {
+		setQualitySettings(quality, new long[] {RandomObject.MISSINGS}, new long[] {RandomObject.NOISE},
+				new long[] {RandomObject.ERRORS});
+	}
+
+	private void setQualitySettings(QualitySettings quality, long[] missingsStream, long[] noiseStream, long[] errorsStream) {
+		this.quality = quality;
+		this.missingsStream = missingsStream;
+		this.noiseStream = noiseStream;
+		this.errorsStream = errorsStream;
+	}
+
+	/**
+	 * Get the missing, noise and error settings
+	 * @return The quality settings, or null if the dataset has none
+	 */
+	public QualitySettings getQualitySettings() {
+		return quality;
+	}
+
+	/**
+	 * Get the keys of the stream missing elements are drawn from, derived from the dataset's seed
+	 * @return The keys
+	 */
+	public long[] getMissingsStream() {
+		return missingsStream;
+	}
+
+	/**
+	 * Get the keys of the stream noisy elements are drawn from, derived from the dataset's seed
+	 * @return The keys
+	 */
+	public long[] getNoiseStream() {
+		return noiseStream;
+	}
+
+	/**
+	 * Get the keys of the stream error elements are drawn from, derived from the dataset's seed
+	 * @return The keys
+	 */
+	public long[] getErrorsStream() {
+		return errorsStream;
+	}
+
+	public int getNumRows() {
+		return numRows;
+	}
+
+	public int getNumCols() {
+		return numCols;
+	}
+
+	public int getNumBics() {
+		return numBics;
+	}
+
+	public boolean isRealValued() {
+		return realValued;
+	}
+
+	public double getMinM() {
+		return minM;
+	}
+
+	public double getMaxM() {
+		return maxM;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public Background getBackground() {
+		return background;
+	}
+
+	/**
+	 * Create the dataset the plan is rendered into: it has the plan's seed, and so its background, but no
+	 * biclusters yet
+	 * @return The dataset
+	 */
+	public NumericDataset<? extends Number> createDataset() {
+		if(realValued)
+			return new NumericDataset<Double>(numRows, numCols, numBics, background, minM, maxM, seed);
+		return new NumericDataset<Integer>(numRows, numCols, numBics, background, (int) minM, (int) maxM, seed);
+	}
+
+	/**
+	 * Get the plan as a JSON object
+	 * @return The JSON object, read back by fromJSON
+	 */
+	public JSONObject toJSON() {
+		JSONObject plan = new JSONObject();
+		plan.put("#rows", numRows);
+		plan.put("#columns", numCols);
+		plan.put("#bics", numBics);
+		plan.put("realValued", realValued);
+		plan.put("min", minM);
+		plan.put("max", maxM);
+		plan.put("seed", seed);
+
+		JSONObject back = new JSONObject();
+		back.put("type", background.getType().name());
+		back.put("param1", background.getParam1());
+		back.put("param2", background.getParam2());
+		if(background.getParam3() != null)
+			back.put("param3", new JSONArray(background.getParam3()));
+		plan.put("background", back);
+
+		JSONArray bics = new JSONArray();
+		for(PlannedBicluster bic : biclusters)
+			bics.put(bic.toJSON());
+		plan.put("biclusters", bics);
+
+		if(quality != null) {
+			JSONObject missings = new JSONObject();
+			missings.put("background", quality.getPercMissingsOnBackground());
+			missings.put("biclusters", quality.getPercMissingsOnBics());
+			missings.put("stream", new JSONArray(missingsStream));
+
+			JSONObject noise = new JSONObject();
+			noise.put("background", quality.getPercNoiseOnBackground());
+			noise.put("biclusters", quality.getPercNoiseOnBics());
+			noise.put("deviation", quality.getNoiseDeviation());
+			noise.put("stream", new JSONArray(noiseStream));
+
+			JSONObject errors = new JSONObject();
+			errors.put("background", quality.getPercErrorsOnBackground());
+			errors.put("biclusters", quality.getPercErrorsOnBics());
+			errors.put("stream", new JSONArray(errorsStream));
+
+			JSONObject settings = new JSONObject();
+			settings.put("missings", missings);
+			settings.put("noise", noise);
+			settings.put("errors", errors);
+			plan.put("quality", settings);
+		}
+		return plan;
+	}
+
+	/**
+	 * Read a plan from a JSON object
+	 * @param plan The JSON object, as written by toJSON
+	 * @return The plan
+	 */
+	public static GenerationPlan fromJSON(JSONObject plan) {
+		JSONObject back = plan.getJSONObject("background");
+		BackgroundType type = BackgroundType.valueOf(back.getString("type"));
+		Background background = back.has("param3")
+				? new Background(type, PlannedBicluster.toDoubleArray(back.getJSONArray("param3")))
+				: new Background(type, back.getDouble("param1"), back.getDouble("param2"));
+
+		GenerationPlan result = new GenerationPlan(plan.getInt("#rows"), plan.getInt("#columns"), plan.getInt("#bics"),
+				plan.getBoolean("realValued"), plan.getDouble("min"), plan.getDouble("max"), plan.getLong("seed"),
+				background);
+
+		JSONArray bics = plan.getJSONArray("biclusters");
+		for(int i = 0; i < bics.length(); i++)
+			result.addBicluster(PlannedBicluster.fromJSON(bics.getJSONObject(i)));
+
+		if(plan.has("quality")) {
+			JSONObject settings = plan.getJSONObject("quality");
+			JSONObject missings = settings.getJSONObject("missings");
+			JSONObject noise = settings.getJSONObject("noise");
+			JSONObject errors = settings.getJSONObject("errors");
+			QualitySettings quality = new QualitySettings(missings.getDouble("background"), missings.getDouble("biclusters"),
+					noise.getDouble("background"), noise.getDouble("biclusters"), noise.getDouble("deviation"),
+					errors.getDouble("background"), errors.getDouble("biclusters"));
+			result.setQualitySettings(quality, PlannedBicluster.toLongArray(missings.getJSONArray("stream")),
+					PlannedBicluster.toLongArray(noise.getJSONArray("stream")),
+					PlannedBicluster.toLongArray(errors.getJSONArray("stream")));
+		}
+		return result;
+	}
+}
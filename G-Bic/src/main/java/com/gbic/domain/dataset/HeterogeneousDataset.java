@@ -2,14 +2,12 @@ package com.gbic.domain.dataset;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
-import org.apache.commons.math3.distribution.NormalDistribution;
 import org.json.JSONObject;
 
 import com.gbic.domain.bicluster.Bicluster;
@@ -17,13 +15,20 @@ import com.gbic.domain.bicluster.MixedBicluster;
 import com.gbic.domain.bicluster.NumericBicluster;
 import com.gbic.domain.bicluster.SymbolicBicluster;
 import com.gbic.types.Background;
-import com.gbic.types.BackgroundType;
+import com.gbic.utils.BackgroundSampler;
+import com.gbic.utils.BitMatrix;
 import com.gbic.utils.IOUtils;
 import com.gbic.utils.RandomObject;
+import com.gbic.utils.SparseLines;
 
 public class HeterogeneousDataset extends Dataset {
 
-	private Random r = RandomObject.getInstance();
+	//Symbolic element codes: 0 is an element that was never stored, 1 a missing element, and index + 2 an alphabet symbol
+	private static final int EMPTY_CODE = 0;
+	private static final int MISSING_CODE = 1;
+	private static final int MAX_BYTE_ALPHABET = 254;
+	private static final int MAX_SHORT_ALPHABET = 65534;
+
 	private int numericCols;
 	private int symbolicCols;
 	private SortedSet<Integer> numericFeatures;
@@ -32,16 +37,32 @@ public class HeterogeneousDataset extends Dataset {
 	//List<MixedBiclusters> plantedBiclusters;
 	private Background numericBackground;
 	private Background symbolicBackground;
+	//Built on first use from the backgrounds, the range, the alphabet and the background seed
+	private BackgroundSampler numericSampler;
+	private BackgroundSampler symbolicSampler;
+
+	//Column-to-block index: whether each column is symbolic and its position inside the numeric or symbolic block
+	private boolean[] symbolicFeature;
+	private int[] featureIndex;
 
-	//The map that stores the elements
 	private boolean realValued;
-	private Map<String, Double> numericMatrix;
+	//Numeric block: one array of values per numeric feature (NaN marks a missing element). As in the symbolic block,
+	//a feature stores its elements sparsely until it holds as many as its array would take the memory of, and then
+	//moves them to its array. Background elements are generated on demand
+	private double[][] numericColumns;
+	private SparseLines sparseNumericColumns;
+	//The numeric positions that hold a stored value
+	private BitMatrix storedNumericItems;
 	private Double maxM;
 	private Double minM;
 
 	private String[] alphabet;
-	//The map that stores the elements
-	private Map<String, String> symbolicMatrix;
+	//Lookup table from each symbol to its index in the alphabet
+	private Map<String, Integer> symbolIndexes;
+	//Symbolic block: one array of codes per symbolic feature (byteColumns or shortColumns, depending on the alphabet's size)
+	private byte[][] byteColumns;
+	private short[][] shortColumns;
+	private SparseLines sparseSymbolicColumns;
 
 	private List<NumericBicluster<Double>> plantedNumericBics;
 	private List<SymbolicBicluster> plantedSymbolicBics;
@@ -70,17 +91,26 @@ public class HeterogeneousDataset extends Dataset {
 
 		this.numericFeatures = new TreeSet<Integer>();
 		this.symbolicFeatures = new TreeSet<Integer>();
-
-		this.numericMatrix = new HashMap<>();
-		this.symbolicMatrix = new HashMap<>();
+		this.symbolicFeature = new boolean[super.getNumCols()];
+		this.featureIndex = new int[super.getNumCols()];
 
 		for(int c = 0; c < super.getNumCols(); c++) {
-			if(c >= this.numericCols)
+			if(c >= this.numericCols) {
 				this.symbolicFeatures.add(c);
-			else
+				this.symbolicFeature[c] = true;
+				this.featureIndex[c] = c - this.numericCols;
+			}
+			else {
 				this.numericFeatures.add(c);
+				this.featureIndex[c] = c;
+			}
 		}
 
+		this.numericColumns = new double[numericCols][];
+		this.sparseNumericColumns = new SparseLines(numericCols, SparseLines.maxEntries(numRows, 8));
+		this.storedNumericItems = new BitMatrix(numRows, super.getNumCols());
+		initSymbolicStorage();
+
 		this.plantedMixedBics = new ArrayList<>();
 		this.plantedSymbolicBics = new ArrayList<>();
 		this.plantedNumericBics = new ArrayList<>();
@@ -106,7 +136,7 @@ public class HeterogeneousDataset extends Dataset {
 
 		for(NumericBicluster<? extends Number> bic : plantedNumericBics) {
 			res.append(bic.toString() + "\r\n\n");
-			res.append(IOUtils.printNumericBicluster(this.numericMatrix, bic.getRows(), bic.getColumns()) + "\n");
+			res.append(IOUtils.printMixedBicluster(this, bic.getRowArray(), bic.getColumnArray()) + "\n");
 		}
 
 		if(plantedSymbolicBics.size() > 0)
@@ -114,7 +144,7 @@ public class HeterogeneousDataset extends Dataset {
 
 		for(SymbolicBicluster bic : plantedSymbolicBics) {
 			res.append(bic.toString() + "\r\n\n");
-			res.append(IOUtils.printSymbolicBicluster(this.symbolicMatrix, bic.getRows(), bic.getColumns()) + "\n");
+			res.append(IOUtils.printMixedBicluster(this, bic.getRowArray(), bic.getColumnArray()) + "\n");
 		}
 
 		if(plantedMixedBics.size() > 0)
@@ -122,7 +152,7 @@ public class HeterogeneousDataset extends Dataset {
 
 		for(MixedBicluster bic : plantedMixedBics) {
 			res.append(bic.toString() + "\r\n\n");
-			res.append(IOUtils.printMixedBicluster(this.numericMatrix, this.symbolicMatrix, bic.getRows(), bic.getColumns()) + "\n");
+			res.append(IOUtils.printMixedBicluster(this, bic.getRowArray(), bic.getColumnArray()) + "\n");
 		}
 
 		return res.toString().replace(",]","]");
@@ -167,13 +197,6 @@ public class HeterogeneousDataset extends Dataset {
 		return numericCols;
 	}
 
-	/**
-	 * @param numericCols the numericCols to set
-	 */
-	public void setNumericCols(int numericCols) {
-		this.numericCols = numericCols;
-	}
-
 	/**
 	 * @return the symbolicCols
 	 */
@@ -181,13 +204,6 @@ public class HeterogeneousDataset extends Dataset {
 		return symbolicCols;
 	}
 
-	/**
-	 * @param symbolicCols the symbolicCols to set
-	 */
-	public void setSymbolicCols(int symbolicCols) {
-		this.symbolicCols = symbolicCols;
-	}
-
 	/**
 	 * @return the numericFeatures
 	 */
@@ -195,13 +211,6 @@ public class HeterogeneousDataset extends Dataset {
 		return numericFeatures;
 	}
 
-	/**
-	 * @param numericFeatures the numericFeatures to set
-	 */
-	public void setNumericFeatures(SortedSet<Integer> numericFeatures) {
-		this.numericFeatures = numericFeatures;
-	}
-
 	/**
 	 * @return the symbolicFeatures
 	 */
@@ -209,13 +218,6 @@ public class HeterogeneousDataset extends Dataset {
 		return symbolicFeatures;
 	}
 
-	/**
-	 * @param symbolicFeatures the symbolicFeatures to set
-	 */
-	public void setSymbolicFeatures(SortedSet<Integer> symbolicFeatures) {
-		this.symbolicFeatures = symbolicFeatures;
-	}
-
 	/**
 	 * @return the plantedNumericBics
 	 */
@@ -228,6 +230,7 @@ public class HeterogeneousDataset extends Dataset {
 	 */
 	public void setPlantedNumericBics(List<NumericBicluster<Double>> plantedNumericBics) {
 		this.plantedNumericBics = plantedNumericBics;
+		reindexBiclusters();
 	}
 
 	/**
@@ -242,6 +245,7 @@ public class HeterogeneousDataset extends Dataset {
 	 */
 	public void setPlantedSymbolicBics(List<SymbolicBicluster> plantedSymbolicBics) {
 		this.plantedSymbolicBics = plantedSymbolicBics;
+		reindexBiclusters();
 	}
 
 	/**
@@ -256,18 +260,34 @@ public class HeterogeneousDataset extends Dataset {
 	 */
 	public void setPlantedMixedBics(List<MixedBicluster> plantedMixedBics) {
 		this.plantedMixedBics = plantedMixedBics;
+		reindexBiclusters();
 	}
 
 	public void addPlantedMixedBic(MixedBicluster bic) {
 		this.plantedMixedBics.add(bic);
+		this.indexBicluster(bic);
 	}
 
 	public void addPlantedNumericBic(NumericBicluster bic) {
 		this.plantedNumericBics.add(bic);
+		this.indexBicluster(bic);
 	}
 
 	public void addPlantedSymbolicBic(SymbolicBicluster bic) {
 		this.plantedSymbolicBics.add(bic);
+		this.indexBicluster(bic);
+	}
+	
+	private void reindexBiclusters() {
+		
+		this.clearBiclusterIndex();
+		
+		for(Bicluster bic : this.plantedNumericBics)
+			this.indexBicluster(bic);
+		for(Bicluster bic : this.plantedSymbolicBics)
+			this.indexBicluster(bic);
+		for(Bicluster bic : this.plantedMixedBics)
+			this.indexBicluster(bic);
 	}
 
 	/**
@@ -282,6 +302,7 @@ public class HeterogeneousDataset extends Dataset {
 	 */
 	public void setNumericBackground(Background numericBackground) {
 		this.numericBackground = numericBackground;
+		this.numericSampler = null;
 	}
 
 	/**
@@ -296,6 +317,7 @@ public class HeterogeneousDataset extends Dataset {
 	 */
 	public void setSymbolicBackground(Background symbolicBackground) {
 		this.symbolicBackground = symbolicBackground;
+		this.symbolicSampler = null;
 	}
 
 	/**
@@ -310,28 +332,85 @@ public class HeterogeneousDataset extends Dataset {
 	 */
 	public void setRealValued(boolean realValued) {
 		this.realValued = realValued;
+		this.numericSampler = null;
 	}
 
 	/**
-	 * @return the numericMatrix
+	 * Set a numeric element's value
+	 * @param row The row ID
+	 * @param col The column ID (must be a numeric feature)
+	 * @param value The element's value
 	 */
-	public Map<String, Double> getNumericMatrix() {
-		return numericMatrix;
+	public void setNumericElement(int row, int col, double value) {
+		storeNumeric(row, col, value);
 	}
 
 	/**
-	 * @param numericMatrix the numericMatrix to set
+	 * Mark a numeric element as missing
+	 * @param row The row ID
+	 * @param col The column ID (must be a numeric feature)
 	 */
-	public void setNumericMatrix(Map<String, Double> numericMatrix) {
-		this.numericMatrix = numericMatrix;
+	public void setMissingNumericElement(int row, int col) {
+		storeNumeric(row, col, Double.NaN);
 	}
-
-	public void setNumericElement(int row, int col, Double value) {
-		this.numericMatrix.put(row + ":" + col, value);
+	
+	//store a numeric value in its feature's array, or else the feature's sparse storage
+	private void storeNumeric(int row, int col, double value) {
+		int f = featureIndex[col];
+		if(this.numericColumns[f] != null)
+			this.numericColumns[f][row] = value;
+		else if(!this.sparseNumericColumns.put(f, row, value))
+			denseNumericColumn(f)[row] = value;
+		this.storedNumericItems.set(row, col);
+	}
+	
+	//move a numeric feature's sparse elements to its array
+	private double[] denseNumericColumn(int f) {
+		double[] dense = this.numericColumns[f] = new double[getNumRows()];
+		for(int i = 0; i < this.sparseNumericColumns.size(f); i++)
+			dense[this.sparseNumericColumns.position(f, i)] = this.sparseNumericColumns.value(f, i);
+		this.sparseNumericColumns.clear(f);
+		return dense;
+	}
+	
+	//the value of a stored numeric element (NaN if it is missing)
+	private double numericValue(int row, int col) {
+		int f = featureIndex[col];
+		return (this.numericColumns[f] != null) ? this.numericColumns[f][row] : this.sparseNumericColumns.get(f, row, Double.NaN);
 	}
 
+	/**
+	 * Get a numeric element's value
+	 * @param row The row ID
+	 * @param col The column ID (must be a numeric feature)
+	 * @return The element's value, or null if the element is not stored or is missing
+	 */
 	public Double getNumericElement(int row, int col) {
-		return this.numericMatrix.get(row + ":" + col);
+		
+		if(!existsNumericElement(row, col) || isMissingNumericElement(row, col))
+			return null;
+		
+		return numericValue(row, col);
+	}
+	
+	/**
+	 * Get a numeric element's value without boxing it
+	 * @param row The row ID
+	 * @param col The column ID (must be a numeric feature)
+	 * @return The element's value (only meaningful if the element exists and is not missing)
+	 */
+	public double getNumericValue(int row, int col) {
+		return numericValue(row, col);
+	}
+	
+	/**
+	 * Check if a numeric element was stored as missing
+	 * @param row The row ID
+	 * @param col The column ID (must be a numeric feature)
+	 * @return True if the element is missing, False otherwise
+	 */
+	public boolean isMissingNumericElement(int row, int col) {
+		return existsNumericElement(row, col) && Double.isNaN(numericValue(row, col));
 	}
 
 	/**
@@ -346,6 +425,7 @@ public class HeterogeneousDataset extends Dataset {
 	 */
 	public void setMaxM(Double maxM) {
 		this.maxM = maxM;
+		this.numericSampler = null;
 	}
 
 	/**
@@ -360,6 +440,7 @@ public class HeterogeneousDataset extends Dataset {
 	 */
 	public void setMinM(Double minM) {
 		this.minM = minM;
+		this.numericSampler = null;
 	}
 
 	/**
@@ -370,280 +451,240 @@ public class HeterogeneousDataset extends Dataset {
 	}
 
 	/**
-	 * @param alphabet the alphabet to set
+	 * @param alphabet the alphabet to set (clears any stored symbolic element)
 	 */
 	public void setAlphabet(String[] alphabet) {
 		this.alphabet = alphabet;
+		this.symbolicSampler = null;
+		initSymbolicStorage();
 	}
-
+	
 	/**
-	 * @return the symbolicMatrix
+	 * Builds the symbol lookup table and allocates the symbolic block with the narrowest type that fits the alphabet
 	 */
-	public Map<String, String> getSymbolicMatrix() {
-		return symbolicMatrix;
+	private void initSymbolicStorage() {
+		
+		if(alphabet.length > MAX_SHORT_ALPHABET)
+			throw new IllegalArgumentException("Alphabets with more than " + MAX_SHORT_ALPHABET + " symbols are not supported");
+		
+		this.symbolIndexes = new HashMap<>();
+		for(int i = 0; i < alphabet.length; i++)
+			this.symbolIndexes.putIfAbsent(alphabet[i], i);
+		
+		this.byteColumns = null;
+		this.shortColumns = null;
+		if(alphabet.length <= MAX_BYTE_ALPHABET)
+			this.byteColumns = new byte[symbolicCols][];
+		else
+			this.shortColumns = new short[symbolicCols][];
+		this.sparseSymbolicColumns = new SparseLines(symbolicCols, SparseLines.maxEntries(getNumRows(), (byteColumns != null) ? 1 : 2));
 	}
 
 	/**
-	 * @param symbolicMatrix the symbolicMatrix to set
+	 * Set a symbolic element's value
+	 * @param row The row ID
+	 * @param col The column ID (must be a symbolic feature)
+	 * @param value The element's value (an empty string marks the element as missing)
 	 */
-	public void setSymbolicMatrix(Map<String, String> symbolicMatrix) {
-		this.symbolicMatrix = symbolicMatrix;
-	}
-
 	public void setSymbolicElement(int row, int col, String value) {
-		this.symbolicMatrix.put(row + ":" + col, value);
+		
+		if(value.isEmpty())
+			setCode(row, col, MISSING_CODE);
+		else {
+			int index = getSymbolIndex(value);
+			if(index == -1)
+				throw new IllegalArgumentException("Symbol " + value + " does not belong to the dataset's alphabet");
+			setCode(row, col, index + 2);
+		}
+	}
+	
+	/**
+	 * Set a symbolic element's value by its symbol index
+	 * @param row The row ID
+	 * @param col The column ID (must be a symbolic feature)
+	 * @param symbolIndex The index of the symbol in the alphabet
+	 */
+	public void setSymbolicIndex(int row, int col, int symbolIndex) {
+		setCode(row, col, symbolIndex + 2);
 	}
 
+	/**
+	 * Get a symbolic element's value
+	 * @param row The row ID
+	 * @param col The column ID (must be a symbolic feature)
+	 * @return The element's value, an empty string if it is missing or null if it was never stored
+	 */
 	public String getSymbolicElement(int row, int col) {
-		return this.symbolicMatrix.get(row + ":" + col);
+		
+		int code = getCode(row, col);
+		
+		if(code == EMPTY_CODE)
+			return null;
+		else if(code == MISSING_CODE)
+			return "";
+		else
+			return this.alphabet[code - 2];
+	}
+	
+	/**
+	 * Get the alphabet index of a symbolic element's value
+	 * @param row The row ID
+	 * @param col The column ID (must be a symbolic feature)
+	 * @return The symbol's index, or -1 if the element is missing or was never stored
+	 */
+	public int getSymbolicIndex(int row, int col) {
+		int code = getCode(row, col);
+		return (code < 2) ? -1 : code - 2;
 	}
 
 	public boolean existsSymbolicElement(int row, int col) {
-		return this.symbolicMatrix.containsKey(row + ":" + col);
+		return getCode(row, col) != EMPTY_CODE;
 	}
 
 	public boolean existsNumericElement(int row, int col) {
-		return this.numericMatrix.containsKey(row + ":" + col);
+		return this.storedNumericItems.get(row, col);
 	}
 
 	public boolean isSymbolicFeature(int col) {
-		return this.symbolicFeatures.contains(col);
-	}
-
-	/**
-	 * Generated a value for the background
-	 * @return a random generated value
-	 */
-	public Double generateNumericBackgroundValue() {
-
-		Double element = null;
-
-		if(getNumericBackground().getType().equals(BackgroundType.UNIFORM))
-			element = generateNumericBackgroundValue(null);
-		else if (getNumericBackground().getType().equals(BackgroundType.DISCRETE))
-			element = generateNumericBackgroundValue(getNumericBackground().getParam3());
-		else if (getNumericBackground().getType().equals(BackgroundType.NORMAL))
-			element = generateNumericBackgroundValue(getNumericBackground().getParam1(), getNumericBackground().getParam2());
-		else
-			element = new Double(Integer.MIN_VALUE);
-
-		return element;
-	}
-
-	private Double generateNumericBackgroundValue(double[] probs) {
-
-		Double backgroundValue = null;
-
-		if(probs == null) {
-			if (!realValued) 
-				backgroundValue = new Double(r.nextInt((maxM.intValue() - minM.intValue()) + 1) + minM.intValue());
-			else 
-				backgroundValue = new Double(r.nextDouble() * (maxM.doubleValue() - minM.doubleValue()) + minM.doubleValue());
+		return this.symbolicFeature[col];
+	}
+	
+	private int getCode(int row, int col) {
+		int f = featureIndex[col];
+		if(byteColumns != null && byteColumns[f] != null)
+			return byteColumns[f][row] & 0xFF;
+		if(shortColumns != null && shortColumns[f] != null)
+			return shortColumns[f][row] & 0xFFFF;
+		return (int) sparseSymbolicColumns.get(f, row, EMPTY_CODE);
+	}
+	
+	private void setCode(int row, int col, int code) {
+		int f = featureIndex[col];
+		if(byteColumns != null) {
+			if(byteColumns[f] == null && sparseSymbolicColumns.put(f, row, code))
+				return;
+			if(byteColumns[f] == null) {
+				byteColumns[f] = new byte[getNumRows()];
+				for(int i = 0; i < sparseSymbolicColumns.size(f); i++)
+					byteColumns[f][sparseSymbolicColumns.position(f, i)] = (byte) sparseSymbolicColumns.value(f, i);
+				sparseSymbolicColumns.clear(f);
+			}
+			byteColumns[f][row] = (byte) code;
 		}
 		else {
-
-			double p = r.nextDouble();
-			double sum = 0.0;
-			Integer i = 0;
-			while(sum < p){
-				sum += probs[i];
-				i++;
+			if(shortColumns[f] == null && sparseSymbolicColumns.put(f, row, code))
+				return;
+			if(shortColumns[f] == null) {
+				shortColumns[f] = new short[getNumRows()];
+				for(int i = 0; i < sparseSymbolicColumns.size(f); i++)
+					shortColumns[f][sparseSymbolicColumns.position(f, i)] = (short) sparseSymbolicColumns.value(f, i);
+				sparseSymbolicColumns.clear(f);
 			}
-			backgroundValue = new Double(i);
+			shortColumns[f][row] = (short) code;
 		}
-
-		return backgroundValue;
 	}
 
-	private Double generateNumericBackgroundValue(double mean, double sd) {
-
-		Double backgroundValue = null;
-
-		NormalDistribution n = new NormalDistribution(mean, sd);
-
-		Double vals = n.sample(1)[0];
-
-		if (Double.compare(vals, minM.doubleValue()) < 0)
-			vals = minM;
-		else if (Double.compare(vals, maxM.doubleValue()) > 0)
-			vals = maxM;
+	/**
+	 * Generate the background value of a numeric element. The value is a pure function of the background seed
+	 * and the element's position
+	 * @param row The row ID
+	 * @param col The column ID (must be a numeric feature)
+	 * @return the element's background value, or null if the background is missing
+	 */
+	public Double generateNumericBackgroundValue(int row, int col) {
+		double value = numericSampler().value(row, col);
+		return Double.isNaN(value) ? null : value;
+	}
 
-		if (!realValued)
-			backgroundValue = new Double(vals.intValue());
-		else
-			backgroundValue = vals;	
+	/**
+	 * Generate the background values of a segment of a row's numeric features
+	 * @param row The row ID
+	 * @param fromCol The first column (inclusive, must be a numeric feature)
+	 * @param toCol The last column (exclusive)
+	 * @param out The buffer for the values, indexed from 0 (NaN marks a missing background)
+	 */
+	public void generateNumericBackgroundRow(int row, int fromCol, int toCol, double[] out) {
+		numericSampler().fill(row, fromCol, toCol, out);
+	}
 
-		return backgroundValue;
+	private BackgroundSampler numericSampler() {
+		if(numericSampler == null)
+			numericSampler = BackgroundSampler.numeric(numericBackground, getBackgroundSeed(), getNumCols(), minM, maxM,
+					!realValued);
+		return numericSampler;
 	}
 
 	/**
 	 * Get Numeric Bicluster
 	 * @param id The Bicluster ID
-	 * @return the Bicluster with the specified ID
+	 * @return the Bicluster with the specified ID, or null if it is not a numeric Bicluster
 	 */
 	public NumericBicluster<? extends Number> getNumericBicluster(int id) {
-
-		NumericBicluster<?> res = null;
-
-		for(int i = 0; i < this.plantedNumericBics.size() && res == null; i++) {
-			NumericBicluster<?> t = this.plantedNumericBics.get(i);
-			if(t.getId() == id) 
-				res = t;
-		}
-
-		return res;
+		Bicluster b = this.getBiclusterById(id);
+		return (b instanceof NumericBicluster) ? (NumericBicluster<? extends Number>) b : null;
 	}
 
 	/**
 	 * Get Symbolic Bicluster
 	 * @param id The Bicluster ID
-	 * @return the Bicluster with the specified ID
+	 * @return the Bicluster with the specified ID, or null if it is not a symbolic Bicluster
 	 */
 	public SymbolicBicluster getSymbolicBicluster(int id) {
-
-		SymbolicBicluster res = null;
-
-		for(int i = 0; i < this.plantedSymbolicBics.size() && res == null; i++) {
-			SymbolicBicluster t = this.plantedSymbolicBics.get(i);
-			if(t.getId() == id) 
-				res = t;
-		}
-
-		return res;
+		Bicluster b = this.getBiclusterById(id);
+		return (b instanceof SymbolicBicluster) ? (SymbolicBicluster) b : null;
 	}
 
 	/**
-	 * Get Symbolic Bicluster
+	 * Get Mixed Bicluster
 	 * @param id The Bicluster ID
-	 * @return the Bicluster with the specified ID
+	 * @return the Bicluster with the specified ID, or null if it is not a mixed Bicluster
 	 */
 	public MixedBicluster getMixedBicluster(int id) {
-
-		MixedBicluster res = null;
-
-		for(int i = 0; i < this.plantedMixedBics.size() && res == null; i++) {
-			MixedBicluster t = this.plantedMixedBics.get(i);
-			if(t.getId() == id) 
-				res = t;
-		}
-
-		return res;
-	}
-
-	@Override
-	public Bicluster getBiclusterById(int id) {
-
-		Bicluster b = null;
-
-		for(NumericBicluster<Double> n : this.plantedNumericBics) {
-			if(n.getId() == id)
-				b = n;
-
-			if(b != null)
-				break;
-		}
-
-		if(b == null) {
-			for(SymbolicBicluster s : this.plantedSymbolicBics) {
-				if(s.getId() == id)
-					b = s;
-
-				if(b != null)
-					break;
-			}
-		}
-
-		if(b == null) {
-			for(MixedBicluster m : this.plantedMixedBics) {
-				if(m.getId() == id)
-					b = m;
-
-				if(b != null)
-					break;
-			}
-		}
-
-		return b;
+		Bicluster b = this.getBiclusterById(id);
+		return (b instanceof MixedBicluster) ? (MixedBicluster) b : null;
 	}
 
 	/**
-	 * Generated a value for the background
-	 * @return a random generated value
+	 * Generate the background value of a symbolic element. The value is a pure function of the background seed
+	 * and the element's position
+	 * @param row The row ID
+	 * @param col The column ID (must be a symbolic feature)
+	 * @return the element's background symbol, or an empty string if the background is missing
 	 */
-	public String generateSymbolicBackgroundValue() {
-
-		String element = null;
-
-		if(getSymbolicBackground().getType().equals(BackgroundType.UNIFORM))
-			element = generateSymbolicBackgroundValue(null);
-		else if (getSymbolicBackground().getType().equals(BackgroundType.DISCRETE))
-			element = generateSymbolicBackgroundValue(getSymbolicBackground().getParam3());
-		else if (getSymbolicBackground().getType().equals(BackgroundType.NORMAL))
-			element = generateSymbolicBackgroundValue(getSymbolicBackground().getParam1(), getSymbolicBackground().getParam2());
-		else
-			element = "";
-
-		return element;
+	public String generateSymbolicBackgroundValue(int row, int col) {
+		int index = symbolicSampler().symbol(row, col);
+		return (index < 0) ? "" : alphabet[index];
 	}
 
-
-	private String generateSymbolicBackgroundValue(double[] probs) {
-
-		String element = null;
-
-		if (probs == null)
-			element = getAlphabet()[r.nextInt(getAlphabet().length)];
-		else {
-			double p = r.nextDouble();
-			double sum = 0.0;
-			int i = 0;
-			while(sum < p){
-				sum += probs[i];
-				i++;
-			}
-			element = getAlphabet()[i - 1];
-		}
-
-		return element;
+	/**
+	 * Generate the background symbols of a segment of a row's symbolic features
+	 * @param row The row ID
+	 * @param fromCol The first column (inclusive, must be a symbolic feature)
+	 * @param toCol The last column (exclusive)
+	 * @param out The buffer for the symbols' alphabet indexes, indexed from 0 (-1 marks a missing background)
+	 */
+	public void generateSymbolicBackgroundRow(int row, int fromCol, int toCol, int[] out) {
+		symbolicSampler().fillSymbols(row, fromCol, toCol, out);
 	}
 
-	private String generateSymbolicBackgroundValue(double mean, double sd) {
-
-		String element = null;
-
-		NormalDistribution n = new NormalDistribution(mean, sd);
-		int vals = (int) n.sample(1)[0];
-
-		if (vals < 0)
-			vals = 0;
-		else if (vals >= getAlphabet().length)
-			vals = getAlphabet().length - 1;
-
-		element = getAlphabet()[vals];
-
-		return element;
-
+	private BackgroundSampler symbolicSampler() {
+		if(symbolicSampler == null)
+			symbolicSampler = BackgroundSampler.symbolic(symbolicBackground, getBackgroundSeed(), getNumCols(),
+					alphabet.length);
+		return symbolicSampler;
 	}
 
 	@Override
 	public void plantMissingElements(double percBackground, double percBicluster) {
 
 		int nrMissingsBackground = (int) (this.getBackgroundSize() * percBackground);
-		Random rand = RandomObject.getInstance();
+		Random rand = RandomObject.getStream(getSeed(), RandomObject.MISSINGS);
 
 		int row = -1;
 		int col = -1;
 
-		for (int k = 0; k < nrMissingsBackground; k++) {
-			String e;
-			do {
-				row = rand.nextInt(getNumRows());
-				col = rand.nextInt(getNumCols());
-				e = row + ":" + col;
-			} while (this.isMissing(e) || this.isPlanted(e));
-
-			this.addMissingElement(e);
-		}
+		this.markBackgroundElements(nrMissingsBackground, "Missings", rand);
+		
 		if(Double.compare(percBicluster, 0.0) > 0) {
 			
 			List<Bicluster> bicsList = new ArrayList<Bicluster>();
@@ -656,34 +697,20 @@ public class HeterogeneousDataset extends Dataset {
 				double random = rand.nextDouble();
 				int nrMissingsBic = (int) (t.getSize() * percBicluster * random);
 
-				List<String> elems = this.getBiclusterElements(t.getId());
-				String e;
-				for(int k = t.getNumberOfMissings(); k < nrMissingsBic; k++) {
-					do {
-						e = elems.get(rand.nextInt(elems.size()));
-					} while (this.isMissing(e) || !respectsOverlapConstraint(e, "Missings", percBicluster));
-
-					this.addMissingElement(e);
-
-					for(Integer i : this.getBicsByElem(e))
-						this.getBiclusterById(i).addMissing();
-				}
+				this.markBiclusterElements(t, nrMissingsBic, "Missings", percBicluster, rand);
 			}
 		}
 
 
-		for(String e : this.getMissingElements()) {
+		for(long e : this.getMissingElements()) {
 
-			String[] coord = e.split(":");
-			row = Integer.parseInt(coord[0]);
-			col = Integer.parseInt(coord[1]);
+			row = getElementRow(e);
+			col = getElementCol(e);
 
-			if(this.isSymbolicFeature(col)) {
+			if(this.isSymbolicFeature(col))
 				this.setSymbolicElement(row, col, "");
-			}
-			else {
-				this.setNumericElement(row, col, (double) Integer.MIN_VALUE);
-			}
+			else
+				this.setMissingNumericElement(row, col);
 		}
 
 	}
@@ -697,27 +724,12 @@ public class HeterogeneousDataset extends Dataset {
 	public void plantNoisyElements(double percBackground, double percBicluster, double maxDeviation) {
 
 		int nrNoiseBackground = (int) (this.getBackgroundSize() * percBackground);
-		Random rand = RandomObject.getInstance();
+		Random rand = RandomObject.getStream(getSeed(), RandomObject.NOISE);
 
 		int row = -1;
 		int col = -1;
 
-		for (int k = 0; k < nrNoiseBackground; k++) {
-
-			boolean stop = false;
-			String e;
-
-			do {
-				row = rand.nextInt(getNumRows());
-				col = rand.nextInt(getNumCols());
-				e = row + ":" + col;
-				if(!this.isNoisy(e) && !this.isPlanted(e) && !this.isMissing(e))
-					stop = true;
-
-			} while (!stop);
-
-			this.addNoisyElement(e);
-		}
+		this.markBackgroundElements(nrNoiseBackground, "Noisy", rand);
 
 		if(Double.compare(percBicluster, 0.0) > 0) {
 
@@ -731,70 +743,45 @@ public class HeterogeneousDataset extends Dataset {
 				double random = rand.nextDouble();
 				int nrNoisyBic = (int) (t.getSize() * percBicluster * random);
 
-				/*
-				System.out.println("Tric size: " + t.getSize());
-				System.out.println("Tric max perc: " + percTricluster);
-				System.out.println("Tric random: " + random);
-				System.out.println("Tric " + t.getId() + " - Number of noise: " + nrNoisyTric + "(" + ratio + ")\n");
-				 */
-
-				List<String> elems = this.getBiclusterElements(t.getId());
-				String e;
-				for(int k = t.getNumberOfNoisy(); k < nrNoisyBic; k++) {
-					do {
-						e = elems.get(rand.nextInt(elems.size()));
-					} while (this.isMissing(e) || this.isNoisy(e) || !respectsOverlapConstraint(e, "Noisy", percBicluster));
-
-					this.addNoisyElement(e);
-
-					for(Integer i : this.getBicsByElem(e))
-						this.getBiclusterById(i).addNoisy();
-
-				}
+				this.markBiclusterElements(t, nrNoisyBic, "Noisy", percBicluster, rand);
 			}	
 		}
 
-		for(String e : this.getNoisyElements()) {
-
-			String[] coord = e.split(":");
+		for(long e : this.getNoisyElements()) {
 
-			row = Integer.parseInt(coord[0]);
-			col = Integer.parseInt(coord[1]);
+			row = getElementRow(e);
+			col = getElementCol(e);
 
 			if(this.isSymbolicFeature(col)) {
 				int symbolIndex = -1;
 
 				if(this.existsSymbolicElement(row, col))
-					symbolIndex = this.getSymbolIndex(this.getSymbolicElement(row, col));
-				else {
-					String newSymbol = this.generateSymbolicBackgroundValue();
-					this.setSymbolicElement(row, col, newSymbol);
-					symbolIndex = this.getSymbolIndex(newSymbol);
-				}
+					symbolIndex = this.getSymbolicIndex(row, col);
+				else
+					symbolIndex = this.getSymbolIndex(this.generateSymbolicBackgroundValue(row, col));
 
 				int deviation = 1 + rand.nextInt((int)maxDeviation);
 				int newIndex = rand.nextBoolean() ? (symbolIndex + deviation) : (symbolIndex - deviation);
-				String newValue;
 
 				if(newIndex < 0)
-					newValue = this.alphabet[0];
+					newIndex = 0;
 				else if(newIndex >= this.alphabet.length)
-					newValue = this.alphabet[this.alphabet.length - 1];
-				else
-					newValue = this.alphabet[newIndex];
+					newIndex = this.alphabet.length - 1;
 
-				//System.out.println("(Noisy) OldValue: " + this.getMatrixItem(ctx, row, col) + " Deviation: " + deviation + " NewValue: " + newValue);
-
-				this.setSymbolicElement(row, col, newValue);
+				this.setSymbolicIndex(row, col, newIndex);
 			}
 			else {
 				Double symbolIndex = null;
 
 				if(this.existsNumericElement(row, col))
 					symbolIndex = this.getNumericElement(row, col);
-				else {
-					symbolIndex = this.generateNumericBackgroundValue();
-					this.setNumericElement(row, col, symbolIndex);
+				else
+					symbolIndex = this.generateNumericBackgroundValue(row, col);
+				
+				//A missing background has no value to deviate from
+				if(symbolIndex == null) {
+					this.setNumericElement(row, col, minM);
+					continue;
 				}
 
 				double deviation;
@@ -839,31 +826,19 @@ public class HeterogeneousDataset extends Dataset {
 	public void plantErrors(double percBackground, double percBicluster, double minDeviation) {
 
 		int nrErrorsBackground = (int) (this.getBackgroundSize() * percBackground);
-		Random rand = RandomObject.getInstance();
+		Random rand = RandomObject.getStream(getSeed(), RandomObject.ERRORS);
 
 		int row = -1;
 		int col = -1;
 
-		for (int k = 0; k < nrErrorsBackground; k++) {
+		for (long e : this.markBackgroundElements(nrErrorsBackground, "Errors", rand)) {
 
-			boolean stop = false;
-			String e;
-
-			do {
-				row = rand.nextInt(getNumRows());
-				col = rand.nextInt(getNumCols());
-				e = row + ":" + col;
-
-				if(!this.isError(e) && !this.isPlanted(e) && !this.isMissing(e) && !this.isNoisy(e))
-					stop = true;
-
-			} while (!stop);
-
-			this.addErrorElement(e);
+			row = getElementRow(e);
+			col = getElementCol(e);
 
 			if(this.isSymbolicFeature(col)) {
 				int newIndex = (rand.nextBoolean()) ? this.alphabet.length - 1 : 0;
-				this.setSymbolicElement(row, col, this.alphabet[newIndex]);
+				this.setSymbolicIndex(row, col, newIndex);
 			}
 			else {
 				Double newElem = (rand.nextBoolean()) ? maxM : minM;
@@ -885,62 +860,27 @@ public class HeterogeneousDataset extends Dataset {
 				int nrErrorsBic = (int) (t.getSize() * percBicluster * rand.nextDouble());
 				//System.out.println("Tric " + t.getId() + " - Number of errors: " + nrErrorsTric + "(" + ratio + ")\n");
 
-				List<String> elems = this.getBiclusterElements(t.getId());
-				String e;
-				for(int k = t.getNumberOfErrors(); k < nrErrorsBic; k++) {
-					do {
-						e = elems.get(rand.nextInt(elems.size()));
-					} while (this.isMissing(e) || this.isNoisy(e) || this.isError(e) || !respectsOverlapConstraint(e, "Errors", percBicluster));
-
-					this.addErrorElement(e);
-
-					for(Integer i : this.getBicsByElem(e))
-						this.getBiclusterById(i).addError();
+				for(long e : this.markBiclusterElements(t, nrErrorsBic, "Errors", percBicluster, rand)) {
 
-					String[] coord = e.split(":");
-
-					row = Integer.parseInt(coord[0]);
-					col = Integer.parseInt(coord[1]);
+					row = getElementRow(e);
+					col = getElementCol(e);
 
 					if(this.isSymbolicFeature(col)) {
-						int symbolIndex = -1;
-						
-						if(this.existsSymbolicElement(row, col))
-							symbolIndex = this.getSymbolIndex(this.getSymbolicElement(row, col));
-						else {
-							String newSymbol = this.generateSymbolicBackgroundValue();
-							this.setSymbolicElement(row, col, newSymbol);
-							symbolIndex = this.getSymbolIndex(newSymbol);
-						}
-						
-						int newIndex;
-						
-						do {
-							newIndex = rand.nextInt(this.alphabet.length); 
-						}while(Math.abs(symbolIndex - newIndex) <= minDeviation);
+						int symbolIndex = this.getSymbolicIndex(row, col);
 						
-						//System.out.println("(Error tric) OldValue: " + this.getMatrixItem(ctx, row, col) +" NewValue: " + this.alphabet[newIndex]);
+						int newIndex = drawDeviatingIndex(symbolIndex, (int) minDeviation, this.alphabet.length, rand);
 						
-						this.setSymbolicElement(row, col, this.alphabet[newIndex]);
+						this.setSymbolicIndex(row, col, newIndex);
 					}
 					else {
-						double currentElement = 0;
-
-						if(this.existsNumericElement(row, col))
-							currentElement = this.getNumericElement(row, col).doubleValue();
-						else {
-							currentElement = this.generateNumericBackgroundValue().doubleValue();
-							this.setNumericElement(row, col, new Double(currentElement));
-						}
+						double currentElement = this.getNumericValue(row, col);
 
 						double candidate = 0;
 						Double newElem;
 
 						if(this.realValued) {
 
-							do {
-								candidate = minM.doubleValue() + (maxM.doubleValue() - minM.doubleValue()) *  rand.nextDouble();
-							}while(Math.abs(currentElement - candidate) <= minDeviation);
+							candidate = drawDeviatingValue(currentElement, minDeviation, minM, maxM, rand);
 
 							if(Double.compare(candidate, minM.doubleValue()) < 0)
 								newElem = new Double(minM.doubleValue());
@@ -951,9 +891,7 @@ public class HeterogeneousDataset extends Dataset {
 						}
 						else {
 
-							do {
-								candidate = minM.doubleValue() + (maxM.doubleValue() - minM.doubleValue()) *  rand.nextDouble();
-							}while(Math.abs(currentElement - candidate) <= minDeviation);
+							candidate = drawDeviatingValue(currentElement, minDeviation, minM, maxM, rand);
 
 							candidate = Math.round(candidate);
 
@@ -971,45 +909,13 @@ public class HeterogeneousDataset extends Dataset {
 		}
 	}
 
-	private boolean respectsOverlapConstraint(String elem, String type, double percBicluster) {
-
-		boolean respects = true;
-
-		List<Integer> bics = this.getBicsByElem(elem);
-
-		//Mudar isto depois pq esta bastante feio
-		for(int i = 0; i < bics.size() && respects; i++) {
-			Bicluster t = getBiclusterById(bics.get(i));
-
-			int maxAllowed = (int) (t.getSize() * percBicluster);
-
-			if(type.equals("Missings") && t.getNumberOfMissings() + 1 > maxAllowed)
-				respects = false;
-
-			if(type.equals("Noisy") && t.getNumberOfNoisy() + 1 > maxAllowed)
-				respects = false;
-
-			if(type.equals("Errors") && t.getNumberOfErrors() + 1 > maxAllowed)
-				respects = false;
-		}
-
-		return respects;
-	}
-
 	/**
 	 * Get symbol index in the alphabet
 	 * @param s The symbol
-	 * @return The symbol's index
+	 * @return The symbol's index, or -1 if the symbol is not in the alphabet
 	 */
 	public int getSymbolIndex(String s) {
-
-		int index = -1;
-
-		for(int i = 0; i < this.alphabet.length && index == -1; i++) {
-			if(s.equals(this.alphabet[i]))
-				index = i;
-		}
-
-		return index;
+		Integer index = this.symbolIndexes.get(s);
+		return (index == null) ? -1 : index;
 	}
 }
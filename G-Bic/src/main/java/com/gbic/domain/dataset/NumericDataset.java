@@ -9,12 +9,10 @@ package com.gbic.domain.dataset;
 
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 
-import org.apache.commons.math3.distribution.NormalDistribution;
 import org.json.JSONObject;
 
 import com.gbic.domain.bicluster.Bicluster;
@@ -22,16 +20,33 @@ import com.gbic.domain.bicluster.NumericBicluster;
 import com.gbic.domain.bicluster.NumericBicluster;
 import com.gbic.domain.bicluster.Bicluster;
 import com.gbic.types.Background;
-import com.gbic.types.BackgroundType;
+import com.gbic.utils.BackgroundSampler;
+import com.gbic.utils.BitMatrix;
 import com.gbic.utils.IOUtils;
 import com.gbic.utils.RandomObject;
+import com.gbic.utils.SparseLines;
 
 public class NumericDataset<T extends Number> extends Dataset {
 
-	private Random r = RandomObject.getInstance();
+	//Marks missing elements on integer datasets (real datasets use NaN)
+	private static final int MISSING_INTEGER = Integer.MIN_VALUE;
+	
 	private Background background;
-	//The map that stores the elements
-	private Map<String, T> matrix;
+	//Built on first use from the background, the range and the background seed
+	private BackgroundSampler sampler;
+	//Row-major storage of the elements: real valued datasets use realMatrix, integer ones use integerMatrix.
+	//A row stores its elements sparsely until it holds as many as a dense row would take the memory of, and then
+	//moves them to its dense row. Background elements are generated on demand
+	private double[][] realMatrix;
+	private int[][] integerMatrix;
+	private SparseLines sparseRows;
+	//The positions that hold a stored value (planted, missing, noisy or error elements)
+	private BitMatrix storedItems;
+	//Biclusters planted as formulas, by row: their elements are evaluated on demand unless a value is stored over them
+	private PlantedFormula[][] formulasByRow;
+	//The rows whose elements are stored (all of them, unless only a range of rows is rendered)
+	private int fromRow;
+	private int toRow;
 	private T maxM;
 	private T minM;
 
@@ -49,12 +64,51 @@ public class NumericDataset<T extends Number> extends Dataset {
 	public NumericDataset(int numRows, int numCols, int numBics, Background background, T minM, T maxM) {
 
 		super(numRows, numCols, numBics);
+		init(background, minM, maxM);
+	}
+	
+	/**
+	 * Constructs a numeric dataset with a given seed, used to render a dataset from its generation plan
+	 * @param numRows The dataset's number of rows
+	 * @param numCols The dataset's number of columns
+	 * @param numBics The dataset's number of biclusters
+	 * @param background The dataset's background
+	 * @param minM The dataset's minimum alphabet value
+	 * @param maxM The dataset's maximum alphabet value
+	 * @param seed The dataset's seed
+	 */
+	NumericDataset(int numRows, int numCols, int numBics, Background background, T minM, T maxM, long seed) {
+
+		super(numRows, numCols, numBics, seed);
+		init(background, minM, maxM);
+	}
+	
+	private void init(Background background, T minM, T maxM) {
 		
 		this.background = background;
 		plantedBics = new ArrayList<>();
 		this.minM = minM;
 		this.maxM = maxM;
-		this.matrix = new HashMap<>();
+		
+		if(minM instanceof Integer)
+			this.integerMatrix = new int[getNumRows()][];
+		else
+			this.realMatrix = new double[getNumRows()][];
+		this.sparseRows = new SparseLines(getNumRows(), SparseLines.maxEntries(getNumCols(), (realMatrix != null) ? 8 : 4));
+		this.storedItems = new BitMatrix(getNumRows(), getNumCols());
+		this.fromRow = 0;
+		this.toRow = getNumRows();
+	}
+	
+	/**
+	 * Store only the elements of a range of rows, such as the rows rendered from a generation plan: values and
+	 * formulas set on the other rows are dropped, so those rows read as if nothing was stored on them
+	 * @param fromRow The first row (inclusive)
+	 * @param toRow The last row (exclusive)
+	 */
+	public void restrictRows(int fromRow, int toRow) {
+		this.fromRow = fromRow;
+		this.toRow = toRow;
 	}
 
 	/**
@@ -71,6 +125,7 @@ public class NumericDataset<T extends Number> extends Dataset {
 	 */
 	public void addBicluster(NumericBicluster<Double> bic) {
 		this.plantedBics.add(bic);
+		this.indexBicluster(bic);
 	}
 
 	/**
@@ -81,50 +136,180 @@ public class NumericDataset<T extends Number> extends Dataset {
 		return plantedBics;
 	}
 	
-	@Override
-	public Bicluster getBiclusterById(int id) {
-		
-		NumericBicluster<Double> t = null;
-		
-		for(int i = 0; i < this.plantedBics.size() && t == null; i++) {
-			if(this.plantedBics.get(i).getId() == id)
-				t = this.plantedBics.get(i);
+	/**
+	 * Plant a bicluster's values as a formula: its elements are not stored, but evaluated whenever they are read.
+	 * Values stored later on its elements (missing, noisy or error elements) take their place
+	 * @param formula The bicluster's formula
+	 */
+	public void plantFormula(PlantedFormula formula) {
+		if(formulasByRow == null)
+			formulasByRow = new PlantedFormula[getNumRows()][];
+		for(int row : formula.getRows()) {
+			if(row < fromRow || row >= toRow)
+				continue;
+			PlantedFormula[] formulas = formulasByRow[row];
+			if(formulas == null)
+				formulas = new PlantedFormula[1];
+			else
+				formulas = Arrays.copyOf(formulas, formulas.length + 1);
+			formulas[formulas.length - 1] = formula;
+			formulasByRow[row] = formulas;
 		}
-		
-		return t;
+	}
+	
+	//the value of an element given by a planted formula, or NaN if no formula holds the element
+	private double formulaValue(int row, int column) {
+		if(formulasByRow == null || formulasByRow[row] == null)
+			return Double.NaN;
+		for(PlantedFormula formula : formulasByRow[row]) {
+			double value = formula.valueAt(row, column);
+			if(!Double.isNaN(value))
+				return value;
+		}
+		return Double.NaN;
 	}
 	
 	/**
 	 * Set dataset's element value
-	 * @param context The context ID
 	 * @param row The row ID
 	 * @param column The column ID
 	 * @param newItem The element's value
 	 */
 	public void setMatrixItem(int row, int column, T newItem) {
-		this.matrix.put(row + ":" + column, newItem);
+		store(row, column, (realMatrix != null) ? newItem.doubleValue() : newItem.intValue());
+	}
+	
+	/**
+	 * Set dataset's element value without boxing it
+	 * @param row The row ID
+	 * @param column The column ID
+	 * @param value The element's value (truncated on integer datasets)
+	 */
+	public void setMatrixValue(int row, int column, double value) {
+		store(row, column, (realMatrix != null) ? value : (int) value);
+	}
+	
+	/**
+	 * Mark a dataset's element as missing
+	 * @param row The row ID
+	 * @param column The column ID
+	 */
+	public void setMissingItem(int row, int column) {
+		store(row, column, (realMatrix != null) ? Double.NaN : MISSING_INTEGER);
+	}
+	
+	//store a value (already truncated on integer datasets) in the row's dense storage, or else its sparse storage
+	private void store(int row, int column, double value) {
+		if(row < fromRow || row >= toRow)
+			return;
+		if(realMatrix != null) {
+			if(realMatrix[row] != null)
+				realMatrix[row][column] = value;
+			else if(!sparseRows.put(row, column, value))
+				denseRealRow(row)[column] = value;
+		}
+		else {
+			if(integerMatrix[row] != null)
+				integerMatrix[row][column] = (int) value;
+			else if(!sparseRows.put(row, column, value))
+				denseIntegerRow(row)[column] = (int) value;
+		}
+		storedItems.set(row, column);
+	}
+	
+	//move a row's sparse elements to a dense row
+	private double[] denseRealRow(int row) {
+		double[] dense = realMatrix[row] = new double[getNumCols()];
+		for(int i = 0; i < sparseRows.size(row); i++)
+			dense[sparseRows.position(row, i)] = sparseRows.value(row, i);
+		sparseRows.clear(row);
+		return dense;
+	}
+	
+	private int[] denseIntegerRow(int row) {
+		int[] dense = integerMatrix[row] = new int[getNumCols()];
+		for(int i = 0; i < sparseRows.size(row); i++)
+			dense[sparseRows.position(row, i)] = (int) sparseRows.value(row, i);
+		sparseRows.clear(row);
+		return dense;
+	}
+	
+	//the value of a stored element (NaN or MISSING_INTEGER if it is missing)
+	private double storedValue(int row, int column) {
+		if(realMatrix != null)
+			return (realMatrix[row] != null) ? realMatrix[row][column] : sparseRows.get(row, column, Double.NaN);
+		return (integerMatrix[row] != null) ? integerMatrix[row][column] : sparseRows.get(row, column, MISSING_INTEGER);
 	}
 	
 	/**
 	 * Get an element's value
-	 * @param context The contexte ID
 	 * @param row The row ID
 	 * @param column The columns ID
-	 * @return The element's value
+	 * @return The element's value, or null if the element is not stored or is missing
 	 */
 	public T getMatrixItem(int row, int column) {
-		return this.matrix.get(row + ":" + column);
+		
+		if(!storedItems.get(row, column)) {
+			double value = formulaValue(row, column);
+			if(Double.isNaN(value))
+				return null;
+			return (realMatrix != null) ? (T) Double.valueOf(value) : (T) Integer.valueOf((int) value);
+		}
+		
+		if(isMissingItem(row, column))
+			return null;
+		
+		if(realMatrix != null)
+			return (T) Double.valueOf(storedValue(row, column));
+		else
+			return (T) Integer.valueOf((int) storedValue(row, column));
+	}
+	
+	/**
+	 * Get an element's value without boxing it
+	 * @param row The row ID
+	 * @param column The columns ID
+	 * @return The element's value (only meaningful if the element exists and is not missing)
+	 */
+	public double getMatrixValue(int row, int column) {
+		if(!storedItems.get(row, column))
+			return formulaValue(row, column);
+		return storedValue(row, column);
 	}
 
 	/**
 	 * Check if a dataset's value already exists
-	  * @param context The contexte ID
 	 * @param row The row ID
 	 * @param column The columns ID
 	 * @return True if the elements exists, False otherwise
 	 */
 	public boolean existsMatrixItem(int row, int column) {
-		return this.matrix.containsKey(row + ":" + column);
+		return storedItems.get(row, column) || !Double.isNaN(formulaValue(row, column));
+	}
+	
+	/**
+	 * Check if a dataset's element was stored as missing
+	 * @param row The row ID
+	 * @param column The columns ID
+	 * @return True if the element is missing, False otherwise
+	 */
+	public boolean isMissingItem(int row, int column) {
+		
+		if(!storedItems.get(row, column))
+			return false;
+		
+		if(realMatrix != null)
+			return Double.isNaN(storedValue(row, column));
+		else
+			return storedValue(row, column) == MISSING_INTEGER;
+	}
+	
+	/**
+	 * Check if the dataset stores real values
+	 * @return True if the dataset is real valued, False if it is integer valued
+	 */
+	public boolean isRealValued() {
+		return realMatrix != null;
 	}
 	
 	/**
@@ -144,69 +329,51 @@ public class NumericDataset<T extends Number> extends Dataset {
 	}
 
 	/**
-	 * Generated a value for the background
-	 * @return a random generated value
+	 * Generate the background value of an element. The value is a pure function of the background seed
+	 * and the element's position, so it is the same whenever (and by whichever thread) it is generated
+	 * @param row The row ID
+	 * @param column The column ID
+	 * @return the element's background value, or null if the background is missing
 	 */
-	public T generateBackgroundValue() {
-		
-		T element = null;
+	public T generateBackgroundValue(int row, int column) {
 		
-		if(getBackground().getType().equals(BackgroundType.UNIFORM))
-			element = generateBackgroundValue(null);
-		else if (getBackground().getType().equals(BackgroundType.DISCRETE))
-			element = generateBackgroundValue(getBackground().getParam3());
-		else if (getBackground().getType().equals(BackgroundType.NORMAL))
-			element = generateBackgroundValue(getBackground().getParam1(), getBackground().getParam2());
-		else
-			element = (T) new Integer(Integer.MIN_VALUE);
+		double value = backgroundSampler().value(row, column);
 		
-		return element;
+		if(Double.isNaN(value))
+			return null;
+		if(minM instanceof Integer)
+			return (T) Integer.valueOf((int) value);
+		return (T) Double.valueOf(value);
 	}
 	
-	private T generateBackgroundValue(double[] probs) {
-		
-		T backgroundValue = null;
-		
-		if(probs == null) {
-			if (minM instanceof Integer) 
-				backgroundValue = (T) new Integer(r.nextInt((maxM.intValue() - minM.intValue()) + 1) + minM.intValue());
-			else 
-				backgroundValue = (T) new Double(r.nextDouble() * (maxM.doubleValue() - minM.doubleValue()) + minM.doubleValue());
-		}
-		else {
-			
-			double p = r.nextDouble();
-			double sum = 0.0;
-			Integer i = 0;
-			while(sum < p){
-				sum += probs[i];
-				i++;
-			}
-			backgroundValue = (T) i;
-		}
-		
-		return backgroundValue;
+	/**
+	 * Generate the background values of a row segment
+	 * @param row The row ID
+	 * @param fromCol The first column (inclusive)
+	 * @param toCol The last column (exclusive)
+	 * @param out The buffer for the values, indexed from 0 (NaN marks a missing background)
+	 */
+	public void generateBackgroundRow(int row, int fromCol, int toCol, double[] out) {
+		backgroundSampler().fill(row, fromCol, toCol, out);
 	}
 	
-	private T generateBackgroundValue(double mean, double sd) {
-		
-		T backgroundValue = null;
-		
-		NormalDistribution n = new NormalDistribution(mean, sd);
-
-		Double vals = n.sample(1)[0];
-		
-		if (Double.compare(vals, minM.doubleValue()) < 0)
-			vals = minM.doubleValue();
-		else if (Double.compare(vals, maxM.doubleValue()) > 0)
-			vals = maxM.doubleValue();
-		
-		if (minM instanceof Integer)
-			backgroundValue = (T) new Integer(vals.intValue());
-		else
-			backgroundValue = (T) vals;	
-		
-		return backgroundValue;
+	/**
+	 * Get the values of a row, as the dataset writers read them
+	 * @param row The row ID
+	 * @param out The buffer for the values, indexed by column ID (NaN marks a missing element)
+	 */
+	public void getRowValues(int row, double[] out) {
+		generateBackgroundRow(row, 0, getNumCols(), out);
+		for(int col = 0; col < getNumCols(); col++)
+			if(existsMatrixItem(row, col))
+				out[col] = isMissingItem(row, col) ? Double.NaN : getMatrixValue(row, col);
+	}
+	
+	private BackgroundSampler backgroundSampler() {
+		if(sampler == null)
+			sampler = BackgroundSampler.numeric(background, getBackgroundSeed(), getNumCols(), minM.doubleValue(),
+					maxM.doubleValue(), minM instanceof Integer);
+		return sampler;
 	}
 	
 	/**
@@ -215,16 +382,7 @@ public class NumericDataset<T extends Number> extends Dataset {
 	 * @return the Bicluster with the specified ID
 	 */
 	public NumericBicluster<? extends Number> getBicluster(int id) {
-
-		NumericBicluster<?> res = null;
-
-		for(int i = 0; i < this.plantedBics.size() && res == null; i++) {
-			NumericBicluster<?> t = this.plantedBics.get(i);
-			if(t.getId() == id) 
-				res = t;
-		}
-
-		return res;
+		return (NumericBicluster<? extends Number>) this.getBiclusterById(id);
 	}
 	
 	@Override
@@ -237,7 +395,7 @@ public class NumericDataset<T extends Number> extends Dataset {
 		
 		for(NumericBicluster<? extends Number> bic : plantedBics) {
 			res.append(bic.toString() + "\r\n\n");
-			res.append(IOUtils.printNumericBicluster(this.matrix, bic.getRows(), bic.getColumns()) + "\n");
+			res.append(IOUtils.printNumericBicluster(this, bic.getRowArray(), bic.getColumnArray()) + "\n");
 			/*
 			for(Integer context : tric.getContexts()) {
 				res.append("Context: " + context + "\n");
@@ -270,54 +428,40 @@ public class NumericDataset<T extends Number> extends Dataset {
 
 	@Override
 	public void plantMissingElements(double percBackground, double percBicluster) {
+		plantMissingElements(percBackground, percBicluster, RandomObject.getStream(getSeed(), RandomObject.MISSINGS));
+	}
+
+	/**
+	 * Plant missing elements on the dataset, drawing them from a given stream
+	 * @param percBackground The percentage of missing elements in the background (elements that do not belong to any Bicluster)
+	 * @param percBicluster The maximum percentage of missing elements in the biclusters
+	 * @param rand The random stream
+	 */
+	public void plantMissingElements(double percBackground, double percBicluster, Random rand) {
 
 		int nrMissingsBackground = (int) (this.getBackgroundSize() * percBackground);
-		Random rand = RandomObject.getInstance();
 
 		int row = -1;
 		int col = -1;
 
-		for (int k = 0; k < nrMissingsBackground; k++) {
-			String e;
-			do {
-				row = rand.nextInt(getNumRows());
-				col = rand.nextInt(getNumCols());
-				e = row + ":" + col;
-			} while (this.isMissing(e) || this.isPlanted(e));
-
-			this.addMissingElement(e);
-		}
+		this.markBackgroundElements(nrMissingsBackground, "Missings", rand);
+		
 		if(Double.compare(percBicluster, 0.0) > 0) {
 			for(NumericBicluster<? extends Number> t : this.plantedBics) {
 	
 				double random = rand.nextDouble();
 				int nrMissingsBic = (int) (t.getSize() * percBicluster * random);
 	
-				List<String> elems = this.getBiclusterElements(t.getId());
-				String e;
-				for(int k = t.getNumberOfMissings(); k < nrMissingsBic; k++) {
-					do {
-						e = elems.get(rand.nextInt(elems.size()));
-					} while (this.isMissing(e) || !respectsOverlapConstraint(e, "Missings", percBicluster));
-	
-					this.addMissingElement(e);
-					
-					for(Integer i : this.getBicsByElem(e))
-						this.getBicluster(i).addMissing();
-				}
+				this.markBiclusterElements(t, nrMissingsBic, "Missings", percBicluster, rand);
 			}
 		}
 		
-		for(String e : this.getMissingElements()) {
+		for(long e : this.getMissingElements()) {
 			
-			String[] coord = e.split(":");
-			row = Integer.parseInt(coord[0]);
-			col = Integer.parseInt(coord[1]);
+			row = getElementRow(e);
+			col = getElementCol(e);
 	
-			if(this.maxM instanceof Double)
-				setMatrixItem(row, col, (T) new Double(Integer.MIN_VALUE));
-			else
-				setMatrixItem(row, col, (T) new Integer(Integer.MIN_VALUE));
+			setMissingItem(row, col);
 		}
 		
 	}
@@ -329,81 +473,64 @@ public class NumericDataset<T extends Number> extends Dataset {
 	 * @param maxDeviation The noise deviation value
 	 */
 	public void plantNoisyElements(double percBackground, double percBicluster, double maxDeviation) {
+		plantNoisyElements(percBackground, percBicluster, maxDeviation, RandomObject.getStream(getSeed(), RandomObject.NOISE));
+	}
+
+	/**
+	 * Plant noisy elements on the dataset, drawing them from a given stream. The number of draws does not depend on
+	 * the elements' values, so the elements of a range of rows are the same whatever the values outside of it
+	 * @param percBackground The percentage of noisy elements in the background (elements that do not belong to any Bicluster)
+	 * @param percBicluster The maximum percentage of noisy elements in the biclusters
+	 * @param maxDeviation The noise deviation value
+	 * @param rand The random stream
+	 */
+	public void plantNoisyElements(double percBackground, double percBicluster, double maxDeviation, Random rand) {
 
 		int nrNoiseBackground = (int) (this.getBackgroundSize() * percBackground);
-		Random rand = RandomObject.getInstance();
 		
 		int row = -1;
 		int col = -1;
 
-		for (int k = 0; k < nrNoiseBackground; k++) {
-
-			boolean stop = false;
-			String e;
-
-			do {
-				row = rand.nextInt(getNumRows());
-				col = rand.nextInt(getNumCols());
-				e = row + ":" + col;
-				if(!this.isNoisy(e) && !this.isPlanted(e) && !this.isMissing(e))
-					stop = true;
-
-			} while (!stop);
-
-			this.addNoisyElement(e);
-		}
+		this.markBackgroundElements(nrNoiseBackground, "Noisy", rand);
 
 		if(Double.compare(percBicluster, 0.0) > 0) {
 			for(NumericBicluster<? extends Number> t : this.plantedBics) {
 	
 				double random = rand.nextDouble();
 				int nrNoisyBic = (int) (t.getSize() * percBicluster * random);
-	
-				/*
-				System.out.println("Tric size: " + t.getSize());
-				System.out.println("Tric max perc: " + percTricluster);
-				System.out.println("Tric random: " + random);
-				System.out.println("Tric " + t.getId() + " - Number of noise: " + nrNoisyTric + "(" + ratio + ")\n");
-				*/
 				
-				List<String> elems = this.getBiclusterElements(t.getId());
-				String e;
-				for(int k = t.getNumberOfNoisy(); k < nrNoisyBic; k++) {
-					do {
-						e = elems.get(rand.nextInt(elems.size()));
-					} while (this.isMissing(e) || this.isNoisy(e) || !respectsOverlapConstraint(e, "Noisy", percBicluster));
-	
-					this.addNoisyElement(e);
-					
-					for(Integer i : this.getBicsByElem(e))
-						this.getBicluster(i).addNoisy();
-	
-				}
+				this.markBiclusterElements(t, nrNoisyBic, "Noisy", percBicluster, rand);
 			}
 		}
 		
-		for(String e : this.getNoisyElements()) {
+		for(long e : this.getNoisyElements()) {
 			
-			String[] coord = e.split(":");
-
-			row = Integer.parseInt(coord[0]);
-			col = Integer.parseInt(coord[1]);
+			row = getElementRow(e);
+			col = getElementCol(e);
 
 			T symbolIndex = null;
 			
 			if(this.existsMatrixItem(row, col))
 				symbolIndex = this.getMatrixItem(row, col);
-			else {
-				symbolIndex = this.generateBackgroundValue();
-				this.setMatrixItem(row, col, symbolIndex);
-			}
-
+			else
+				symbolIndex = this.generateBackgroundValue(row, col);
+			
 			double deviation;
 			T newElem;
 			
-			if(this.maxM instanceof Double) {
+			if(this.maxM instanceof Double)
 				deviation = rand.nextDouble() * maxDeviation;
-				deviation = rand.nextBoolean() ? deviation : -deviation;
+			else
+				deviation = 1.0 + rand.nextInt((int)maxDeviation);
+			deviation = rand.nextBoolean() ? deviation : -deviation;
+			
+			//A missing background has no value to deviate from (its deviation is drawn all the same)
+			if(symbolIndex == null) {
+				setMatrixItem(row, col, minM);
+				continue;
+			}
+			
+			if(this.maxM instanceof Double) {
 				double newItem = symbolIndex.doubleValue() + deviation;
 				
 				if(Double.compare(newItem, minM.doubleValue()) < 0)
@@ -414,8 +541,6 @@ public class NumericDataset<T extends Number> extends Dataset {
 					newElem = (T) new Double(newItem);
 				}
 			else {
-				deviation = 1.0 + rand.nextInt((int)maxDeviation);
-				deviation = rand.nextBoolean() ? deviation : -deviation;
 				//System.out.println(symbolIndex);
 				int newItem = symbolIndex.intValue() + (int)deviation;
 				
@@ -439,29 +564,27 @@ public class NumericDataset<T extends Number> extends Dataset {
 	 * @param minDeviation The noise deviation value
 	 */
 	public void plantErrors(double percBackground, double percBicluster, double minDeviation) {
+		plantErrors(percBackground, percBicluster, minDeviation, RandomObject.getStream(getSeed(), RandomObject.ERRORS));
+	}
+
+	/**
+	 * Plant error elements on the dataset, drawing them from a given stream
+	 * @param percBackground The percentage of error elements in the background (elements that do not belong to any Bicluster)
+	 * @param percBicluster The maximum percentage of error elements in the biclusters
+	 * @param minDeviation The noise deviation value
+	 * @param rand The random stream
+	 */
+	public void plantErrors(double percBackground, double percBicluster, double minDeviation, Random rand) {
 
 		int nrErrorsBackground = (int) (this.getBackgroundSize() * percBackground);
-		Random rand = RandomObject.getInstance();
 
 		int row = -1;
 		int col = -1;
 
-		for (int k = 0; k < nrErrorsBackground; k++) {
-
-			boolean stop = false;
-			String e;
-
-			do {
-				row = rand.nextInt(getNumRows());
-				col = rand.nextInt(getNumCols());
-				e = row + ":" + col;
-
-				if(!this.isError(e) && !this.isPlanted(e) && !this.isMissing(e) && !this.isNoisy(e))
-					stop = true;
-
-			} while (!stop);
+		for (long e : this.markBackgroundElements(nrErrorsBackground, "Errors", rand)) {
 
-			this.addErrorElement(e);
+			row = getElementRow(e);
+			col = getElementCol(e);
 
 			T newElem = (rand.nextBoolean()) ? maxM : minM;
 
@@ -474,40 +597,19 @@ public class NumericDataset<T extends Number> extends Dataset {
 				int nrErrorsBic = (int) (t.getSize() * percBicluster * rand.nextDouble());
 				//System.out.println("Tric " + t.getId() + " - Number of errors: " + nrErrorsTric + "(" + ratio + ")\n");
 	
-				List<String> elems = this.getBiclusterElements(t.getId());
-				String e;
-				for(int k = t.getNumberOfErrors(); k < nrErrorsBic; k++) {
-					do {
-						e = elems.get(rand.nextInt(elems.size()));
-					} while (this.isMissing(e) || this.isNoisy(e) || this.isError(e) || !respectsOverlapConstraint(e, "Errors", percBicluster));
+				for(long e : this.markBiclusterElements(t, nrErrorsBic, "Errors", percBicluster, rand)) {
 	
-					this.addErrorElement(e);
-					
-					for(Integer i : this.getBicsByElem(e))
-						this.getBicluster(i).addError();
-	
-					String[] coord = e.split(":");
-	
-					row = Integer.parseInt(coord[0]);
-					col = Integer.parseInt(coord[1]);
+					row = getElementRow(e);
+					col = getElementCol(e);
 	
-					double currentElement = 0;
-					
-					if(this.existsMatrixItem(row, col))
-						currentElement = this.getMatrixItem(row, col).doubleValue();
-					else {
-						currentElement = this.generateBackgroundValue().doubleValue();
-						this.setMatrixItem(row, col, (T) new Double(currentElement));
-					}
+					double currentElement = this.getMatrixValue(row, col);
 					
 					double candidate = 0;
 					T newElem;
 					
 					if(this.maxM instanceof Double) {
 						
-						do {
-							candidate = minM.doubleValue() + (maxM.doubleValue() - minM.doubleValue()) *  rand.nextDouble();
-						}while(Math.abs(currentElement - candidate) <= minDeviation);
+						candidate = drawDeviatingValue(currentElement, minDeviation, minM.doubleValue(), maxM.doubleValue(), rand);
 						
 						if(Double.compare(candidate, minM.doubleValue()) < 0)
 							newElem = (T) new Double(minM.doubleValue());
@@ -518,9 +620,7 @@ public class NumericDataset<T extends Number> extends Dataset {
 						}
 					else {
 						
-						do {
-							candidate = minM.doubleValue() + (maxM.doubleValue() - minM.doubleValue()) *  rand.nextDouble();
-						}while(Math.abs(currentElement - candidate) <= minDeviation);
+						candidate = drawDeviatingValue(currentElement, minDeviation, minM.doubleValue(), maxM.doubleValue(), rand);
 						
 						candidate = Math.round(candidate);
 						
@@ -540,27 +640,4 @@ public class NumericDataset<T extends Number> extends Dataset {
 
 	}
 
-	private boolean respectsOverlapConstraint(String elem, String type, double percBicluster) {
-
-		boolean respects = true;
-
-		List<Integer> bics = this.getBicsByElem(elem);
-
-		for(int i = 0; i < bics.size() && respects; i++) {
-			NumericBicluster<? extends Number> t = this.getBicluster(bics.get(i));
-			int maxAllowed = (int) (t.getSize() * percBicluster);
-			
-			if(type.equals("Missings") && t.getNumberOfMissings() + 1 > maxAllowed)
-				respects = false;
-			
-			if(type.equals("Noisy") && t.getNumberOfNoisy() + 1 > maxAllowed)
-				respects = false;
-			
-			if(type.equals("Errors") && t.getNumberOfErrors() + 1 > maxAllowed)
-				respects = false;
-		}
-
-		return respects;
-	}
-
 }
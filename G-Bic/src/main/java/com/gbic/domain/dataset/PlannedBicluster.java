@@ -0,0 +1,244 @@
+/**
+ * PlannedBicluster Class
+ *
+ * A bicluster of a generation plan: where it was placed, its patterns and plaid coherency, the limits its values
+ * were drawn within and what its values are rendered from. Additive and multiplicative biclusters keep their seed
+ * and factors; the others keep the keys of the random stream their values are drawn from, so rendering draws
+ * them again. Either way the bicluster takes space proportional to its rows plus columns.
+ */
+package com.gbic.domain.dataset;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.gbic.domain.bicluster.NumericBicluster;
+import com.gbic.domain.dataset.PlantedFormula.Operation;
+import com.gbic.types.PatternType;
+import com.gbic.types.PlaidCoherency;
+import com.gbic.types.TimeProfile;
+
+public class PlannedBicluster {
+
+	private final int id;
+	private final int[] rows;
+	private final int[] cols;
+	private final PatternType rowPattern;
+	private final PatternType columnPattern;
+	private final TimeProfile timeProfile;
+	private final PlaidCoherency plaidPattern;
+	private final double minAllowed;
+	private final double maxAllowed;
+	//Seed and factors of additive and multiplicative biclusters (null for the others)
+	private final Double seed;
+	private final double[] rowFactors;
+	private final double[] columnFactors;
+	//Keys of the stream the values of the other biclusters are drawn from (null for additive and multiplicative ones)
+	private final long[] stream;
+
+	/**
+	 * Constructs a planned bicluster
+	 * @param id The bicluster ID
+	 * @param rows The bicluster's rows, sorted in ascending order
+	 * @param cols The bicluster's columns, sorted in ascending order
+	 * @param rowPattern The row pattern
+	 * @param columnPattern The column pattern
+	 * @param timeProfile The time profile of order preserving columns, or null
+	 * @param plaidPattern The plaid coherency
+	 * @param minAllowed The smallest value the bicluster's values were drawn with
+	 * @param maxAllowed The largest value the bicluster's values were drawn with
+	 * @param seed The seed of additive and multiplicative biclusters, or null
+	 * @param rowFactors The row factors of additive and multiplicative biclusters, or null
+	 * @param columnFactors The column factors of additive and multiplicative biclusters, or null
+	 * @param stream The keys of the stream the values of the other biclusters are drawn from, or null
+	 */
+	public PlannedBicluster(int id, int[] rows, int[] cols, PatternType rowPattern, PatternType columnPattern,
+			TimeProfile timeProfile, PlaidCoherency plaidPattern, double minAllowed, double maxAllowed, Double seed,
+			double[] rowFactors, double[] columnFactors, long[] stream) {
+		this.id = id;
+		this.rows = rows;
+		this.cols = cols;
+		this.rowPattern = rowPattern;
+		this.columnPattern = columnPattern;
+		this.timeProfile = timeProfile;
+		this.plaidPattern = plaidPattern;
+		this.minAllowed = minAllowed;
+		this.maxAllowed = maxAllowed;
+		this.seed = seed;
+		this.rowFactors = rowFactors;
+		this.columnFactors = columnFactors;
+		this.stream = stream;
+	}
+
+	/**
+	 * Plan a bicluster whose factors, if it has any, were already drawn
+	 * @param bic The bicluster
+	 * @param minAllowed The smallest value the bicluster's values were drawn with
+	 * @param maxAllowed The largest value the bicluster's values were drawn with
+	 * @param stream The keys of the stream its values are drawn from (kept only if the bicluster has no factors)
+	 * @return The planned bicluster
+	 */
+	public static PlannedBicluster of(NumericBicluster<Double> bic, double minAllowed, double maxAllowed, long[] stream) {
+		boolean factors = hasFactors(bic.getRowPattern(), bic.getColumnPattern());
+		return new PlannedBicluster(bic.getId(), bic.getRowArray(), bic.getColumnArray(), bic.getRowPattern(),
+				bic.getColumnPattern(), bic.getTimeProfile(), bic.getPlaidCoherency(), minAllowed, maxAllowed,
+				factors ? bic.getNumericSeed() : null, factors ? bic.getRowFactors() : null,
+				factors ? bic.getColumnFactors() : null, factors ? null : stream);
+	}
+
+	/**
+	 * Check if the biclusters of some patterns are kept by their seed and factors
+	 * @param rowPattern The row pattern
+	 * @param columnPattern The column pattern
+	 * @return True for additive and multiplicative biclusters, False otherwise
+	 */
+	public static boolean hasFactors(PatternType rowPattern, PatternType columnPattern) {
+		return rowPattern.equals(PatternType.ADDITIVE) || columnPattern.equals(PatternType.ADDITIVE)
+				|| rowPattern.equals(PatternType.MULTIPLICATIVE) || columnPattern.equals(PatternType.MULTIPLICATIVE);
+	}
+
+	/**
+	 * Build the bicluster, with its seed and factors (the counts of missing, noisy and error elements start at 0)
+	 * @return The bicluster
+	 */
+	public NumericBicluster<Double> toBicluster() {
+		double[] rowFactors = (this.rowFactors != null) ? this.rowFactors : new double[rows.length];
+		double[] columnFactors = (this.columnFactors != null) ? this.columnFactors : new double[cols.length];
+		NumericBicluster<Double> bic;
+		if(timeProfile != null)
+			bic = new NumericBicluster<>(id, rows, cols, rowPattern, columnPattern, rowFactors, columnFactors,
+					plaidPattern, timeProfile);
+		else
+			bic = new NumericBicluster<>(id, rows, cols, rowPattern, columnPattern, rowFactors, columnFactors,
+					plaidPattern);
+		bic.setSeed(seed);
+		return bic;
+	}
+
+	/**
+	 * Get the formula of an additive or multiplicative bicluster, which gives its values from its seed and factors
+	 * @param integer Whether the dataset is integer valued
+	 * @return The formula, or null if the bicluster has no factors
+	 */
+	public PlantedFormula getFactorFormula(boolean integer) {
+		if(seed == null)
+			return null;
+		double[] rowTerms = new double[rows.length];
+		if(rowPattern.equals(PatternType.ADDITIVE) || columnPattern.equals(PatternType.ADDITIVE)) {
+			for(int r = 0; r < rows.length; r++)
+				rowTerms[r] = seed + rowFactors[r];
+			return new PlantedFormula(rows, cols, Operation.SUM, rowTerms, columnFactors, minAllowed, maxAllowed, integer);
+		}
+		for(int r = 0; r < rows.length; r++)
+			rowTerms[r] = seed * rowFactors[r];
+		return new PlantedFormula(rows, cols, Operation.PRODUCT, rowTerms, columnFactors, minAllowed, maxAllowed, integer);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public int[] getRows() {
+		return rows;
+	}
+
+	public int[] getColumns() {
+		return cols;
+	}
+
+	public PatternType getRowPattern() {
+		return rowPattern;
+	}
+
+	public PatternType getColumnPattern() {
+		return columnPattern;
+	}
+
+	public TimeProfile getTimeProfile() {
+		return timeProfile;
+	}
+
+	public PlaidCoherency getPlaidCoherency() {
+		return plaidPattern;
+	}
+
+	public double getMinAllowed() {
+		return minAllowed;
+	}
+
+	public double getMaxAllowed() {
+		return maxAllowed;
+	}
+
+	/**
+	 * Get the keys of the stream the bicluster's values are drawn from
+	 * @return The keys, or null if the bicluster is rendered from its factors
+	 */
+	public long[] getStream() {
+		return stream;
+	}
+
+	/**
+	 * Get the bicluster as a JSON object
+	 * @return The JSON object, read back by fromJSON
+	 */
+	public JSONObject toJSON() {
+		JSONObject bic = new JSONObject();
+		bic.put("id", id);
+		bic.put("rows", new JSONArray(rows));
+		bic.put("columns", new JSONArray(cols));
+		bic.put("rowPattern", rowPattern.name());
+		bic.put("columnPattern", columnPattern.name());
+		if(timeProfile != null)
+			bic.put("timeProfile", timeProfile.name());
+		bic.put("plaid", plaidPattern.name());
+		bic.put("minAllowed", minAllowed);
+		bic.put("maxAllowed", maxAllowed);
+		if(seed != null) {
+			bic.put("seed", seed.doubleValue());
+			bic.put("rowFactors", new JSONArray(rowFactors));
+			bic.put("columnFactors", new JSONArray(columnFactors));
+		}
+		else
+			bic.put("stream", new JSONArray(stream));
+		return bic;
+	}
+
+	/**
+	 * Read a planned bicluster from a JSON object
+	 * @param bic The JSON object, as written by toJSON
+	 * @return The planned bicluster
+	 */
+	public static PlannedBicluster fromJSON(JSONObject bic) {
+		boolean factors = bic.has("seed");
+		return new PlannedBicluster(bic.getInt("id"), toIntArray(bic.getJSONArray("rows")),
+				toIntArray(bic.getJSONArray("columns")), PatternType.valueOf(bic.getString("rowPattern")),
+				PatternType.valueOf(bic.getString("columnPattern")),
+				bic.has("timeProfile") ? TimeProfile.valueOf(bic.getString("timeProfile")) : null,
+				PlaidCoherency.valueOf(bic.getString("plaid")), bic.getDouble("minAllowed"), bic.getDouble("maxAllowed"),
+				factors ? bic.getDouble("seed") : null,
+				factors ? toDoubleArray(bic.getJSONArray("rowFactors")) : null,
+				factors ? toDoubleArray(bic.getJSONArray("columnFactors")) : null,
+				factors ? null : toLongArray(bic.getJSONArray("stream")));
+	}
+
+	static int[] toIntArray(JSONArray array) {
+		int[] result = new int[array.length()];
+		for(int i = 0; i < result.length; i++)
+			result[i] = array.getInt(i);
+		return result;
+	}
+
+	static double[] toDoubleArray(JSONArray array) {
+		double[] result = new double[array.length()];
+		for(int i = 0; i < result.length; i++)
+			result[i] = array.getDouble(i);
+		return result;
+	}
+
+	static long[] toLongArray(JSONArray array) {
+		long[] result = new long[array.length()];
+		for(int i = 0; i < result.length; i++)
+			result[i] = array.getLong(i);
+		return result;
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * PlantedFormula Class
+ *
+ * The values of a planted bicluster kept as a formula instead of one stored value per element: each element
+ * combines a term of its row with a term of its column, the way the additive, multiplicative and constant
+ * patterns build them. A formula takes memory proportional to the bicluster's rows plus columns, and its
+ * values are evaluated whenever the dataset reads them.
+ */
+package com.gbic.domain.dataset;
+
+import java.util.Arrays;
+
+public class PlantedFormula {
+
+	/**
+	 * How an element's row and column terms are combined
+	 */
+	public enum Operation {
+		//row term + column term
+		SUM,
+		//row term * column term, pulled back to the limits when it misses them by up to 0.2
+		PRODUCT,
+		//row term only
+		ROW,
+		//column term only
+		COLUMN
+	}
+
+	private final int[] rows;
+	private final int[] cols;
+	private final Operation operation;
+	private final double[] rowTerms;
+	private final double[] colTerms;
+	private final double min;
+	private final double max;
+	private final boolean integer;
+
+	/**
+	 * Constructs a formula
+	 * @param rows The bicluster's rows, sorted in ascending order
+	 * @param cols The bicluster's columns, sorted in ascending order
+	 * @param operation How the terms are combined
+	 * @param rowTerms The term of each row (ignored by COLUMN)
+	 * @param colTerms The term of each column (ignored by ROW)
+	 * @param min The smallest value allowed in the bicluster (used by PRODUCT)
+	 * @param max The largest value allowed in the bicluster (used by PRODUCT)
+	 * @param integer Whether the values are truncated to integers, as integer datasets store them
+	 */
+	public PlantedFormula(int[] rows, int[] cols, Operation operation, double[] rowTerms, double[] colTerms, double min,
+			double max, boolean integer) {
+		this.rows = rows;
+		this.cols = cols;
+		this.operation = operation;
+		this.rowTerms = rowTerms;
+		this.colTerms = colTerms;
+		this.min = min;
+		this.max = max;
+		this.integer = integer;
+	}
+
+	/**
+	 * Get the value of an element
+	 * @param row The row ID
+	 * @param col The column ID
+	 * @return The element's value, or NaN if the element does not belong to the bicluster
+	 */
+	public double valueAt(int row, int col) {
+		int r = Arrays.binarySearch(rows, row);
+		if(r < 0)
+			return Double.NaN;
+		int c = Arrays.binarySearch(cols, col);
+		if(c < 0)
+			return Double.NaN;
+		return value(r, c);
+	}
+
+	/**
+	 * Get the values of the bicluster's elements
+	 * @return The values, in row-major order
+	 */
+	public double[] values() {
+		double[] values = new double[rows.length * cols.length];
+		for(int r = 0; r < rows.length; r++) {
+			int offset = r * cols.length;
+			for(int c = 0; c < cols.length; c++)
+				values[offset + c] = value(r, c);
+		}
+		return values;
+	}
+
+	/**
+	 * Check if the formula gives the values of a bicluster, as they would be stored
+	 * @param bicsymbols The bicluster's values, in row-major order
+	 * @return True if every element's value matches, False otherwise
+	 */
+	public boolean matches(double[] bicsymbols) {
+		for(int r = 0; r < rows.length; r++) {
+			int offset = r * cols.length;
+			for(int c = 0; c < cols.length; c++) {
+				double stored = integer ? (int) bicsymbols[offset + c] : bicsymbols[offset + c];
+				if(Double.compare(value(r, c), stored) != 0)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the bicluster's rows
+	 * @return The rows, sorted in ascending order
+	 */
+	public int[] getRows() {
+		return rows;
+	}
+
+	private double value(int r, int c) {
+		double value;
+		switch(operation) {
+			case SUM:
+				value = rowTerms[r] + colTerms[c];
+				break;
+			case PRODUCT:
+				value = rowTerms[r] * colTerms[c];
+				if(value < min && min - value <= 0.2)
+					value = min;
+				if(value > max && value - max <= 0.2)
+					value = max;
+				break;
+			case ROW:
+				value = rowTerms[r];
+				break;
+			default:
+				value = colTerms[c];
+				break;
+		}
+		return integer ? (int) value : value;
+	}
+}
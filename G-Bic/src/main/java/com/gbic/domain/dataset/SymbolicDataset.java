@@ -13,24 +13,37 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
-import org.apache.commons.math3.distribution.NormalDistribution;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import com.gbic.domain.bicluster.SymbolicBicluster;
 import com.gbic.domain.bicluster.Bicluster;
 import com.gbic.types.Background;
-import com.gbic.types.BackgroundType;
+import com.gbic.utils.BackgroundSampler;
 import com.gbic.utils.IOUtils;
 import com.gbic.utils.RandomObject;
+import com.gbic.utils.SparseLines;
 
 public class SymbolicDataset extends Dataset {
 
-	private Random r = RandomObject.getInstance();
+	//Element codes: 0 is an element that was never stored, 1 a missing element, and index + 2 an alphabet symbol
+	private static final int EMPTY_CODE = 0;
+	private static final int MISSING_CODE = 1;
+	private static final int MAX_BYTE_ALPHABET = 254;
+	private static final int MAX_SHORT_ALPHABET = 65534;
+
 	private Background background;
+	//Built on first use from the background, the alphabet and the background seed
+	private BackgroundSampler sampler;
 	private String[] alphabet;
-	//The map that stores the elements
-	private Map<String, String> matrix;
+	//Lookup table from each symbol to its index in the alphabet
+	private Map<String, Integer> symbolIndexes;
+	//Row-major storage of the elements' codes: byteMatrix for alphabets up to MAX_BYTE_ALPHABET symbols, shortMatrix otherwise.
+	//A row stores its codes sparsely until it holds as many as a dense row would take the memory of, and then moves
+	//them to its dense row. Background elements are generated on demand
+	private byte[][] byteMatrix;
+	private short[][] shortMatrix;
+	private SparseLines sparseRows;
 	private boolean symmetries;
 
 	private List<SymbolicBicluster> plantedBics;
@@ -61,7 +74,7 @@ public class SymbolicDataset extends Dataset {
 			for (int i = alphabetL / 2; i < alphabetL; i++)
 				alphabet[i] = Integer.toString(Integer.parseInt(alphabet[i]) + 1);
 
-		this.matrix = new HashMap<>();
+		initStorage();
 	}
 
 	/**
@@ -83,7 +96,29 @@ public class SymbolicDataset extends Dataset {
 		this.symmetries = symmetries;
 		this.alphabet = alphabet;
 
-		this.matrix = new HashMap<>();
+		initStorage();
+	}
+	
+	/**
+	 * Builds the symbol lookup table and allocates the element codes with the narrowest type that fits the alphabet
+	 */
+	private void initStorage() {
+		
+		if(alphabet.length > MAX_SHORT_ALPHABET)
+			throw new IllegalArgumentException("Alphabets with more than " + MAX_SHORT_ALPHABET + " symbols are not supported");
+		
+		this.symbolIndexes = new HashMap<>();
+		for(int i = 0; i < alphabet.length; i++)
+			this.symbolIndexes.putIfAbsent(alphabet[i], i);
+		
+		this.byteMatrix = null;
+		this.shortMatrix = null;
+		if(alphabet.length <= MAX_BYTE_ALPHABET)
+			this.byteMatrix = new byte[getNumRows()][];
+		else
+			this.shortMatrix = new short[getNumRows()][];
+		this.sparseRows = new SparseLines(getNumRows(), SparseLines.maxEntries(getNumCols(), (byteMatrix != null) ? 1 : 2));
+		this.sampler = null;
 	}
 
 	/**
@@ -98,18 +133,11 @@ public class SymbolicDataset extends Dataset {
 	/**
 	 * Get symbol index in the alphabet
 	 * @param s The symbol
-	 * @return The symbol's index
+	 * @return The symbol's index, or -1 if the symbol is not in the alphabet
 	 */
 	public int getSymbolIndex(String s) {
-
-		int index = -1;
-
-		for(int i = 0; i < this.alphabet.length && index == -1; i++) {
-			if(s.equals(this.alphabet[i]))
-				index = i;
-		}
-
-		return index;
+		Integer index = this.symbolIndexes.get(s);
+		return (index == null) ? -1 : index;
 	}
 
 	/**
@@ -118,6 +146,7 @@ public class SymbolicDataset extends Dataset {
 	 */
 	public void addBicluster(SymbolicBicluster bic) {
 		this.plantedBics.add(bic);
+		this.indexBicluster(bic);
 	}
 
 	/**
@@ -129,11 +158,12 @@ public class SymbolicDataset extends Dataset {
 	}
 
 	/**
-	 * Set the dataset's alphabet
+	 * Set the dataset's alphabet (clears any stored element)
 	 * @param alphabet Array with the alphabet
 	 */
 	public void setAlphabet(String[] alphabet) {
 		this.alphabet = alphabet;
+		initStorage();
 	}
 
 	/**
@@ -150,108 +180,141 @@ public class SymbolicDataset extends Dataset {
 
 	/**
 	 * Set dataset's element value
-	 * @param context The context ID
 	 * @param row The row ID
 	 * @param column The column ID
-	 * @param newItem The element's value
+	 * @param newItem The element's value (an empty string marks the element as missing)
 	 */
 	public void setMatrixItem(int row, int column, String newItem) {
-		this.matrix.put(row + ":" + column, newItem);
+		
+		if(newItem.isEmpty())
+			setCode(row, column, MISSING_CODE);
+		else {
+			int index = getSymbolIndex(newItem);
+			if(index == -1)
+				throw new IllegalArgumentException("Symbol " + newItem + " does not belong to the dataset's alphabet");
+			setCode(row, column, index + 2);
+		}
+	}
+	
+	/**
+	 * Set dataset's element value by its symbol index
+	 * @param row The row ID
+	 * @param column The column ID
+	 * @param symbolIndex The index of the symbol in the alphabet
+	 */
+	public void setSymbolIndex(int row, int column, int symbolIndex) {
+		setCode(row, column, symbolIndex + 2);
 	}
 
 	/**
 	 * Get an element's value
-	 * @param context The contexte ID
 	 * @param row The row ID
 	 * @param column The columns ID
-	 * @return The element's value
+	 * @return The element's value, an empty string if it is missing or null if it was never stored
 	 */
 	public String getMatrixItem(int row, int column) {
-		return this.matrix.get(row + ":" + column);
+		
+		int code = getCode(row, column);
+		
+		if(code == EMPTY_CODE)
+			return null;
+		else if(code == MISSING_CODE)
+			return "";
+		else
+			return this.alphabet[code - 2];
+	}
+	
+	/**
+	 * Get the alphabet index of an element's value
+	 * @param row The row ID
+	 * @param column The columns ID
+	 * @return The symbol's index, or -1 if the element is missing or was never stored
+	 */
+	public int getSymbolIndex(int row, int column) {
+		int code = getCode(row, column);
+		return (code < 2) ? -1 : code - 2;
 	}
 
 	/**
 	 * Check if a dataset's value already exists
-	  * @param context The contexte ID
 	 * @param row The row ID
 	 * @param column The columns ID
 	 * @return True if the elements exists, False otherwise
 	 */
 	public boolean existsMatrixItem(int row, int column) {
-		
-		return this.matrix.containsKey(row + ":" + column);
-	}
-
-	@Override
-	public Bicluster getBiclusterById(int id) {
-		
-		Bicluster t = null;
-		
-		for(int i = 0; i < this.plantedBics.size() && t == null; i++) {
-			if(this.plantedBics.get(i).getId() == id)
-				t = this.plantedBics.get(i);
-		}
-		
-		return t;
+		return getCode(row, column) != EMPTY_CODE;
 	}
 	
 	/**
-	 * Generated a value for the background
-	 * @return a random generated value
+	 * Check if a dataset's element was stored as missing
+	 * @param row The row ID
+	 * @param column The columns ID
+	 * @return True if the element is missing, False otherwise
 	 */
-	public String generateBackgroundValue() {
-		
-		String element = null;
-		
-		if(getBackground().getType().equals(BackgroundType.UNIFORM))
-			element = generateBackgroundValue(null);
-		else if (getBackground().getType().equals(BackgroundType.DISCRETE))
-			element = generateBackgroundValue(getBackground().getParam3());
-		else if (getBackground().getType().equals(BackgroundType.NORMAL))
-			element = generateBackgroundValue(getBackground().getParam1(), getBackground().getParam2());
-		else
-			element = "";
-		
-		return element;
+	public boolean isMissingItem(int row, int column) {
+		return getCode(row, column) == MISSING_CODE;
 	}
-
 	
-	private String generateBackgroundValue(double[] probs) {
-		
-		String element = null;
-		
-		if (probs == null)
-			element = getAlphabet()[r.nextInt(getAlphabet().length)];
+	private int getCode(int row, int column) {
+		if(byteMatrix != null && byteMatrix[row] != null)
+			return byteMatrix[row][column] & 0xFF;
+		if(shortMatrix != null && shortMatrix[row] != null)
+			return shortMatrix[row][column] & 0xFFFF;
+		return (int) sparseRows.get(row, column, EMPTY_CODE);
+	}
+	
+	private void setCode(int row, int column, int code) {
+		if(byteMatrix != null) {
+			if(byteMatrix[row] == null && sparseRows.put(row, column, code))
+				return;
+			if(byteMatrix[row] == null) {
+				byteMatrix[row] = new byte[getNumCols()];
+				for(int i = 0; i < sparseRows.size(row); i++)
+					byteMatrix[row][sparseRows.position(row, i)] = (byte) sparseRows.value(row, i);
+				sparseRows.clear(row);
+			}
+			byteMatrix[row][column] = (byte) code;
+		}
 		else {
-			double p = r.nextDouble();
-			double sum = 0.0;
-			int i = 0;
-			while(sum < p){
-				sum += probs[i];
-				i++;
+			if(shortMatrix[row] == null && sparseRows.put(row, column, code))
+				return;
+			if(shortMatrix[row] == null) {
+				shortMatrix[row] = new short[getNumCols()];
+				for(int i = 0; i < sparseRows.size(row); i++)
+					shortMatrix[row][sparseRows.position(row, i)] = (short) sparseRows.value(row, i);
+				sparseRows.clear(row);
 			}
-			element = getAlphabet()[i - 1];
+			shortMatrix[row][column] = (short) code;
 		}
-		
-		return element;
+	}
+
+	/**
+	 * Generate the background value of an element. The value is a pure function of the background seed
+	 * and the element's position
+	 * @param row The row ID
+	 * @param column The column ID
+	 * @return the element's background symbol, or an empty string if the background is missing
+	 */
+	public String generateBackgroundValue(int row, int column) {
+		int index = backgroundSampler().symbol(row, column);
+		return (index < 0) ? "" : alphabet[index];
 	}
 	
-	private String generateBackgroundValue(double mean, double sd) {
-		
-		String element = null;
-		
-		NormalDistribution n = new NormalDistribution(mean, sd);
-		int vals = (int) n.sample(1)[0];
-		
-		if (vals < 0)
-			vals = 0;
-		else if (vals >= getAlphabet().length)
-			vals = getAlphabet().length - 1;
-		
-		element = getAlphabet()[vals];
-		
-		return element;
-		
+	/**
+	 * Generate the background symbols of a row segment
+	 * @param row The row ID
+	 * @param fromCol The first column (inclusive)
+	 * @param toCol The last column (exclusive)
+	 * @param out The buffer for the symbols' alphabet indexes, indexed from 0 (-1 marks a missing background)
+	 */
+	public void generateBackgroundRow(int row, int fromCol, int toCol, int[] out) {
+		backgroundSampler().fillSymbols(row, fromCol, toCol, out);
+	}
+	
+	private BackgroundSampler backgroundSampler() {
+		if(sampler == null)
+			sampler = BackgroundSampler.symbolic(background, getBackgroundSeed(), getNumCols(), alphabet.length);
+		return sampler;
 	}
 
 	@Override
@@ -264,7 +327,7 @@ public class SymbolicDataset extends Dataset {
 		
 		for(SymbolicBicluster bic : plantedBics) {
 			res.append(bic.toString() + "\r\n\n");
-			res.append(IOUtils.printSymbolicBicluster(this.matrix, bic.getRows(), bic.getColumns()) + "\n");
+			res.append(IOUtils.printSymbolicBicluster(this, bic.getRowArray(), bic.getColumnArray()) + "\n");
 		}
 		return res.toString().replace(",]","]");
 	}
@@ -274,23 +337,12 @@ public class SymbolicDataset extends Dataset {
 
 		int nrMissingsBackground = (int) (this.getBackgroundSize() * percBackground);
 		//System.out.println("Total expected missings: " + nrMissingsBackground);
-		Random rand = RandomObject.getInstance();
+		Random rand = RandomObject.getStream(getSeed(), RandomObject.MISSINGS);
 
 		int row = -1;
 		int col = -1;
 
-		for (int k = 0; k < nrMissingsBackground; k++) {
-			String e;
-			do {
-				row = rand.nextInt(getNumRows());
-				col = rand.nextInt(getNumCols());
-				e = row + ":" + col;
-			} while (this.isMissing(e) || this.isPlanted(e));
-
-			this.addMissingElement(e);
-			
-			//System.out.println("Missing on background " + e);
-		}
+		this.markBackgroundElements(nrMissingsBackground, "Missings", rand);
 		
 		//System.out.println("Total Missings on back: " + this.getNumberOfMissings() + "(" + (double)this.getNumberOfMissings() / this.getBackgroundSize() +  "%)");
 
@@ -301,31 +353,13 @@ public class SymbolicDataset extends Dataset {
 				
 				int nrMissingsBic = (int) (t.getSize() * percBicluster * rand.nextDouble());
 	
-				List<String> elems = this.getBiclusterElements(t.getId());
-				String e;
-				for(int k = t.getNumberOfMissings(); k < nrMissingsBic; k++) {
-					do {
-						e = elems.get(rand.nextInt(elems.size()));
-					} while (this.isMissing(e) || !respectsOverlapConstraint(e, "Missings", percBicluster));
-	
-					this.addMissingElement(e);
-	
-					for(Integer i : this.getBicsByElem(e))
-						this.getBiclusterById(i).addMissing();
-	
-					String[] coord = e.split(":");
-	
-					row = Integer.parseInt(coord[0]);
-					col = Integer.parseInt(coord[1]);
-	
-				}
+				this.markBiclusterElements(t, nrMissingsBic, "Missings", percBicluster, rand);
 			}
 		}
 
-		for(String e : this.getMissingElements()) {
-			String[] coord = e.split(":");
-			row = Integer.parseInt(coord[0]);
-			col = Integer.parseInt(coord[1]);
+		for(long e : this.getMissingElements()) {
+			row = getElementRow(e);
+			col = getElementCol(e);
 
 			this.setMatrixItem(row, col, "");
 		}
@@ -341,29 +375,12 @@ public class SymbolicDataset extends Dataset {
 
 		int nrNoiseBackground = (int) (this.getBackgroundSize() * percBackground);
 		//System.out.println("Total expected noisy: " + nrNoiseBackground);
-		Random rand = RandomObject.getInstance();
+		Random rand = RandomObject.getStream(getSeed(), RandomObject.NOISE);
 
 		int row = -1;
 		int col = -1;
 
-		for (int k = 0; k < nrNoiseBackground; k++) {
-
-			boolean stop = false;
-			String e;
-
-			do {
-				row = rand.nextInt(getNumRows());
-				col = rand.nextInt(getNumCols());
-				e = row + ":" + col;
-				if(!this.isNoisy(e) && !this.isPlanted(e) && !this.isMissing(e))
-					stop = true;
-
-			} while (!stop);
-
-			this.addNoisyElement(e);
-			
-			//System.out.println("Noisy on background " + e);
-		}
+		this.markBackgroundElements(nrNoiseBackground, "Noisy", rand);
 
 		//System.out.println("Total Noisy on back: " + this.getNumberOfNoisy() + "(" + (double)this.getNumberOfNoisy() / this.getBackgroundSize() +  "%)");
 		
@@ -374,53 +391,31 @@ public class SymbolicDataset extends Dataset {
 				
 				int nrNoisyBic = (int) (t.getSize() * percBicluster * rand.nextDouble());
 	
-				List<String> elems = this.getBiclusterElements(t.getId());
-				String e;
-				for(int k = t.getNumberOfNoisy(); k < nrNoisyBic; k++) {
-					do {
-						e = elems.get(rand.nextInt(elems.size()));
-					} while (this.isMissing(e) || this.isNoisy(e) || !respectsOverlapConstraint(e, "Noisy", percBicluster));
-	
-					this.addNoisyElement(e);
-	
-					//System.out.println("Noisy on tric " + t.getId() + "on " + e);
-					
-					for(Integer i : this.getBicsByElem(e))
-						this.getBiclusterById(i).addNoisy();
-				}
+				this.markBiclusterElements(t, nrNoisyBic, "Noisy", percBicluster, rand);
 			}
 		}
 
-		for(String e : this.getNoisyElements()) {
+		for(long e : this.getNoisyElements()) {
 			
-			String[] coord = e.split(":");
-			row = Integer.parseInt(coord[0]);
-			col = Integer.parseInt(coord[1]);
+			row = getElementRow(e);
+			col = getElementCol(e);
 			
 			int symbolIndex = -1;
 			
 			if(this.existsMatrixItem(row, col))
-				symbolIndex = this.getSymbolIndex(this.getMatrixItem(row, col));
-			else {
-				String newSymbol = this.generateBackgroundValue();
-				this.setMatrixItem(row, col, newSymbol);
-				symbolIndex = this.getSymbolIndex(newSymbol);
-			}
+				symbolIndex = this.getSymbolIndex(row, col);
+			else
+				symbolIndex = this.getSymbolIndex(this.generateBackgroundValue(row, col));
 
 			int deviation = 1 + rand.nextInt(maxDeviation);
 			int newIndex = rand.nextBoolean() ? (symbolIndex + deviation) : (symbolIndex - deviation);
-			String newValue;
 			
 			if(newIndex < 0)
-				newValue = this.alphabet[0];
+				newIndex = 0;
 			else if(newIndex >= this.alphabet.length)
-				newValue = this.alphabet[this.alphabet.length - 1];
-			else
-				newValue = this.alphabet[newIndex];
-			 
-			//System.out.println("(Noisy) OldValue: " + this.getMatrixItem(ctx, row, col) + " Deviation: " + deviation + " NewValue: " + newValue);
+				newIndex = this.alphabet.length - 1;
 
-			this.setMatrixItem(row, col, newValue);
+			this.setSymbolIndex(row, col, newIndex);
 		}
 	}
 
@@ -435,35 +430,19 @@ public class SymbolicDataset extends Dataset {
 
 		int nrErrorsBackground = (int) (this.getBackgroundSize() * percBackground);
 		//System.out.println("Total expected errors: " + nrErrorsBackground);
-		Random rand = RandomObject.getInstance();
+		Random rand = RandomObject.getStream(getSeed(), RandomObject.ERRORS);
 
 		int row = -1;
 		int col = -1;
 
-		for (int k = 0; k < nrErrorsBackground; k++) {
-
-			boolean stop = false;
-			String e;
-
-			do {
-				row = rand.nextInt(getNumRows());
-				col = rand.nextInt(getNumCols());
-				e = row + ":" + col;
-
-				if(!this.isError(e) && !this.isPlanted(e) && !this.isMissing(e) && !this.isNoisy(e))
-					stop = true;
+		for (long e : this.markBackgroundElements(nrErrorsBackground, "Errors", rand)) {
 
-			} while (!stop);
-
-			this.addErrorElement(e);
-			
-			//System.out.println("Error on background " + e);
+			row = getElementRow(e);
+			col = getElementCol(e);
 			
 			int newIndex = (rand.nextBoolean()) ? this.alphabet.length - 1 : 0;
 			
-			//System.out.println("(Error back) OldValue: " + this.getMatrixItem(ctx, row, col) + " NewValue: " + this.alphabet[newIndex]);
-			
-			this.setMatrixItem(row, col, this.alphabet[newIndex]);
+			this.setSymbolIndex(row, col, newIndex);
 		}
 
 		//System.out.println("Total Errors on back: " + this.getNumberOfErrors() + "(" + (double)this.getNumberOfErrors() / this.getBackgroundSize() +  "%)");
@@ -475,68 +454,21 @@ public class SymbolicDataset extends Dataset {
 				
 				int nrErrorsBic = (int) (t.getSize() * percBicluster * rand.nextDouble());
 	
-				List<String> elems = this.getBiclusterElements(t.getId());
-				String e;
-				for(int k = t.getNumberOfErrors(); k < nrErrorsBic; k++) {
-					do {
-						e = elems.get(rand.nextInt(elems.size()));
-					} while (this.isMissing(e) || this.isNoisy(e) || this.isError(e) || !respectsOverlapConstraint(e, "Errors", percBicluster));
-	
-					this.addErrorElement(e);
-	
-					for(Integer i : this.getBicsByElem(e))
-						this.getBiclusterById(i).addError();
-					
-					String[] coord = e.split(":");
-					row = Integer.parseInt(coord[0]);
-					col = Integer.parseInt(coord[1]);
-					
-					int symbolIndex = -1;
+				for(long e : this.markBiclusterElements(t, nrErrorsBic, "Errors", percBicluster, rand)) {
 					
-					if(this.existsMatrixItem(row, col))
-						symbolIndex = this.getSymbolIndex(this.getMatrixItem(row, col));
-					else {
-						String newSymbol = this.generateBackgroundValue();
-						this.setMatrixItem(row, col, newSymbol);
-						symbolIndex = this.getSymbolIndex(newSymbol);
-					}
+					row = getElementRow(e);
+					col = getElementCol(e);
 					
-					int newIndex;
+					int symbolIndex = this.getSymbolIndex(row, col);
 					
-					do {
-						newIndex = rand.nextInt(this.alphabet.length); 
-					}while(Math.abs(symbolIndex - newIndex) <= minDeviation);
+					int newIndex = drawDeviatingIndex(symbolIndex, minDeviation, this.alphabet.length, rand);
 					
-					//System.out.println("(Error tric) OldValue: " + this.getMatrixItem(ctx, row, col) +" NewValue: " + this.alphabet[newIndex]);
-					
-					this.setMatrixItem(row, col, this.alphabet[newIndex]);
+					this.setSymbolIndex(row, col, newIndex);
 				}
 			}
 		}
 	}
 
-	private boolean respectsOverlapConstraint(String elem, String type, double percBicluster) {
-
-		boolean respects = true;
-
-		List<Integer> bics = this.getBicsByElem(elem);
-
-		for(int i = 0; i < bics.size() && respects; i++) {
-			SymbolicBicluster t = (SymbolicBicluster) this.getBiclusterById(bics.get(i));
-			int maxAllowed = (int) (t.getSize() * percBicluster);
-
-			if(type.equals("Missings") && t.getNumberOfMissings() + 1 > maxAllowed)
-				respects = false;
-
-			if(type.equals("Noisy") && t.getNumberOfNoisy() + 1 > maxAllowed)
-				respects = false;
-
-			if(type.equals("Errors") && t.getNumberOfErrors() + 1 > maxAllowed)
-				respects = false;
-		}
-
-		return respects;
-	}
 	
 	
 	public JSONObject getBicsInfoJSON(SymbolicDataset generatedDataset, boolean heterogeneous) {
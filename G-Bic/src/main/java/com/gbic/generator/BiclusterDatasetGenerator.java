@@ -6,10 +6,10 @@
  */
 package com.gbic.generator;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
@@ -17,12 +17,17 @@ import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.apache.commons.math3.util.Pair;
 
 import com.gbic.domain.bicluster.NumericBicluster;
 import com.gbic.domain.dataset.Dataset;
 import com.gbic.exceptions.ExceedBiclusterBoundsException;
+import com.gbic.exceptions.ExceedDatasetBoundsException;
 import com.gbic.exceptions.OutputErrorException;
 import com.gbic.types.Distribution;
 import com.gbic.types.PatternType;
@@ -32,6 +37,10 @@ import com.gbic.utils.SingleBiclusterPattern;
 import com.gbic.utils.RandomObject;
 import com.gbic.utils.BiclusterPattern;
 import com.gbic.utils.BiclusterStructure;
+import com.gbic.utils.OccupancyIndex;
+import com.gbic.utils.ColumnIntervals;
+import com.gbic.utils.IndexUnion;
+import com.gbic.utils.PatternKernels;
 
 public abstract class BiclusterDatasetGenerator extends Observable {
 
@@ -40,7 +49,17 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 	private String bicsInfoFileName;
 	private String statsFileName;
 	
-	Random random = RandomObject.getInstance();
+	//The random stream of the bicluster being generated by each thread (see useBiclusterStream)
+	private final ThreadLocal<Random> streams = ThreadLocal.withInitial(RandomObject::getInstance);
+
+	//Whether the biclusters that cannot overlap others are synthesized in parallel (see plantInParallel)
+	private boolean parallelPlanting = true;
+	//Biclusters synthesized in parallel and not planted yet, in ID order
+	private final Deque<ForkJoinTask<Planting>> pendingPlantings = new ArrayDeque<>();
+
+	//Free gaps of each column range, kept in step with the set of chosen columns they were built from
+	private Set<Integer> gapsChosenCols;
+	private Map<Pair<Integer, Integer>, ColumnIntervals> columnGaps;
 	
 	/**
 	 * Generate a dataset with planted biclusters
@@ -54,57 +73,25 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 			OverlappingSettings overlapping) throws Exception;
 
 	protected int[] generateRows(int bicSize, int dimSize, double percOverlap, int[][] bicsRows,
-			int[] bicsWithOverlap, int[] bicsExcluded, int[] bicCols, Set<String> elements) throws Exception {
+			int[] bicsWithOverlap, IndexUnion excludedRows, int[] bicCols, Dataset data) throws Exception {
 		
 		//guardar rows escolhidas
 		int[] result = new int[bicSize];
 		//guardar rows escolhidas (same, redudante talvez)
 		SortedSet<Integer> set = new TreeSet<>();
 		boolean noSpace = false;
+		//colunas do bicluster, para testar as rows contra os elementos ja plantados
+		long[] columnMask = data.getOccupancy().columnMask(bicCols);
 		//Se nao existir overlapping
 		if (Double.compare(percOverlap,0) <= 0) { // no need for plaid calculus
-			for (int i = 0, val = -1; i < bicSize; i++) {
-				//guardar rows testadas
-				SortedSet<Integer> testedRows = new TreeSet<>();
-
-				boolean alreadyExists = false;
-				boolean invalidOverlap = false;
-				boolean notExhaustedDim = false;
-				do {
-					val = random.nextInt(dimSize);
-					testedRows.add(val);
-					
-					//condicoes para garantir que a row eh valida
-					alreadyExists = set.contains(val);
-					invalidOverlap = isOverlap(val, bicCols, elements);
-					notExhaustedDim = testedRows.size() < dimSize;
-				} while (alreadyExists || (invalidOverlap && notExhaustedDim));
-				
-				//verificar se a ultima row testada eh ou nao valida
-				if(i < bicSize && !alreadyExists && !invalidOverlap) {
-					set.add(val);
-					result[i] = val;
-				}
-				else {
-					//throw new Exception("Not able to meet the non-overlapping row criteria for the generate sets of columns and contexts!\nSuggestions: "
-					//		+ "increase the matrix size OR decrease the size of trics!");
-					noSpace = true;
-				}
-			}
+			if(drawFreeRows(result, 0, dimSize, set, null, columnMask, data) < bicSize)
+				noSpace = true;
 		}
 		else {
 			//Primeira tentativa - aproveitar ao maximo rows livres
-			SortedSet<Integer> setExc = new TreeSet<>();
-			for (int i = 0; i < bicsExcluded.length; i++)
-				for (int j = 0; j < bicsRows[bicsExcluded[i]].length; j++)
-					setExc.add(bicsRows[bicsExcluded[i]][j]);
-
 			int currentIndex = 0;
 			if (bicsWithOverlap != null) {
 				for (Integer bicID : bicsWithOverlap) {
-					for (int j = 0; j < bicsRows[bicID].length; j++)
-						setExc.add(bicsRows[bicID][j]);
-
 					//TODO: edit this
 					int nrOverlapVals = 0;
 					if(bicsRows[bicID].length < bicSize)
@@ -123,50 +110,14 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 			}		
 
 			//Depois de fazer o overlapping, caso não existam mais rows livres, usar as já escolhidas
-			if (setExc.size() + (bicSize - currentIndex) > dimSize) {
-				for(int val = -1; currentIndex < bicSize; currentIndex++) {
-					SortedSet<Integer> testedRows = new TreeSet<>();
-					boolean alreadyExists = false;
-					boolean invalidOverlap = false;
-					boolean notExhaustedDim = false;
-					do {
-						val = random.nextInt(dimSize);
-						testedRows.add(val);
-						
-						//condicoes para garantir que a row eh valida
-						alreadyExists = set.contains(val);
-						invalidOverlap = isOverlap(val, bicCols, elements);
-						notExhaustedDim = testedRows.size() < dimSize;
-					} while (alreadyExists || (invalidOverlap && notExhaustedDim));
-					
-					//verificar se a ultima row testada eh ou nao valida
-					if(currentIndex < bicSize && !alreadyExists && !invalidOverlap) {
-						set.add(val);
-						result[currentIndex] = val;
-					}
-					else {
-						//throw new Exception("Not able to meet the non-overlapping row criteria for the generate sets of columns and contexts!\nSuggestions: "
-						//		+ "increase the matrix size OR decrease the size of trics!");
-						noSpace = true;
-					}
-				}
+			if (excludedRows.size() + (bicSize - currentIndex) > dimSize) {
+				if(drawFreeRows(result, currentIndex, dimSize, set, null, columnMask, data) < bicSize - currentIndex)
+					noSpace = true;
 			}
 			else {
 				//Enquanto houver rows livres usa-las
-				for (int val = -1; currentIndex < bicSize; currentIndex++) {
-					SortedSet<Integer> testedRows = new TreeSet<>();
-					do {
-						val = random.nextInt(dimSize);
-						testedRows.add(val);
-					}while ((set.contains(val) || setExc.contains(val) || isOverlap(val, bicCols, elements)) && testedRows.size() < dimSize);
-					
-					if(testedRows.size() == dimSize && (set.contains(val) || setExc.contains(val) || isOverlap(val, bicCols, elements)))
-						throw new OutputErrorException("noa ha espaço");
-					else {
-						set.add(val);
-						result[currentIndex] = val;
-					}
-				}
+				if(drawFreeRows(result, currentIndex, dimSize, set, excludedRows, columnMask, data) < bicSize - currentIndex)
+					throw new OutputErrorException("noa ha espaço");
 			}
 
 		}
@@ -177,7 +128,8 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 	}
 
 	protected int[] generateOthers(int dimSize, int bicSize, double percOverlap, int[][] bicsDimIndex, Set<Integer> chosenIndexes,
-			int[] bicsWithOverlap, int[] bicsExcluded, boolean contiguity, Pair<Integer, Integer> range) throws Exception {
+			int[] bicsWithOverlap, IndexUnion excluded, boolean contiguity, Pair<Integer, Integer> range) throws Exception {
+		Random random = random();
 
 		int[] result = new int[bicSize];
 		SortedSet<Integer> set = new TreeSet<>();
@@ -220,17 +172,9 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 		}
 		else {
 			//Primeira tentativa - aproveitar ao maximo colunas livres
-			SortedSet<Integer> setExc = new TreeSet<>();
-			for (int i = 0; i < bicsExcluded.length; i++)
-				for (int j = 0; j < bicsDimIndex[bicsExcluded[i]].length; j++)
-					setExc.add(bicsDimIndex[bicsExcluded[i]][j]);
-
 			int currentIndex = 0;
 			if (bicsWithOverlap != null) {
 				for (Integer bicID : bicsWithOverlap) {
-					for (int j = 0; j < bicsDimIndex[bicID].length; j++)
-						setExc.add(bicsDimIndex[bicID][j]);
-
 					//TODO: edit this
 					int nrOverlapVals = (int) (((double) bicsDimIndex[bicID].length) * percOverlap);
 
@@ -278,7 +222,7 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 			}		
 
 			//Depois de fazer o overlapping, caso não existam mais colunas livres, usar as já escolhidas
-			if (setExc.size() + (bicSize - currentIndex) > dimSize) {
+			if (excluded.size() + (bicSize - currentIndex) > dimSize) {
 				for(int val = -1; currentIndex < bicSize; currentIndex++) {
 					do {
 						val = random.nextInt(dimSize);
@@ -301,7 +245,7 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 					else {
 						do
 							val = random.nextInt(dimSize);
-						while (set.contains(val) || setExc.contains(val));
+						while (set.contains(val) || excluded.contains(val));
 						set.add(val);
 						result[currentIndex] = val;
 					}
@@ -318,9 +262,10 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 
 
 	//TODO: fatorizar isto
-	protected int[] generate(int nBicDim, int nDim, double overlap, int[][] vecsL, int[] overlapVecs, int[] vecsExc, boolean contiguity, 
+	protected int[] generate(int nBicDim, int nDim, double overlap, int[][] vecsL, int[] overlapVecs, IndexUnion excluded, boolean contiguity, 
 			Pair<Integer, Integer> range)
 			throws Exception {
+		Random random = random();
 
 		int[] result = new int[nBicDim];
 		SortedSet<Integer> set = new TreeSet<>();
@@ -348,11 +293,6 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 		}
 
 		//Primeira tentativa - aproveitar ao maximo colunas livres
-		SortedSet<Integer> setExc = new TreeSet<>();
-		for (int i = 0; i < vecsExc.length; i++)
-			for (int j = 0; j < vecsL[vecsExc[i]].length; j++)
-				setExc.add(vecsL[vecsExc[i]][j]);
-
 		if (nBicDim == nDim)
 			for (int i = 0; i < nBicDim; i++)
 				result[i] = i;
@@ -360,9 +300,6 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 			int i = 0;
 			if (overlapVecs != null) {
 				for (Integer vecID : overlapVecs) {
-					for (int j = 0; j < vecsL[vecID].length; j++)
-						setExc.add(vecsL[vecID][j]);
-
 					/*
 					System.out.println("BicDimSize = " + nBicDim);
 					System.out.println("OverlappedBicDimSize =" + vecsL[vecID].length);
@@ -395,32 +332,22 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 							
 							if(first >= 0 && first < nDim && last >= 0 && last < nDim) {
 	
-								int dimStart = (range == null) ? 0 : range.getFirst(); 
-								
-								if((first - dimStart) >= (nBicDim - nrOverlapVals)) {
-									for (int j = 0, val = -1; i < nBicDim && j < nBicDim; j++) {
-										if(j < (nBicDim - nrOverlapVals))
-											val = first - (nBicDim - nrOverlapVals - j);
-										else
-											val = vecsL[vecID][j - (nBicDim - nrOverlapVals)];
-										
-										if(range == null || (val >= range.getFirst() && val < range.getSecond())) {
-											set.add(val);
-											result[i++] = val;
-										}
-									}
-								}
-								else if((nDim - last) >= (nBicDim - nrOverlapVals)) {
-									for (int j = 0, val = -1; i < nBicDim && j < nBicDim; j++) {
-										if(j < nrOverlapVals)
-											val = last - (nrOverlapVals - (i + 1));
-										else
-											val = last + (j - (nrOverlapVals - 1));
-		
-										if(range == null || (val >= range.getFirst() && val < range.getSecond())) {
-											set.add(val);
-											result[i++] = val;
-										}
+								int dimStart = (range == null) ? 0 : range.getFirst();
+								int dimEnd = (range == null) ? nDim : range.getSecond();
+								int nrFreeVals = nBicDim - nrOverlapVals;
+
+								//The window shares its last nrOverlapVals columns with the overlapped bicluster's first ones, or
+								//its first nrOverlapVals columns with the overlapped bicluster's last ones
+								int start = -1;
+								if((first - dimStart) >= nrFreeVals)
+									start = first - nrFreeVals;
+								else if((dimEnd - 1 - last) >= nrFreeVals)
+									start = last - nrOverlapVals + 1;
+
+								if(start >= 0) {
+									for (int j = 0; i < nBicDim && j < nBicDim; j++) {
+										set.add(start + j);
+										result[i++] = start + j;
 									}
 								}
 								else
@@ -446,7 +373,7 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 			}		
 
 			//Depois de fazer o overlapping, caso não existam mais colunas livres, usar as já escolhidas
-			if (setExc.size() + (nBicDim - i) > nDim) {
+			if (excluded.size() + (nBicDim - i) > nDim) {
 				for(int val = -1; i < nBicDim; i++) {
 					do {
 						if(range == null)
@@ -480,7 +407,7 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 						else
 							val = random.nextInt(range.getSecond()-range.getFirst()) + range.getFirst();
 					
-					existsOrExcluded = set.contains(val) || setExc.contains(val);
+					existsOrExcluded = set.contains(val) || excluded.contains(val);
 					isInRange = (range != null) && (val < range.getFirst() || val >= range.getSecond());
 					
 					}while (existsOrExcluded || isInRange);
@@ -522,6 +449,7 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 	 * @return
 	 */
 	protected int[] generateContiguous(int bicDimSize, int datasetDimSize, Pair<Integer, Integer> range) {
+		Random random = random();
 
 		int[] result = new int[bicDimSize];
 
@@ -530,7 +458,7 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 				result[i] = i;
 		else if (range != null && bicDimSize == (range.getSecond() - range.getFirst())) {
 			for (int i = range.getFirst(); i < range.getSecond(); i++)
-				result[i] = i;
+				result[i - range.getFirst()] = i;
 		}
 		else {
 			int posInicial = 0;
@@ -547,6 +475,7 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 
 	protected int[] generateNonOverlappingOthers(int nBicDim, int nDim, Set<Integer> chosenCols, boolean contiguity, 
 			Pair<Integer, Integer> range) {
+		Random random = random();
 
 		int[] result = new int[nBicDim];
 		SortedSet<Integer> set = new TreeSet<>();
@@ -579,81 +508,309 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 		return result;
 	}
 
-	protected int[] generateNonOverlappingRows(int nBicDim, int nDim, int[] bicCols, Set<String> elements) throws Exception {
+	protected int[] generateNonOverlappingRows(int nBicDim, int nDim, int[] bicCols, Dataset data) throws Exception {
 
 		int[] result = new int[nBicDim];
-		SortedSet<Integer> set = new TreeSet<>();
-		Set<Integer> testedRows = new HashSet<>();
+		long[] columnMask = data.getOccupancy().columnMask(bicCols);
 
-		for (int i = 0, val = -1; i < nBicDim; i++) {
-			do {
-				val = random.nextInt(nDim);
-				testedRows.add(val);
-			} while ((set.contains(val) || isOverlap(val, bicCols, elements)) && (testedRows.size() < nDim));
+		if(drawFreeRows(result, 0, nDim, new TreeSet<>(), null, columnMask, data) < nBicDim) {
+			//throw new Exception("Not able to meet the non-overlapping row criteria for the generate sets of columns and contexts!\nSuggestions: "
+			//		+ "increase the matrix size OR decrease the size of trics!");
+			result = null;
+		}
+		return result;
+	}
+
+	/**
+	 * Places a bicluster that cannot overlap the planted ones. The columns are first drawn among the columns no
+	 * bicluster uses yet (at random, or as a window in a gap of unused columns if they are contiguous) and the rows
+	 * among the rows that are free in them. When that fails, the bicluster is placed in the free area left by the planted biclusters: the
+	 * columns of each range are picked greedily, each one keeping the most free rows (or the window that keeps the
+	 * most free rows), and the rows are drawn among the rows left free in all of them. Finding the largest empty
+	 * submatrix is NP-hard, so the greedy search can miss a place where the bicluster would fit
+	 * @param k The bicluster ID
+	 * @param numRowsBic The bicluster's number of rows
+	 * @param numRows The dataset's number of rows
+	 * @param numColsBic The bicluster's number of columns in each range
+	 * @param ranges The column ranges (first inclusive, second exclusive)
+	 * @param contiguity Whether the columns of each range are contiguous
+	 * @param chosenCols The columns of the planted biclusters
+	 * @param data The dataset
+	 * @return The bicluster's rows and columns (the columns following the order of the ranges)
+	 * @throws ExceedDatasetBoundsException If there is no room left for the bicluster
+	 */
+	protected int[][] placeNonOverlapping(int k, int numRowsBic, int numRows, int[] numColsBic, List<Pair<Integer, Integer>> ranges,
+			boolean contiguity, Set<Integer> chosenCols, Dataset data) throws Exception {
+		Random random = random();
+
+		int totalCols = 0;
+		boolean enoughFreeCols = true;
+		for(int i = 0; i < ranges.size(); i++) {
+			totalCols += numColsBic[i];
+			int freeCols = 0;
+			for(int col = ranges.get(i).getFirst(); col < ranges.get(i).getSecond(); col++)
+				if(!chosenCols.contains(col))
+					freeCols++;
+			enoughFreeCols &= freeCols >= numColsBic[i];
+		}
 
+		int[] bicCols = new int[totalCols];
+
+		//Contiguous columns go to a window of unused columns, if every range still has a gap long enough for it
+		if(contiguity) {
+			boolean fits = true;
+			for(int i = 0, filled = 0; i < ranges.size() && fits; i++) {
+				if(numColsBic[i] == 0)
+					continue;
+				int start = getColumnGaps(ranges.get(i), chosenCols).findWindow(numColsBic[i], random);
+				fits = start >= 0;
+				for(int j = 0; j < numColsBic[i] && fits; j++)
+					bicCols[filled++] = start + j;
+			}
+			if(fits) {
+				int[] bicRows = generateNonOverlappingRows(numRowsBic, numRows, bicCols, data);
+				if(bicRows != null)
+					return new int[][] {bicRows, bicCols};
+			}
+		}
+		//Without enough unused columns the random draw could only succeed by chance, so it is skipped
+		else if(enoughFreeCols) {
+			for(int i = 0, filled = 0; i < ranges.size(); i++) {
+				int[] cols = generateNonOverlappingOthers(numColsBic[i], ranges.get(i).getSecond(), chosenCols, contiguity, ranges.get(i));
+				System.arraycopy(cols, 0, bicCols, filled, cols.length);
+				filled += cols.length;
+			}
+			int[] bicRows = generateNonOverlappingRows(numRowsBic, numRows, bicCols, data);
+			if(bicRows != null)
+				return new int[][] {bicRows, bicCols};
+		}
 
-			if (testedRows.size() >= nDim) {
-				//throw new Exception("Not able to meet the non-overlapping row criteria for the generate sets of columns and contexts!\nSuggestions: "
-				//		+ "increase the matrix size OR decrease the size of trics!");
-				result = null;
-			}	
+		System.out.println("Bic " + (k+1) + " - Searching the free area...");
 
-			set.add(val);
-			if(result != null)
-				result[i] = val;
+		OccupancyIndex occupancy = data.getOccupancy();
+		long[] freeRows = occupancy.allRows();
+
+		for(int i = 0, filled = 0; i < ranges.size(); i++) {
+			int from = ranges.get(i).getFirst();
+			int to = ranges.get(i).getSecond();
+			if(numColsBic[i] > to - from)
+				throw new ExceedDatasetBoundsException("Bicluster " + (k+1) + " has " + numColsBic[i] + " columns in a range of "
+						+ (to - from) + " columns!");
+			if(contiguity)
+				pickFreestWindow(bicCols, filled, numColsBic[i], from, to, freeRows, occupancy);
+			else
+				pickFreestColumns(bicCols, filled, numColsBic[i], from, to, freeRows, occupancy);
+			filled += numColsBic[i];
 		}
-		return result;
+
+		int[] candidates = new int[numRows];
+		int numCandidates = 0;
+		for(int row = 0; row < numRows; row++)
+			if((freeRows[row >>> 6] & (1L << row)) != 0)
+				candidates[numCandidates++] = row;
+
+		if(numCandidates < numRowsBic)
+			throw new ExceedDatasetBoundsException("Bicluster " + (k+1) + " (" + numRowsBic + "x" + totalCols + ") does not fit without "
+					+ "overlapping the planted biclusters: the best free area found has " + numCandidates + " rows for its "
+					+ totalCols + " columns!\nSuggestions: increase the matrix size OR decrease the number or the size of the biclusters!");
+
+		int[] bicRows = new int[numRowsBic];
+		for(int i = 0; i < numRowsBic; i++) {
+			int j = i + random.nextInt(numCandidates - i);
+			int row = candidates[j];
+			candidates[j] = candidates[i];
+			bicRows[i] = row;
+		}
+
+		return new int[][] {bicRows, bicCols};
 	}
 
-	protected String[][] transposeMatrix(String[][] matrix, String oldDim, String newDim) {
+	/**
+	 * Add a planted bicluster's columns to the chosen columns, keeping the free gaps of the column ranges in step
+	 * @param bicCols The bicluster's columns
+	 * @param chosenCols The chosen columns
+	 */
+	protected void useColumns(int[] bicCols, Set<Integer> chosenCols) {
+		for(int col : bicCols) {
+			chosenCols.add(col);
+			if(chosenCols == gapsChosenCols)
+				for(ColumnIntervals gaps : columnGaps.values())
+					gaps.use(col);
+		}
+	}
 
-		String[][] transposed = null;
+	/**
+	 * Get the free gaps of a column range, built from the chosen columns the first time the range is asked for
+	 * @param range The column range (first inclusive, second exclusive)
+	 * @param chosenCols The chosen columns
+	 * @return The range's free gaps
+	 */
+	private ColumnIntervals getColumnGaps(Pair<Integer, Integer> range, Set<Integer> chosenCols) {
 
-		transposed = new String[matrix[0].length][matrix.length];
+		if(chosenCols != gapsChosenCols) {
+			gapsChosenCols = chosenCols;
+			columnGaps = new HashMap<>();
+		}
 
-		
-		for(int row = 0; row < transposed.length; row++) {
-			for(int col = 0; col < transposed[row].length; col++) {
-				transposed[row][col] = matrix[col][row];
+		return columnGaps.computeIfAbsent(range, r -> {
+			ColumnIntervals gaps = new ColumnIntervals(r.getFirst(), r.getSecond());
+			for(int col : chosenCols)
+				gaps.use(col);
+			return gaps;
+		});
+	}
+
+	/**
+	 * Picks columns of a range one at a time, each time the column that keeps the most free rows (ties go to a
+	 * random column), and narrows the free rows to the rows that are free in the picked columns
+	 * @param result The bicluster's columns
+	 * @param from The first slot to fill
+	 * @param count The number of columns to pick
+	 * @param low The range's first column (inclusive)
+	 * @param high The range's last column (exclusive)
+	 * @param freeRows The mask of the free rows, updated in place
+	 * @param occupancy The dataset's occupancy index
+	 */
+	private void pickFreestColumns(int[] result, int from, int count, int low, int high, long[] freeRows, OccupancyIndex occupancy) {
+		Random random = random();
+
+		int remaining = high - low;
+		int[] order = new int[remaining];
+		for(int i = 0; i < remaining; i++)
+			order[i] = low + i;
+		for(int i = remaining - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+
+		for(int n = 0; n < count; n++) {
+			int available = 0;
+			for(long word : freeRows)
+				available += Long.bitCount(word);
+
+			int best = 0;
+			int bestCount = -1;
+			for(int i = 0; i < remaining && bestCount < available; i++) {
+				int freeCount = occupancy.countFreeRows(order[i], freeRows);
+				if(freeCount > bestCount) {
+					best = i;
+					bestCount = freeCount;
+				}
 			}
+
+			int col = order[best];
+			order[best] = order[--remaining];
+			occupancy.keepFreeRows(col, freeRows);
+			result[from + n] = col;
 		}
-		
+	}
 
-		return transposed;
+	/**
+	 * Picks the window of contiguous columns of a range that keeps the most free rows (ties go to the first window
+	 * after a random one), and narrows the free rows to the rows that are free in the window
+	 * @param result The bicluster's columns
+	 * @param from The first slot to fill
+	 * @param count The window's number of columns
+	 * @param low The range's first column (inclusive)
+	 * @param high The range's last column (exclusive)
+	 * @param freeRows The mask of the free rows, updated in place
+	 * @param occupancy The dataset's occupancy index
+	 */
+	private void pickFreestWindow(int[] result, int from, int count, int low, int high, long[] freeRows, OccupancyIndex occupancy) {
+		Random random = random();
+
+		if(count == 0)
+			return;
+
+		int numWindows = high - low - count + 1;
+		int offset = random.nextInt(numWindows);
+		long[] window = new long[freeRows.length];
+		long[] best = null;
+		int bestCount = -1;
+		int bestStart = low;
+
+		for(int w = 0; w < numWindows; w++) {
+			int start = low + (offset + w) % numWindows;
+			System.arraycopy(freeRows, 0, window, 0, freeRows.length);
+			for(int col = start; col < start + count; col++)
+				occupancy.keepFreeRows(col, window);
+
+			int freeCount = 0;
+			for(long word : window)
+				freeCount += Long.bitCount(word);
+
+			if(freeCount > bestCount) {
+				bestCount = freeCount;
+				bestStart = start;
+				best = window.clone();
+			}
+		}
+
+		System.arraycopy(best, 0, freeRows, 0, freeRows.length);
+		for(int i = 0; i < count; i++)
+			result[from + i] = bestStart + i;
 	}
 
-	protected Double[][] transposeMatrix(Double[][] matrix, String oldDim, String newDim) {
+	/**
+	 * Draws distinct rows in random order (partial Fisher-Yates) until the result is full, skipping the rows
+	 * already chosen or excluded and the rows that meet a planted element in the bicluster's columns. Nothing
+	 * is planted while the rows are drawn, so a skipped row stays invalid and every row is drawn at most once
+	 * @param result The bicluster's rows
+	 * @param from The first slot to fill
+	 * @param dimSize The dataset's number of rows
+	 * @param chosen The rows already in the bicluster (the drawn rows are added to it)
+	 * @param excluded Rows that cannot be drawn, or null
+	 * @param columnMask The mask of the bicluster's columns (see OccupancyIndex)
+	 * @param data The dataset
+	 * @return The number of slots filled, less than asked if the rows run out
+	 */
+	private int drawFreeRows(int[] result, int from, int dimSize, Set<Integer> chosen, IndexUnion excluded,
+			long[] columnMask, Dataset data) {
+		Random random = random();
+
+		OccupancyIndex occupancy = data.getOccupancy();
+		int[] order = new int[dimSize];
+		for(int i = 0; i < dimSize; i++)
+			order[i] = i;
+
+		int filled = from;
+		for(int remaining = dimSize; filled < result.length && remaining > 0;) {
+			int i = random.nextInt(remaining);
+			int row = order[i];
+			order[i] = order[--remaining];
+
+			if(chosen.contains(row) || (excluded != null && excluded.contains(row)) || occupancy.intersectsRow(row, columnMask))
+				continue;
+
+			chosen.add(row);
+			result[filled++] = row;
+		}
+
+		return filled - from;
+	}
+
+	protected String[][] transposeMatrix(String[][] matrix, String oldDim, String newDim) {
+
+		String[][] transposed = null;
+
+		transposed = new String[matrix[0].length][matrix.length];
 
-		Double[][] transposed = null;
-		
-		transposed = new Double[matrix[0].length][matrix.length];
 		
 		for(int row = 0; row < transposed.length; row++) {
 			for(int col = 0; col < transposed[row].length; col++) {
 				transposed[row][col] = matrix[col][row];
 			}
 		}
-	
-		return transposed;
-	}
-
-	/**
-	 * Verifica se um par <row, column> já pertence a algum bicluster
-	 * @param val
-	 * @param bicCols
-	 * @param elements
-	 * @return
-	 */
-	private boolean isOverlap(int val, int[] bicCols, Set<String> elements) {
 		
-		for (int j = 0, l = bicCols.length; j < l; j++)
-			if (elements.contains(val + ":" + bicCols[j]))
-				return true;
-		return false;
+
+		return transposed;
 	}
 
 	protected Map<String, Double> generateOverlappingDistribution(int bicSize, OverlappingSettings overlapping, int numRowsBics,
 			int numColsBics) throws OutputErrorException {
+		Random random = random();
 		
 		Map<String, Double> overlappingDist = new HashMap<>();
 		
@@ -705,6 +862,7 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 	}
 	
 	protected Map<String, Integer> generateBicStructure(BiclusterStructure bicStructure, int maxRows, int maxCols){
+		Random random = random();
 
 		/**
 		 * PART II: select number of rows and columns according to distribution
@@ -750,10 +908,9 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 		return result;
 	}
 	
-	protected Double[][] generateAdditiveFactors(boolean realValued, SingleBiclusterPattern pattern, NumericBicluster<Double> bicK, double min, 
+	protected double[] generateAdditiveFactors(boolean realValued, SingleBiclusterPattern pattern, NumericBicluster<Double> bicK, double min, 
 			double max) throws ExceedBiclusterBoundsException {
-
-		Double[][] bicsymbols = new Double[bicK.getNumRows()][bicK.getNumCols()];
+		Random random = random();
 
 		PatternType rowType = pattern.getRowsPattern();
 		PatternType columnType = pattern.getColumnsPattern();
@@ -863,22 +1020,27 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 
 		//criar o bic
 		
-		for(int r = 0; r < bicK.getNumRows(); r++)
-			for(int c = 0; c < bicK.getNumCols(); c++) {
-				bicsymbols[r][c] = seed + bicK.getRowFactor(r) +  bicK.getColumnFactor(c);
-				if(Double.compare(bicsymbols[r][c], min) < 0 || Double.compare(bicsymbols[r][c], max) > 0) 
-					throw new ExceedBiclusterBoundsException("Exceeded Bicluster limits: Value = " + bicsymbols[r][c]);
+		int numRows = bicK.getNumRows();
+		int numCols = bicK.getNumCols();
+		double[] rowFactors = bicK.getRowFactors();
+		double[] colFactors = bicK.getColumnFactors();
+		double[] bicsymbols = new double[numRows * numCols];
+
+		for(int r = 0; r < numRows; r++) {
+			double rowBase = seed + rowFactors[r];
+			int offset = r * numCols;
+			for(int c = 0; c < numCols; c++)
+				bicsymbols[offset + c] = rowBase + colFactors[c];
+		}
 
-
-			}
+		checkBiclusterBounds(bicsymbols, min, max);
 
 		return bicsymbols;
 	}
 	
-	protected Double[][] generateMultiplicativeFactors(boolean realValued, SingleBiclusterPattern pattern, NumericBicluster<Double> bicK, double minAllowed,
+	protected double[] generateMultiplicativeFactors(boolean realValued, SingleBiclusterPattern pattern, NumericBicluster<Double> bicK, double minAllowed,
 			double maxAllowed) throws ExceedBiclusterBoundsException {
-
-		Double[][] bicsymbols = new Double[bicK.getNumRows()][bicK.getNumCols()];
+		Random random = random();
 
 		PatternType rowType = pattern.getRowsPattern();
 		PatternType columnType = pattern.getColumnsPattern();
@@ -1045,217 +1207,309 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 
 		//criar o bic
 		
-		for(int row = 0; row < bicK.getNumRows(); row++)
-			for(int col = 0; col < bicK.getNumCols(); col++) {
-
-				double value = seed * bicK.getRowFactor(row) * bicK.getColumnFactor(col);
-
-				if(Double.compare(value,  minAllowed) < 0 && Double.compare(Math.abs(value - minAllowed), 0.2) <= 0)
-					value = minAllowed;
-
-				if(Double.compare(value,  maxAllowed) > 0 && Double.compare(Math.abs(value - maxAllowed), 0.2) <= 0)
-					value = maxAllowed;
-
-				bicsymbols[row][col] = value;
+		int numRows = bicK.getNumRows();
+		int numCols = bicK.getNumCols();
+		double[] rowFactors = bicK.getRowFactors();
+		double[] colFactors = bicK.getColumnFactors();
+		double[] bicsymbols = new double[numRows * numCols];
+
+		for(int row = 0; row < numRows; row++) {
+			double rowBase = seed * rowFactors[row];
+			int offset = row * numCols;
+			for(int col = 0; col < numCols; col++)
+				bicsymbols[offset + col] = rowBase * colFactors[col];
+		}
 
-				if(!realValued)
-					bicsymbols[row][col] = (double) bicsymbols[row][col].intValue();
+		//Values that miss the limits by up to 0.2 (rounding errors of the factors) are pulled back to them
+		for(int i = 0; i < bicsymbols.length; i++) {
+			double value = bicsymbols[i];
+			if(value < minAllowed && minAllowed - value <= 0.2)
+				value = minAllowed;
+			if(value > maxAllowed && value - maxAllowed <= 0.2)
+				value = maxAllowed;
+			bicsymbols[i] = realValued ? value : (int) value;
+		}
 
-				if (Double.compare(bicsymbols[row][col], minAllowed) < 0 || Double.compare(bicsymbols[row][col], maxAllowed) > 0) 
-					throw new ExceedBiclusterBoundsException("Exceeded Bicluster limits: Value = " + bicsymbols[row][col]);
+		checkBiclusterBounds(bicsymbols, minAllowed, maxAllowed);
 
-			}
 		return bicsymbols;
 	}
 
-	protected Double[][] generateOrderPreserving(boolean realValued, SingleBiclusterPattern pattern, NumericBicluster<Double> bicK, double min, double max) {
-
-		Double[][] bicsymbols = null;
+	protected double[] generateOrderPreserving(boolean realValued, SingleBiclusterPattern pattern, NumericBicluster<Double> bicK, double min, double max) {
 
 		PatternType rowType = pattern.getRowsPattern();
 		PatternType columnType = pattern.getColumnsPattern();
 		TimeProfile timeProfile = pattern.getTimeProfile();
 		
+		int numRows = bicK.getNumRows();
+		int numCols = bicK.getNumCols();
+		double[] bicsymbols = new double[numRows * numCols];
+		
 		if(rowType.equals(PatternType.ORDER_PRESERVING)) {
 
-			bicsymbols = new Double[bicK.getNumCols()][bicK.getNumRows()];
-			Integer[] order = generateOrder(bicK.getNumRows());
-				
+			//every column follows the same order of the rows
+			int[] order = generateOrder(numRows);
+			double[] sorted = new double[numRows];
 			
-			for(int col = 0; col < bicK.getNumCols(); col++) {
-
-				double minValue = min;
-				double maxValue = max;
-
-				for (int row = 0; row < bicK.getNumRows(); row++) {
-
-					bicsymbols[col][row] = minValue + (maxValue - minValue) * random.nextDouble();
-
-					if(!realValued) {
-						if(Double.compare(Math.round(bicsymbols[col][row]), minValue) >= 0 && 
-								Double.compare(Math.round(bicsymbols[col][row]), maxValue) <= 0)
-							bicsymbols[col][row] = (double) Math.round(bicsymbols[col][row]);
-						else
-							bicsymbols[col][row] = (double) bicsymbols[col][row].intValue();
-					}	
-				}
-				Arrays.parallelSort(bicsymbols[col]);
-				bicsymbols[col] = shuffle(order, bicsymbols[col]);
+			for(int col = 0; col < numCols; col++) {
+				generateSortedValues(sorted, realValued, min, max);
+				for(int i = 0; i < numRows; i++)
+					bicsymbols[order[i] * numCols + col] = sorted[i];
 			}
-			
-			bicsymbols = transposeMatrix(bicsymbols, "x", "y");
 		}
 		else if(columnType.equals(PatternType.ORDER_PRESERVING)) {
 
-			bicsymbols = new Double[bicK.getNumRows()][bicK.getNumCols()];
-			
-			Integer[] order = null;
+			int[] order = null;
 			if(timeProfile.equals(TimeProfile.RANDOM))
-				order = generateOrder(bicK.getNumRows());
-			
+				order = generateOrder(numCols);
+			double[] sorted = new double[numCols];
 			
-			for(int row = 0; row < bicK.getNumRows(); row++) {
-				for(int col = 0; col < bicK.getNumCols(); col++) {
-					
-
-					double minValue = min;
-					double maxValue = max;
-
-					bicsymbols[row][col] = minValue + (maxValue - minValue) * random.nextDouble();
-
-					if(!realValued) {
-						if(Double.compare(Math.round(bicsymbols[row][col]), minValue) >= 0 && 
-								Double.compare(Math.round(bicsymbols[row][col]), maxValue) <= 0)
-							bicsymbols[row][col] = (double) Math.round(bicsymbols[row][col]);
-						else
-							bicsymbols[row][col] = (double) bicsymbols[row][col].intValue();
-					}	
-				}
+			for(int row = 0; row < numRows; row++) {
+				
+				generateSortedValues(sorted, realValued, min, max);
+				int offset = row * numCols;
 				
 				if(timeProfile.equals(TimeProfile.RANDOM)) {
-					Arrays.parallelSort(bicsymbols[row]);
-					bicsymbols[row] = shuffle(order, bicsymbols[row]);
+					for(int i = 0; i < numCols; i++)
+						bicsymbols[offset + order[i]] = sorted[i];
 				}
 				else if(timeProfile.equals(TimeProfile.MONONICALLY_INCREASING))
-					Arrays.sort(bicsymbols[row]);
+					System.arraycopy(sorted, 0, bicsymbols, offset, numCols);
 				
 				else
-					Arrays.sort(bicsymbols[row], Collections.reverseOrder());
+					for(int i = 0; i < numCols; i++)
+						bicsymbols[offset + numCols - 1 - i] = sorted[i];
 			}
 		}
 		return bicsymbols;
 	}
 
-	protected Integer[] generateOrder(int size) {
-		Integer[] order = new Integer[size];
-		for(int i = 0; i < size; i++)
-			order[i] = i;
-		Collections.shuffle(Arrays.asList(order), RandomObject.getInstance());
-		return order;
-	}
-	
-	private Double[] shuffle(Integer[] order, Double[] array) {
-		
-		Double[] newArray = new Double[array.length];
-		
-		for(int i = 0; i < order.length; i++) {
-			newArray[order[i]] = array[i];
+	/**
+	 * Draws uniform values in [min, max) already in ascending order, from the normalized partial sums of exponential
+	 * spacings (the i-th sum over the total of n+1 spacings is distributed as the i-th smallest of n uniforms)
+	 * @param sorted The buffer to fill
+	 * @param realValued Whether the values are real, or rounded to integers
+	 * @param min The minimum value
+	 * @param max The maximum value
+	 */
+	private void generateSortedValues(double[] sorted, boolean realValued, double min, double max) {
+		Random random = random();
+
+		double sum = 0;
+		for(int i = 0; i < sorted.length; i++) {
+			sum -= Math.log(1.0 - random.nextDouble());
+			sorted[i] = sum;
 		}
-		
-		return newArray;
-	}
-	
-	protected Double[][] generateConstant(boolean realValued, SingleBiclusterPattern pattern, NumericBicluster<Double> bicK, double min,
-			double max){
+		sum -= Math.log(1.0 - random.nextDouble());
 
-		Double[][] bicsymbols = new Double[bicK.getNumRows()][bicK.getNumCols()];
+		//rounding to the alphabet keeps the order (it never maps a value below the one of a smaller value)
+		for(int i = 0; i < sorted.length; i++) {
+			double value = min + (max - min) * (sorted[i] / sum);
+			sorted[i] = realValued ? value : roundToAlphabet(value, min, max);
+		}
+	}
 
-		PatternType rowType = pattern.getRowsPattern();
-		PatternType columnType = pattern.getColumnsPattern();
+	/**
+	 * Round a value to an integer within [min, max], truncating it if rounding would cross the limits
+	 * @param value The value
+	 * @param min The minimum value
+	 * @param max The maximum value
+	 * @return the integer value
+	 */
+	private static double roundToAlphabet(double value, double min, double max) {
+		double rounded = Math.round(value);
+		return (rounded >= min && rounded <= max) ? rounded : (int) value;
+	}
 
-		double seed;
-		double maxValue = max;
-		double minValue = min;
+	/**
+	 * Check that the values of a bicluster are within the limits
+	 * @param bicsymbols The bicluster's values
+	 * @param min The minimum value
+	 * @param max The maximum value
+	 * @throws ExceedBiclusterBoundsException If a value is out of the limits
+	 */
+	private static void checkBiclusterBounds(double[] bicsymbols, double min, double max) throws ExceedBiclusterBoundsException {
 
-		if(rowType.equals(PatternType.CONSTANT) && columnType.equals(PatternType.CONSTANT)) {
+		double lowest = PatternKernels.min(bicsymbols, 0, bicsymbols.length);
+		double highest = PatternKernels.max(bicsymbols, 0, bicsymbols.length);
 
-			//System.out.println("MaxValue = " + maxValue);
-			//System.out.println("MinValue = " + minValue);
+		if(lowest < min)
+			throw new ExceedBiclusterBoundsException("Exceeded Bicluster limits: Value = " + lowest);
+		if(highest > max)
+			throw new ExceedBiclusterBoundsException("Exceeded Bicluster limits: Value = " + highest);
+	}
 
-			seed = minValue + (maxValue - minValue) * random.nextDouble();
+	/**
+	 * Switch to the random stream of a bicluster's generation attempt, so that each bicluster is drawn from its own stream
+	 * @param data The dataset being generated
+	 * @param k The bicluster ID
+	 * @param attempt The number of the bicluster's attempt, counted from 0 for each bicluster (attempts that fail to place
+	 * a bicluster are retried with a new stream), so that no bicluster's stream depends on the retries of the others
+	 */
+	protected void useBiclusterStream(Dataset data, int k, int attempt) {
+		streams.set(RandomObject.getStream(data.getSeed(), RandomObject.BICLUSTERS, k, attempt));
+	}
 
-			if(!realValued) {
-				if(Double.compare(Math.round(seed), minValue) >= 0 && Double.compare(Math.round(seed), maxValue) <= 0)
-					seed = Math.round(seed);
-				else
-					seed = (int) seed;
-			}	
+	/**
+	 * Switch to a given random stream, such as the stream a generation plan keeps for a bicluster's pattern
+	 * @param stream The random stream
+	 */
+	protected void useStream(Random stream) {
+		streams.set(stream);
+	}
 
-			//System.out.println("Seed: " +  seed);
+	/**
+	 * The writing of a bicluster's synthesized values into the dataset
+	 */
+	protected interface Planting {
+		void plant() throws Exception;
+	}
 
-			
-			for(int row = 0; row < bicK.getNumRows(); row++) 
-				for (int col = 0; col < bicK.getNumCols(); col++)
-					bicsymbols[row][col] = seed;	
-									
-			bicK.setSeed(bicsymbols);
-		}
-		else if(columnType.equals(PatternType.CONSTANT)) {
-			
-			for (int row = 0; row < bicK.getNumRows(); row++) {
+	/**
+	 * Reserve a bicluster's elements, that is, index them as planted before its values are written, so that the
+	 * next biclusters are placed around them while its pattern is still being synthesized
+	 * @param data The dataset being generated
+	 * @param k The bicluster ID
+	 * @param rows The bicluster's rows
+	 * @param cols The bicluster's columns
+	 */
+	protected void reserveElements(Dataset data, int k, int[] rows, int[] cols) {
+		for(int row : rows)
+			for(int col : cols)
+				data.addElement(data.getElementKey(row, col), k);
+	}
 
-				seed = minValue + (maxValue - minValue) * random.nextDouble();
+	/**
+	 * Synthesize a bicluster's pattern on the common fork-join pool, with the random stream the calling thread is
+	 * using for it. The bicluster's elements must have been reserved and cannot overlap other biclusters, so the
+	 * synthesis reads nothing that later biclusters write. The returned plantings run on the calling thread, in ID
+	 * order, as the syntheses complete (with a bounded number in flight) or when plantPending is called
+	 * @param synthesis The synthesis of the pattern, giving the planting of its values
+	 * @throws Exception The exception of the first failed synthesis or planting
+	 */
+	protected void plantInParallel(Callable<Planting> synthesis) throws Exception {
 
-				if(!realValued) {
-					if(Double.compare(Math.round(seed), minValue) >= 0 && Double.compare(Math.round(seed), maxValue) <= 0)
-						seed = Math.round(seed);
-					else
-						seed = (int) seed;
-				}
+		Random stream = random();
+		ForkJoinPool pool = ForkJoinPool.commonPool();
 
-				for(int col = 0; col < bicK.getNumCols(); col++)
-					bicsymbols[row][col] = seed;
+		pendingPlantings.add(pool.submit(() -> {
+			Random previous = streams.get();
+			streams.set(stream);
+			try {
+				return synthesis.call();
 			}
-			
+			finally {
+				streams.set(previous);
+			}
+		}));
+
+		while(!pendingPlantings.isEmpty()
+				&& (pendingPlantings.size() > 2 * pool.getParallelism() || pendingPlantings.peek().isDone()))
+			plantNext();
+	}
+
+	/**
+	 * Plant the biclusters whose patterns are still being synthesized in parallel
+	 * @throws Exception The exception of the first failed synthesis or planting
+	 */
+	protected void plantPending() throws Exception {
+		while(!pendingPlantings.isEmpty())
+			plantNext();
+	}
+
+	private void plantNext() throws Exception {
+
+		ForkJoinTask<Planting> next = pendingPlantings.poll();
+		try {
+			next.get().plant();
 		}
-		else if(rowType.equals(PatternType.CONSTANT)) {
-			for (int col = 0; col < bicK.getNumCols(); col++) {
+		catch(Exception e) {
+			for(ForkJoinTask<Planting> pending : pendingPlantings)
+				pending.cancel(false);
+			pendingPlantings.clear();
+			if(e instanceof ExecutionException && e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+	}
 
-				seed = minValue + (maxValue - minValue) * random.nextDouble();
+	/**
+	 * Set whether the biclusters that cannot overlap others are synthesized in parallel (the dataset is the same)
+	 * @param b true to synthesize them on the common fork-join pool, false to generate them one after another
+	 */
+	public void setParallelPlanting(boolean b) {
+		this.parallelPlanting = b;
+	}
 
-				if(!realValued) {
-					if(Double.compare(Math.round(seed), minValue) >= 0 && Double.compare(Math.round(seed), maxValue) <= 0)
-						seed = Math.round(seed);
-					else
-						seed = (int) seed;
-				}
+	/**
+	 * Check if the biclusters that cannot overlap others are synthesized in parallel
+	 * @return true if they are synthesized on the common fork-join pool, false otherwise
+	 */
+	public boolean isParallelPlanting() {
+		return this.parallelPlanting;
+	}
 
-				for(int row = 0; row < bicK.getNumRows(); row++)
-					bicsymbols[row][col] = seed;
-			}
+	/**
+	 * Get the random stream of the bicluster that the calling thread is generating
+	 * @return The random stream
+	 */
+	protected Random random() {
+		return streams.get();
+	}
+
+	protected int[] generateOrder(int size) {
+		Random random = random();
+		int[] order = new int[size];
+		for(int i = 0; i < size; i++)
+			order[i] = i;
+		for(int i = size; i > 1; i--) {
+			int j = random.nextInt(i);
+			int swap = order[i - 1];
+			order[i - 1] = order[j];
+			order[j] = swap;
 		}
-		else {
+		return order;
+	}
+	
+	protected double[] generateConstant(boolean realValued, SingleBiclusterPattern pattern, NumericBicluster<Double> bicK, double min,
+			double max){
 
-			for(int row = 0; row < bicK.getNumRows(); row++) {
-				for (int col = 0; col < bicK.getNumCols(); col++) {
-					seed = minValue + (maxValue - minValue) * random.nextDouble();
+		int numRows = bicK.getNumRows();
+		int numCols = bicK.getNumCols();
+		double[] bicsymbols = new double[numRows * numCols];
 
-					if(!realValued) {
-						if(Double.compare(Math.round(seed), minValue) >= 0 && Double.compare(Math.round(seed), maxValue) <= 0)
-							seed = Math.round(seed);
-						else
-							seed = (int) seed;
-					}
+		PatternType rowType = pattern.getRowsPattern();
+		PatternType columnType = pattern.getColumnsPattern();
 
-					bicsymbols[row][col] = seed;
-				}
-			}
-			bicK.setSeed(bicsymbols);
+		if(rowType.equals(PatternType.CONSTANT) && columnType.equals(PatternType.CONSTANT)) {
+			Arrays.fill(bicsymbols, drawConstant(realValued, min, max));
+		}
+		else if(columnType.equals(PatternType.CONSTANT)) {
+			//one value per row
+			for (int row = 0; row < numRows; row++)
+				Arrays.fill(bicsymbols, row * numCols, (row + 1) * numCols, drawConstant(realValued, min, max));
+		}
+		else if(rowType.equals(PatternType.CONSTANT)) {
+			//one value per column, repeated on every row
+			for (int col = 0; col < numCols; col++)
+				bicsymbols[col] = drawConstant(realValued, min, max);
+			for(int row = 1; row < numRows; row++)
+				System.arraycopy(bicsymbols, 0, bicsymbols, row * numCols, numCols);
+		}
+		else {
+			for(int i = 0; i < bicsymbols.length; i++)
+				bicsymbols[i] = drawConstant(realValued, min, max);
 		}
 
 		return bicsymbols;
 	}
 
+	private double drawConstant(boolean realValued, double min, double max) {
+		Random random = random();
+		double seed = min + (max - min) * random.nextDouble();
+		return realValued ? seed : roundToAlphabet(seed, min, max);
+	}
+
 	private Pair<Double, Double> getCombinedContributions(double minRowCont, double maxRowCont, double minColCont,
 			double maxColCont){
 
@@ -1267,7 +1521,7 @@ public abstract class BiclusterDatasetGenerator extends Observable {
 		return new Pair<>(conts[0], conts[3]);
 	}	
 	
-	protected  String[] shuffle(Integer[] order, String[] array) {
+	protected  String[] shuffle(int[] order, String[] array) {
 		
 		String[] newArray = new String[array.length];
 		
@@ -7,8 +7,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.apache.commons.math3.util.Pair;
 
@@ -34,19 +32,23 @@ import com.gbic.utils.BiclusterPatternWrapper;
 import com.gbic.utils.BiclusterStructure;
 import com.gbic.utils.ComposedBiclusterPattern;
 import com.gbic.utils.OverlappingSettings;
+import com.gbic.utils.PatternKernels;
 import com.gbic.utils.SingleBiclusterPattern;
-import com.gbic.utils.RandomObject;
+import com.gbic.utils.IndexUnion;
+import com.gbic.utils.OccupancyIndex;
 
 public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 
 	private HeterogeneousDataset data;
-	private Random random = RandomObject.getInstance();
 	private boolean allowsOverlap = false;
 	private boolean realValued;
 	private int numBics;
 	private int numRows;
 	private int numCols;
 	private Set<Integer> chosenCols;
+	//rows and columns of the biclusters planted so far, left out when drawing free ones
+	private IndexUnion excludedRows;
+	private IndexUnion excludedCols;
 
 	/**
 	 * Constructor
@@ -81,6 +83,8 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 		this.numRows = data.getNumRows();
 		this.numCols = data.getNumCols();
 		this.chosenCols = new HashSet<>();
+		this.excludedRows = new IndexUnion(numRows);
+		this.excludedCols = new IndexUnion(numCols);
 
 		int[][] bicsRows = new int[numBics][];
 		int[][] bicsCols = new int[numBics][];
@@ -90,8 +94,17 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 		double minOverlap = (plaidPattern.equals(PlaidCoherency.MULTIPLICATIVE)) ? 1 : 0;
 		
 		int numAttempts = 0;
+		//the bicluster whose stream is in use, and how many times it was attempted so far
+		int streamK = -1;
+		int attempt = 0;
 		
 		for (Integer k = 0; k < numBics; k++) {
+
+			if(k != streamK) {
+				streamK = k;
+				attempt = 0;
+			}
+			useBiclusterStream(data, k, attempt++);
 		
 			changeState("Stage:1, Msg:Bicluster " + k);
 			
@@ -105,37 +118,30 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 			int patternsSize = bicPatterns.size();
 			
 			if(numBics <  patternsSize)
-				currentPattern = bicPatterns.get(random.nextInt(patternsSize));
+				currentPattern = bicPatterns.get(random().nextInt(patternsSize));
 			else
 				currentPattern = bicPatterns.get(k % patternsSize);
 				
 			/** PART IV: select biclusters with (non-)overlapping elements **/
 			int[] bicsWithOverlap = null;
-			int[] bicsExcluded = null;
 
 			if (this.allowsOverlap) {				
 				if (k % maxBicsPerOverlappedArea != 0)
 					bicsWithOverlap = new int[] { k - 1 };
-	
-				int l = Math.max((k / maxBicsPerOverlappedArea) * maxBicsPerOverlappedArea, k-1);
-				//int l = (k / maxBicsPerOverlappedArea) * maxBicsPerOverlappedArea;
-				bicsExcluded = new int[l];
-				for (int i = 0; i < l; i++)
-					bicsExcluded[i] = i;
 			}
 
 			boolean success = false;
 			
 			if(currentPattern.getBiclusterType().equals(BiclusterType.MIXED)) {
 				MixedBicluster bicK = generateMixedBicluster(k, (ComposedBiclusterPattern) currentPattern, bicStructure, bicsRows, bicsCols, 
-						bicsWithOverlap, bicsExcluded, overlapping, maxBicsPerOverlappedArea, plaidPattern, minOverlap, maxOverlap);
+						bicsWithOverlap, overlapping, maxBicsPerOverlappedArea, plaidPattern, minOverlap, maxOverlap);
 				
 				if(success = (bicK != null))
 					data.addPlantedMixedBic(bicK);
 			}
 			else if(currentPattern.getBiclusterType().equals(BiclusterType.NUMERIC)) {
 				NumericBicluster<Double> bicK = (NumericBicluster<Double>) generateNormalBiclusters(k, (SingleBiclusterPattern) currentPattern, 
-						bicStructure, bicsRows, bicsCols, bicsWithOverlap, bicsExcluded, overlapping, maxBicsPerOverlappedArea, plaidPattern,
+						bicStructure, bicsRows, bicsCols, bicsWithOverlap, overlapping, maxBicsPerOverlappedArea, plaidPattern,
 						minOverlap, maxOverlap);
 				
 				if(success = (bicK != null))
@@ -143,7 +149,7 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 			}
 			else {
 				SymbolicBicluster bicK = (SymbolicBicluster) generateNormalBiclusters(k, (SingleBiclusterPattern) currentPattern, bicStructure, 
-						bicsRows, bicsCols, bicsWithOverlap, bicsExcluded, overlapping, maxBicsPerOverlappedArea, plaidPattern, minOverlap, maxOverlap);
+						bicsRows, bicsCols, bicsWithOverlap, overlapping, maxBicsPerOverlappedArea, plaidPattern, minOverlap, maxOverlap);
 				
 				if(success = (bicK != null))
 					data.addPlantedSymbolicBic(bicK);
@@ -158,15 +164,21 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 				else
 					numAttempts++;
 			}
-			else
+			else {
 				numAttempts = 0;
+				if(allowsOverlap) {
+					excludedRows.addAll(bicsRows[k]);
+					excludedCols.addAll(bicsCols[k]);
+				}
+			}
 		}
 
+		plantPending();
 		return data;
 	}
 	
 	private Bicluster generateNormalBiclusters(Integer k, SingleBiclusterPattern currentPattern, BiclusterStructure bicStructure, int[][] bicsRows, 
-			int[][] bicsCols, int[] bicsWithOverlap, int[] bicsExcluded, OverlappingSettings overlapping, int maxBicsPerOverlappedArea, 
+			int[][] bicsCols, int[] bicsWithOverlap, OverlappingSettings overlapping, int maxBicsPerOverlappedArea, 
 			PlaidCoherency plaidPattern, double minOverlap, double maxOverlap) throws Exception{
 	
 		int numRowsBics = 0;
@@ -210,36 +222,36 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 			
 			System.out.println("Bic " + (k+1) + " - Generating columns...");
 			bicsCols[k] = generate(numColsBics, validCols, overlappingColsPerc, bicsCols, bicsWithOverlap,
-					bicsExcluded, bicStructure.getContiguity().equals(Contiguity.COLUMNS), range);
-			System.out.println("Columns: " + bicsCols[k].length);
+					excludedCols, bicStructure.getContiguity().equals(Contiguity.COLUMNS), range);
 			
-			System.out.println("Bic " + (k+1) + " - Generating rows...");
-			bicsRows[k] = generateRows(numRowsBics, numRows, overlappingRowsPerc, bicsRows, bicsWithOverlap,
-					bicsExcluded, bicsCols[k], data.getElements());
-			System.out.println("Rows: " + bicsRows[k].length);
+			if(bicsCols[k] != null) {
+				System.out.println("Columns: " + bicsCols[k].length);
+				System.out.println("Bic " + (k+1) + " - Generating rows...");
+				bicsRows[k] = generateRows(numRowsBics, numRows, overlappingRowsPerc, bicsRows, bicsWithOverlap,
+						excludedRows, bicsCols[k], data);
+			}
+			else
+				bicsRows[k] = null;
 		}
 		else {
 			
-			System.out.println("Bic " + (k+1) + " - Generating columns...");
-			bicsCols[k] = generateNonOverlappingOthers(numColsBics, numCols, chosenCols, bicStructure.getContiguity().equals(Contiguity.COLUMNS),
-					range);
+			System.out.println("Bic " + (k+1) + " - Placing rows and columns...");
+			int[][] placement = placeNonOverlapping(k, numRowsBics, numRows, new int[] {numColsBics}, Collections.singletonList(range),
+					bicStructure.getContiguity().equals(Contiguity.COLUMNS), chosenCols, data);
+			bicsRows[k] = placement[0];
+			bicsCols[k] = placement[1];
 			System.out.println("Columns: " + bicsCols[k].length);
-			
-			
-			System.out.println("Bic " + (k+1) + " - Generating rows...");
-			bicsRows[k] = generateNonOverlappingRows(numRowsBics, numRows, bicsCols[k], data.getElements());
-			System.out.println("Rows: " + bicsRows[k].length);
 		}
 		
 		if(bicsRows[k] != null) {
 			
 			System.out.println("Bic " + (k+1) + " - Has space, lets plant the patterns");
+			System.out.println("Rows: " + bicsRows[k].length);
 
 			Arrays.parallelSort(bicsRows[k]);
 			Arrays.parallelSort(bicsCols[k]);
 			
-			for (Integer c : bicsCols[k])
-				chosenCols.add(c);
+			useColumns(bicsCols[k], chosenCols);
 
 			PatternType rowType = currentPattern.getRowsPattern();
 			PatternType columnType = currentPattern.getColumnsPattern();
@@ -247,18 +259,21 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 			
 			if(currentPattern.getBiclusterType().equals(BiclusterType.NUMERIC)) {
 				
-				bicK = new NumericBicluster<>(k, BicMath.getSet(bicsRows[k]), 
-					BicMath.getSet(bicsCols[k]), rowType, columnType, new Double[numRowsBics], new Double[numColsBics], plaidPattern, timeProfile);
+				NumericBicluster<Double> numericBicK = new NumericBicluster<>(k, bicsRows[k], bicsCols[k], rowType, columnType, new double[numRowsBics],
+					new double[numColsBics], plaidPattern, timeProfile);
 			
-				bicK = generateNumericCoherency((NumericBicluster<Double>) bicK, bicsRows[k], bicsCols[k], maxBicsPerOverlappedArea, plaidPattern, maxOverlap,
-						minOverlap, (SingleBiclusterPattern) currentPattern);
+				plantComponents(k, bicsRows[k], bicsCols[k], numericBicK, currentPattern, null, null, maxBicsPerOverlappedArea, plaidPattern,
+						maxOverlap, minOverlap);
+				bicK = numericBicK;
 			}
 			else {				
 				
-				bicK = new SymbolicBicluster(k, BicMath.getSet(bicsRows[k]), BicMath.getSet(bicsCols[k]), rowType, columnType, 
+				SymbolicBicluster symbolicBicK = new SymbolicBicluster(k, bicsRows[k], bicsCols[k], rowType, columnType, 
 						overlapping.getPlaidCoherency(), timeProfile);
 				
-				bicK = generateSymbolicCoherency((SymbolicBicluster) bicK, bicsRows[k], bicsCols[k], (SingleBiclusterPattern) currentPattern, data.getAlphabet());
+				plantComponents(k, bicsRows[k], bicsCols[k], null, null, symbolicBicK, currentPattern, maxBicsPerOverlappedArea, plaidPattern,
+						maxOverlap, minOverlap);
+				bicK = symbolicBicK;
 			}	
 		}
 		
@@ -266,7 +281,7 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 	}
 	
 	private MixedBicluster generateMixedBicluster(Integer k, ComposedBiclusterPattern currentPattern, BiclusterStructure bicStructure, 
-			int[][] bicsRows, int[][] bicsCols, int[] bicsWithOverlap, int[] bicsExcluded, OverlappingSettings overlapping, 
+			int[][] bicsRows, int[][] bicsCols, int[] bicsWithOverlap, OverlappingSettings overlapping, 
 			int maxBicsPerOverlappedArea,  PlaidCoherency plaidPattern, double minOverlap, double maxOverlap) throws Exception{
 		
 		int numRowsBics;
@@ -275,9 +290,6 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 		int[] symbolicCols;
 		MixedBicluster bicK = null;
 		
-		SortedSet<Integer> chosenNumericCols = new TreeSet<>();
-		SortedSet<Integer> chosenSymbolicCols = new TreeSet<>();
-
 		Map<String, Integer> structure = generateBicStructure(bicStructure, numRows, numCols);
 
 		numRowsBics = structure.get("rows");
@@ -289,11 +301,11 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 		
 		//Split bic columns in numeric and symbolic
 		if(data.getSymbolicCols() < data.getNumericCols()) {
-			numSymbolicColsBics = random.nextInt(Math.min(data.getSymbolicCols(), numColsBics) - 1) + 1;
+			numSymbolicColsBics = random().nextInt(Math.min(data.getSymbolicCols(), numColsBics) - 1) + 1;
 			numNumericColsBics = numColsBics - numSymbolicColsBics;
 		}
 		else {
-			numNumericColsBics = random.nextInt(Math.min(data.getNumericCols(), numColsBics) - 1) + 1;
+			numNumericColsBics = random().nextInt(Math.min(data.getNumericCols(), numColsBics) - 1) + 1;
 			numSymbolicColsBics = numColsBics - numNumericColsBics;
 		}
 
@@ -319,30 +331,29 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 			
 			System.out.println("Bic " + (k+1) + " - Generating columns...");
 			numericCols = generate(numNumericColsBics, data.getNumericCols(), overlappingColsPerc, bicsCols, bicsWithOverlap,
-					bicsExcluded, bicStructure.getContiguity().equals(Contiguity.COLUMNS), rangeNumeric);
-			System.out.println("NumericColumns: " + numericCols.length);
+					excludedCols, bicStructure.getContiguity().equals(Contiguity.COLUMNS), rangeNumeric);
 			
 			symbolicCols = generate(numSymbolicColsBics, data.getNumCols(), overlappingColsPerc, bicsCols, bicsWithOverlap,
-					bicsExcluded, bicStructure.getContiguity().equals(Contiguity.COLUMNS), rangeSymbolic);
+					excludedCols, bicStructure.getContiguity().equals(Contiguity.COLUMNS), rangeSymbolic);
+			
+			if(numericCols == null || symbolicCols == null)
+				return null;
+			
+			System.out.println("NumericColumns: " + numericCols.length);
 			System.out.println("SymbolicColumns: " + symbolicCols.length);
 			
 			
 			bicsCols[k] = new int[numericCols.length + symbolicCols.length];
 			
-			for(int n = 0; n < numericCols.length; n++) {
-				chosenNumericCols.add(numericCols[n]);
+			for(int n = 0; n < numericCols.length; n++)
 				bicsCols[k][n] = numericCols[n];
-				}
 			
-			for(int c = 0; c < symbolicCols.length; c++) {
-				chosenSymbolicCols.add(symbolicCols[c]);
+			for(int c = 0; c < symbolicCols.length; c++)
 				bicsCols[k][c + numericCols.length] = symbolicCols[c];
-			}
 			
 			System.out.println("Bic " + (k+1) + " - Generating rows...");
 			bicsRows[k] = generateRows(numRowsBics, numRows, overlappingRowsPerc, bicsRows, bicsWithOverlap,
-					bicsExcluded, bicsCols[k], data.getElements());
-			System.out.println("Rows: " + bicsRows[k].length);
+					excludedRows, bicsCols[k], data);
 		}
 		else {
 
@@ -355,39 +366,27 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 			Pair<Integer, Integer> rangeNumeric = new Pair<>(lowNumeric, highNumeric);
 			Pair<Integer, Integer> rangeSymbolic = new Pair<>(lowSymbolic, highSymbolic);
 			
-			System.out.println("Bic " + (k+1) + " - Generating columns...");
+			System.out.println("Bic " + (k+1) + " - Placing rows and columns...");
+			int[][] placement = placeNonOverlapping(k, numRowsBics, numRows, new int[] {numNumericColsBics, numSymbolicColsBics},
+					Arrays.asList(rangeNumeric, rangeSymbolic), bicStructure.getContiguity().equals(Contiguity.COLUMNS), chosenCols, data);
 			
-			numericCols = generateNonOverlappingOthers(numNumericColsBics, data.getNumericCols(), chosenCols, bicStructure.getContiguity().equals(Contiguity.COLUMNS),
-					rangeNumeric);
+			numericCols = Arrays.copyOfRange(placement[1], 0, numNumericColsBics);
 			System.out.println("Numeric Columns: " + numericCols.length);
 			
-			symbolicCols = generateNonOverlappingOthers(numSymbolicColsBics, data.getNumCols(), chosenCols, bicStructure.getContiguity().equals(Contiguity.COLUMNS),
-					rangeSymbolic);
+			symbolicCols = Arrays.copyOfRange(placement[1], numNumericColsBics, placement[1].length);
 			System.out.println("Symbolic Columns: " + symbolicCols.length);
 			
-			bicsCols[k] = new int[numericCols.length + symbolicCols.length];
-			
-			for(int n = 0; n < numericCols.length; n++) {
-				chosenNumericCols.add(numericCols[n]);
-				bicsCols[k][n] = numericCols[n];
-				}
-			
-			for(int c = 0; c < symbolicCols.length; c++) {
-				chosenSymbolicCols.add(symbolicCols[c]);
-				bicsCols[k][c + numericCols.length] = symbolicCols[c];
-			}
+			bicsCols[k] = placement[1];
 		
-			System.out.println("Bic " + (k+1) + " - Generating rows...");
-			bicsRows[k] = generateNonOverlappingRows(numRowsBics, numRows, bicsCols[k], data.getElements());
-			System.out.println("Rows: " + bicsRows[k].length);
+			bicsRows[k] = placement[0];
 		}
 
 		if(bicsRows[k] != null) {
 			
 			System.out.println("Bic " + (k+1) + " - Has space, lets plant the patterns");
+			System.out.println("Rows: " + bicsRows[k].length);
 			
-			for (Integer c : bicsCols[k])
-				chosenCols.add(c);
+			useColumns(bicsCols[k], chosenCols);
 
 			Arrays.parallelSort(bicsRows[k]);
 			Arrays.parallelSort(bicsCols[k]);
@@ -407,33 +406,76 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 			TimeProfile symbolicTimeProfile = currentPattern.getSymbolicTP();
 			
 			
-			numericComponent = new NumericBicluster<>(k, BicMath.getSet(bicsRows[k]), 
-					chosenNumericCols, numericRowType, numericColumnType, new Double[numRowsBics], new Double[numNumericColsBics],
+			numericComponent = new NumericBicluster<>(k, bicsRows[k], 
+					numericCols, numericRowType, numericColumnType, new double[numRowsBics], new double[numNumericColsBics],
 					plaidPattern, numericTimeProfile);
 		
 			
 			
-			symbolicComponent = new SymbolicBicluster(k, BicMath.getSet(bicsRows[k]), chosenSymbolicCols, symbolicRowType, symbolicColumnType, 
+			symbolicComponent = new SymbolicBicluster(k, bicsRows[k], symbolicCols, symbolicRowType, symbolicColumnType, 
 					overlapping.getPlaidCoherency(), symbolicTimeProfile);
 			
-			bicK = new MixedBicluster(k, numericComponent, symbolicComponent, BicMath.getSet(bicsRows[k]));
+			bicK = new MixedBicluster(k, numericComponent, symbolicComponent, bicsRows[k]);
 			
-			generateNumericCoherency(numericComponent, bicsRows[k], numericCols, maxBicsPerOverlappedArea, plaidPattern, maxOverlap, minOverlap, 
-					currentPattern.getComponentPattern(false));
-			
-			generateSymbolicCoherency(symbolicComponent, bicsRows[k], symbolicCols, currentPattern.getComponentPattern(true), data.getAlphabet());			
+			plantComponents(k, bicsRows[k], bicsCols[k], numericComponent, currentPattern.getComponentPattern(false), symbolicComponent,
+					currentPattern.getComponentPattern(true), maxBicsPerOverlappedArea, plaidPattern, maxOverlap, minOverlap);
 		}
 		
 		return bicK;
 	}
+
+	/**
+	 * Synthesize and plant the numeric and the symbolic component of a bicluster (either may be null). When the bicluster
+	 * overlaps no other, its elements are reserved and the components are synthesized in parallel (see plantInParallel)
+	 * @param k The bicluster ID
+	 * @param bicRows The bicluster's rows
+	 * @param bicCols The bicluster's columns (numeric and symbolic)
+	 * @param numericComponent The numeric component
+	 * @param numericPattern The numeric component's pattern
+	 * @param symbolicComponent The symbolic component
+	 * @param symbolicPattern The symbolic component's pattern
+	 * @throws Exception
+	 */
+	private void plantComponents(int k, int[] bicRows, int[] bicCols, NumericBicluster<Double> numericComponent, SingleBiclusterPattern numericPattern,
+			SymbolicBicluster symbolicComponent, SingleBiclusterPattern symbolicPattern, int maxBicsPerOverlappedArea, PlaidCoherency plaidPattern,
+			double maxOverlap, double minOverlap) throws Exception {
+
+		if(!this.allowsOverlap && isParallelPlanting()) {
+			//Its elements overlap no other bicluster: reserve them, and place the next biclusters while its pattern is synthesized
+			reserveElements(data, k, bicRows, bicCols);
+			plantInParallel(() -> {
+				double[] values = (numericComponent == null) ? null : generateNumericPattern(numericComponent, bicRows,
+						numericComponent.getColumnArray(), maxBicsPerOverlappedArea, plaidPattern, maxOverlap, minOverlap, numericPattern);
+				String[][] symbols = (symbolicComponent == null) ? null : generateSymbols(symbolicComponent, bicRows,
+						symbolicComponent.getColumnArray(), symbolicPattern, data.getAlphabet());
+				return () -> {
+					if(values != null)
+						plantNumericBicluster(k, bicRows, numericComponent.getColumnArray(), values, plaidPattern, true);
+					if(symbols != null)
+						plantSymbolicBicluster(k, bicRows, symbolicComponent.getColumnArray(), symbols, true);
+				};
+			});
+			return;
+		}
+
+		if(numericComponent != null) {
+			double[] values = generateNumericPattern(numericComponent, bicRows, numericComponent.getColumnArray(), maxBicsPerOverlappedArea,
+					plaidPattern, maxOverlap, minOverlap, numericPattern);
+			plantNumericBicluster(k, bicRows, numericComponent.getColumnArray(), values, plaidPattern, false);
+		}
+		if(symbolicComponent != null) {
+			String[][] symbols = generateSymbols(symbolicComponent, bicRows, symbolicComponent.getColumnArray(), symbolicPattern, data.getAlphabet());
+			plantSymbolicBicluster(k, bicRows, symbolicComponent.getColumnArray(), symbols, false);
+		}
+	}
 	
-	private NumericBicluster<Double> generateNumericCoherency(NumericBicluster<Double> bicK, int[] bicsRows, int[] bicsCols, int maxBicsPerOverlappedArea,
-			PlaidCoherency plaidPattern, double maxOverlapp, double minOverlapp, SingleBiclusterPattern currentPattern) throws ExceedDatasetBoundsException, ExceedBiclusterBoundsException {
+	private double[] generateNumericPattern(NumericBicluster<Double> bicK, int[] bicsRows, int[] bicsCols, int maxBicsPerOverlappedArea,
+			PlaidCoherency plaidPattern, double maxOverlapp, double minOverlapp, SingleBiclusterPattern currentPattern) throws ExceedBiclusterBoundsException {
 		
 		int k = bicK.getId();
 		
 		/** PART VI: generate biclusters coherencies **/
-		Double[][] bicsymbols = new Double[bicsRows.length][bicsCols.length];
+		double[] bicsymbols = null;
 
 		double maxAlphabet = realValued ? data.getMaxM().doubleValue() : data.getMaxM().intValue();
 		double minAlphabet = realValued ? data.getMinM().doubleValue() : data.getMinM().intValue();
@@ -463,7 +505,7 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 			//the previous one, we should check which are the maximum and minimum values on the area that will be overlapped by
 			//this new bicluster.
 			else {
-				overlappLimits = getLimitsOnOverlappedArea(this.data.getElements(), bicsRows, bicsCols);
+				overlappLimits = getLimitsOnOverlappedArea(bicsRows, bicsCols);
 			}
 
 
@@ -499,8 +541,13 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 				}
 
 				//when the alphabet is strictly positive
-				if(Double.compare(minAlphabet, 0) >= 0)
+				if(Double.compare(minAlphabet, 0) >= 0) {
 					maxAllowed = BicMath.nthRoot(maxAlphabet / maxOverlapp, (maxBicsPerOverlappedArea - (k % maxBicsPerOverlappedArea)));
+
+					//an overlapped area of zeros puts no bound on the factors
+					if(Double.compare(maxAllowed, maxAlphabet) > 0)
+						maxAllowed = maxAlphabet;
+				}
 				else { 
 					lowerBound = Math.min(Math.abs(minAlphabet), Math.abs(maxAlphabet));
 					maxAllowed = BicMath.nthRoot(lowerBound / maxOverlapp, (maxBicsPerOverlappedArea - (k % maxBicsPerOverlappedArea)));
@@ -531,81 +578,97 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 			bicsymbols = generateConstant(realValued, currentPattern, bicK, minAllowed, maxAllowed);
 		}
 
-		
+		return bicsymbols;
+	}
+
+	/**
+	 * Plant a numeric bicluster's values, composing each row with the layer below it where other biclusters hold its elements
+	 * @param k The bicluster ID
+	 * @param bicsRows The bicluster's rows
+	 * @param bicsCols The bicluster's numeric columns
+	 * @param bicsymbols The bicluster's values, in row-major order
+	 * @param plaidPattern The plaid coherency
+	 * @param reserved Whether the bicluster's elements were reserved (see reserveElements): they overlap no other
+	 * bicluster and are already indexed
+	 * @throws ExceedDatasetBoundsException
+	 */
+	private void plantNumericBicluster(int k, int[] bicsRows, int[] bicsCols, double[] bicsymbols, PlaidCoherency plaidPattern,
+			boolean reserved) throws ExceedDatasetBoundsException {
+
+		double maxAlphabet = realValued ? data.getMaxM().doubleValue() : data.getMaxM().intValue();
+		double minAlphabet = realValued ? data.getMinM().doubleValue() : data.getMinM().intValue();
+
 		/**
 		 * Part VII: generate the layers according to plaid type and put them in the
 		 * background
 		 **/
 		System.out.println("Bic " + (k+1) + " - planting the bic");
 		
+		int numColsBic = bicsCols.length;
+		boolean composes = !reserved && PatternKernels.composes(plaidPattern);
+		long[] columnMask = composes ? data.getOccupancy().columnMask(bicsCols) : null;
+		double[] below = new double[numColsBic];
+		double[] weight = new double[numColsBic];
+		
 		for (int row = 0; row < bicsRows.length; row++) {
-			for (int col = 0; col < bicsCols.length; col++) {
 
-				Double value = bicsymbols[row][col];
-
-				if(data.getElements().contains(bicsRows[row] + ":" + bicsCols[col])) {
-
-					switch (plaidPattern) {
-					case ADDITIVE:
-						value += data.getNumericElement(bicsRows[row], bicsCols[col]).doubleValue();
-						break;
-					case MULTIPLICATIVE:
-						value *= data.getNumericElement(bicsRows[row], bicsCols[col]).doubleValue();
-						break;
-					case INTERPOLED:
-						value = ((value + data.getNumericElement(bicsRows[row], bicsCols[col]).doubleValue()) / 2);
-
-						if(!realValued) {
-							if(Double.compare(Math.round(value), minAlphabet) >= 0 && 
-									Double.compare(Math.round(value), maxAlphabet) <= 0)
-								value = (double) Math.round(value);
-							else
-								value = (double) value.intValue();
-						}
-
-						break;
-					default:
-						break;
-					}			
-				}
+			int offset = row * numColsBic;
+			int rowId = bicsRows[row];
 
-				if(realValued)
-					data.setNumericElement(bicsRows[row], bicsCols[col], value);
-				else
-					data.setNumericElement(bicsRows[row], bicsCols[col], new Double(value.intValue()));
+			//Compose the row with the layer below it, if another bicluster holds any of its elements
+			if(composes && data.getOccupancy().intersectsRow(rowId, columnMask)) {
+				for (int col = 0; col < numColsBic; col++) {
+					boolean planted = data.isPlanted(rowId, bicsCols[col]);
+					below[col] = planted ? data.getNumericValue(rowId, bicsCols[col]) : PatternKernels.identity(plaidPattern);
+					weight[col] = planted ? 0.5 : 1;
+				}
+				PatternKernels.compose(plaidPattern, bicsymbols, offset, below, weight, numColsBic);
 
-				if(Double.compare(value.doubleValue(), minAlphabet) < 0 || Double.compare(value.doubleValue(), maxAlphabet) > 0)
-					throw new ExceedDatasetBoundsException("Exceeded dataset limits: Value = " + value.doubleValue());
+				if(!realValued && plaidPattern.equals(PlaidCoherency.INTERPOLED))
+					PatternKernels.roundToAlphabet(bicsymbols, offset, numColsBic, minAlphabet, maxAlphabet);
+			}
 
-				data.addElement(bicsRows[row] + ":" + bicsCols[col], bicK.getId());
+			double lowest = PatternKernels.min(bicsymbols, offset, numColsBic);
+			double highest = PatternKernels.max(bicsymbols, offset, numColsBic);
+			if(Double.compare(lowest, minAlphabet) < 0)
+				throw new ExceedDatasetBoundsException("Exceeded dataset limits: Value = " + lowest);
+			if(Double.compare(highest, maxAlphabet) > 0)
+				throw new ExceedDatasetBoundsException("Exceeded dataset limits: Value = " + highest);
+
+			for (int col = 0; col < numColsBic; col++) {
+				double value = bicsymbols[offset + col];
+				data.setNumericElement(rowId, bicsCols[col], realValued ? value : (int) value);
+				if(!reserved)
+					data.addElement(data.getElementKey(rowId, bicsCols[col]), k);
 			}
 		}
-		
-		return bicK;
 	}
 	
-	private Pair<Double, Double> getLimitsOnOverlappedArea(Set<String> existingValues, int[] rows, int[] cols) {
+	private Pair<Double, Double> getLimitsOnOverlappedArea(int[] rows, int[] cols) {
 
 		double min = this.data.getMaxM().doubleValue() + 1;
 		double max = this.data.getMinM().doubleValue() - 1 ;
 
-		
-		for(Integer row : rows) {
-			for(Integer col : cols) {
-				if(existingValues.contains(row + ":" + col)) {
-					double value = this.data.getNumericElement(row, col).doubleValue();
-					min = (Double.compare(value, min) < 0) ? value : min;
-					max = (Double.compare(value, max) > 0) ? value : max;
-				}
+		//only the elements other biclusters hold are read, found a word of columns at a time
+		OccupancyIndex occupancy = this.data.getOccupancy();
+		long[] columnMask = occupancy.columnMask(cols);
+		int[] taken = new int[cols.length];
+
+		for(int row : rows) {
+			int numTaken = occupancy.takenColumns(row, columnMask, taken);
+			for(int i = 0; i < numTaken; i++) {
+				double value = this.data.getNumericValue(row, taken[i]);
+				min = (Double.compare(value, min) < 0) ? value : min;
+				max = (Double.compare(value, max) > 0) ? value : max;
 			}
 		}
 		return new Pair<>(min, max);
 	}
 
-	private SymbolicBicluster generateSymbolicCoherency(SymbolicBicluster bicK, int[] bicsRows, int[] bicsCols, SingleBiclusterPattern currentPattern, 
+	private String[][] generateSymbols(SymbolicBicluster bicK, int[] bicsRows, int[] bicsCols, SingleBiclusterPattern currentPattern, 
 			String[] alphabet) {
 		
-		int k = bicK.getId();
+		Random random = random();
 		/** PART VI: generate biclusters coherencies **/
 		String[][] bicsymbols = new String[bicsRows.length][bicsCols.length];
 		
@@ -617,7 +680,7 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 		
 		if(rowType.equals(PatternType.ORDER_PRESERVING)) {
 			bicsymbols = new String[bicsCols.length][bicsRows.length];
-			Integer[] order = generateOrder(bicsRows.length);
+			int[] order = generateOrder(bicsRows.length);
 			
 			
 			for(int col = 0; col < numColsBics; col++) {
@@ -629,7 +692,7 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 			bicsymbols = transposeMatrix(bicsymbols, "x", "y");
 		}
 		else if(columnType.equals(PatternType.ORDER_PRESERVING)) {
-			Integer[] order = generateOrder(bicsCols.length);
+			int[] order = generateOrder(bicsCols.length);
 			for(int row = 0; row < numRowsBics; row++) {
 				for (int col = 0; col < numColsBics; col++)
 					bicsymbols[row][col] = alphabet[random.nextInt(alphabet.length)];
@@ -656,7 +719,7 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 					bicsymbols[row][col] = seed;	
 			
 		
-			bicK.setSeed(bicsymbols);
+			bicK.setSeed(seed);
 		}
 		else if(columnType.equals(PatternType.CONSTANT)) {
 				for (int row = 0; row < numRowsBics; row++) {
@@ -673,6 +736,19 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 				}
 		}
 
+		return bicsymbols;
+	}
+
+	/**
+	 * Plant a symbolic bicluster's symbols, over the symbols of any bicluster planted below it
+	 * @param k The bicluster ID
+	 * @param bicsRows The bicluster's rows
+	 * @param bicsCols The bicluster's symbolic columns
+	 * @param bicsymbols The bicluster's symbols
+	 * @param reserved Whether the bicluster's elements were reserved (see reserveElements) and are already indexed
+	 */
+	private void plantSymbolicBicluster(int k, int[] bicsRows, int[] bicsCols, String[][] bicsymbols, boolean reserved) {
+
 		/**
 		 * Part VII: generate the layers according to plaid type and put them in the
 		 * background
@@ -682,11 +758,10 @@ public class MixedDatasetGenerator extends BiclusterDatasetGenerator {
 		for (int row = 0; row < bicsRows.length; row++) {
 			for (int col = 0; col < bicsCols.length; col++) {
 				this.data.setSymbolicElement(bicsRows[row], bicsCols[col], bicsymbols[row][col]);
-				data.addElement(bicsRows[row] + ":" + bicsCols[col], k);
+				if(!reserved)
+					data.addElement(data.getElementKey(bicsRows[row], bicsCols[col]), k);
 			}
 		}
-		
-		return bicK;
 	}
 	
 	private Set<Integer> getChosenCols(){
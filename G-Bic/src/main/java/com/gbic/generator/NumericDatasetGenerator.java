@@ -12,35 +12,43 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 
 import org.apache.commons.math3.util.Pair;
 
 import com.gbic.domain.bicluster.NumericBicluster;
 import com.gbic.domain.dataset.Dataset;
+import com.gbic.domain.dataset.GenerationPlan;
 import com.gbic.domain.dataset.NumericDataset;
+import com.gbic.domain.dataset.PlannedBicluster;
+import com.gbic.domain.dataset.PlantedFormula;
+import com.gbic.domain.dataset.PlantedFormula.Operation;
 import com.gbic.exceptions.ExceedDatasetBoundsException;
 import com.gbic.exceptions.ExceedBiclusterBoundsException;
 import com.gbic.types.Background;
+import com.gbic.types.BiclusterType;
 import com.gbic.types.Contiguity;
 import com.gbic.types.PatternType;
 import com.gbic.types.PlaidCoherency;
 import com.gbic.types.TimeProfile;
 import com.gbic.utils.BicMath;
 import com.gbic.utils.OverlappingSettings;
+import com.gbic.utils.PatternKernels;
 import com.gbic.utils.SingleBiclusterPattern;
-import com.gbic.utils.RandomObject;
 import com.gbic.utils.BiclusterPattern;
 import com.gbic.utils.BiclusterStructure;
+import com.gbic.utils.IndexUnion;
+import com.gbic.utils.OccupancyIndex;
+import com.gbic.utils.QualitySettings;
+import com.gbic.utils.RandomObject;
 
 public class NumericDatasetGenerator extends BiclusterDatasetGenerator {
 
 	private NumericDataset data;
-	private Random random = RandomObject.getInstance();
 	private boolean allowsOverlap = false;
 	private boolean realValued;
 	private int numBics;
+	private boolean formulaCells = false;
 
 	/**
 	 * Constructor
@@ -66,10 +74,57 @@ public class NumericDatasetGenerator extends BiclusterDatasetGenerator {
 					(int) minM, (int) maxM);
 	}
 
+	/**
+	 * Constructor of a generator for the dataset of a generation plan: it renders the plan (see render), and
+	 * generates with the plan's dimensions, background and seed
+	 * @param plan The generation plan
+	 */
+	public NumericDatasetGenerator(GenerationPlan plan) {
+
+		this.realValued = plan.isRealValued();
+		this.numBics = plan.getNumBics();
+		this.data = plan.createDataset();
+	}
+
+	/**
+	 * Set whether the biclusters that overlap no other are planted as formulas over their factors (see PlantedFormula)
+	 * instead of storing each of their elements. The dataset reads the same, but takes memory proportional to the
+	 * biclusters' rows plus columns instead of their areas
+	 * @param b true to plant additive, multiplicative and row- or column-constant biclusters as formulas, false to
+	 * store their elements
+	 */
+	public void setFormulaBackedCells(boolean b) {
+		this.formulaCells = b;
+	}
+
+	/**
+	 * Check if the biclusters that overlap no other are planted as formulas
+	 * @return true if they are planted as formulas, false if their elements are stored
+	 */
+	public boolean isFormulaBackedCells() {
+		return this.formulaCells;
+	}
+
 	@Override
 	public Dataset generate(List<BiclusterPattern> patterns, BiclusterStructure bicStructure,
 			OverlappingSettings overlapping) throws Exception {
 
+		return render(plan(patterns, bicStructure, overlapping));
+	}
+
+	/**
+	 * Plan a dataset: place its biclusters and draw their factors, without rendering its values. Only the biclusters
+	 * that later ones may overlap are composed, in a scratch dataset, since the limits of the later ones' values depend
+	 * on the values they overlap
+	 * @param patterns The list of patterns for each bicluster
+	 * @param bicStructure The information about the bicluster's structure
+	 * @param overlapping The information about overlapping properties
+	 * @return The generation plan
+	 * @throws Exception
+	 */
+	public GenerationPlan plan(List<BiclusterPattern> patterns, BiclusterStructure bicStructure,
+			OverlappingSettings overlapping) throws Exception {
+
 		this.allowsOverlap = !overlapping.getPlaidCoherency().equals(PlaidCoherency.NO_OVERLAPPING);
 		int maxBicsPerOverlappedArea = overlapping.getMaxBicsPerOverlappedArea();
 		int overlappingThreshold = (int)(data.getNumBics() * overlapping.getPercOfOverlappingBics());
@@ -88,6 +143,9 @@ public class NumericDatasetGenerator extends BiclusterDatasetGenerator {
 		int[][] bicsCols = new int[numBics][];
 
 		Set<Integer> chosenCols = new HashSet<>();
+		//rows and columns of the biclusters planted so far, left out when drawing free ones
+		IndexUnion excludedRows = new IndexUnion(numRows);
+		IndexUnion excludedCols = new IndexUnion(numCols);
 
 		/** PART I: generate pattern ranges **/
 
@@ -106,10 +164,22 @@ public class NumericDatasetGenerator extends BiclusterDatasetGenerator {
 			}
 		}
 
+		GenerationPlan plan = new GenerationPlan(numRows, numCols, data.getNumBics(), realValued, data.getMinM().doubleValue(),
+				data.getMaxM().doubleValue(), data.getSeed(), data.getBackground());
+
 		int numAttempts = 0;
+		//the bicluster whose stream is in use, and how many times it was attempted so far
+		int streamK = -1;
+		int attempt = 0;
 		
 		for (int k = 0; k < numBics; k++) {
 
+			if(k != streamK) {
+				streamK = k;
+				attempt = 0;
+			}
+			useBiclusterStream(data, k, attempt++);
+
 			boolean hasSpace = true;
 
 			changeState("Stage:1, Msg:Bicluster " + k);
@@ -122,7 +192,7 @@ public class NumericDatasetGenerator extends BiclusterDatasetGenerator {
 			SingleBiclusterPattern currentPattern;
 
 			if(numBics < patterns.size())
-				currentPattern = (SingleBiclusterPattern) patterns.get(random.nextInt(patterns.size()));
+				currentPattern = (SingleBiclusterPattern) patterns.get(random().nextInt(patterns.size()));
 			else
 				currentPattern = (SingleBiclusterPattern) patterns.get(k % patterns.size());
 
@@ -137,7 +207,6 @@ public class NumericDatasetGenerator extends BiclusterDatasetGenerator {
 
 			/** PART IV: select biclusters with (non-)overlapping elements **/
 			int[] bicsWithOverlap = null;
-			int[] bicsExcluded = null;
 
 			if (this.allowsOverlap) {
 
@@ -152,11 +221,6 @@ public class NumericDatasetGenerator extends BiclusterDatasetGenerator {
 				else if (k % maxBicsPerOverlappedArea != 0)
 					bicsWithOverlap = new int[] { k - 1 };
 
-				int l = Math.max((k / maxBicsPerOverlappedArea) * maxBicsPerOverlappedArea, k-1);
-				//int l = (k / maxBicsPerOverlappedArea) * maxBicsPerOverlappedArea;
-				bicsExcluded = new int[l];
-				for (int i = 0; i < l; i++)
-					bicsExcluded[i] = i;
 			}
 
 			/** PART V: generate rows and columns using overlapping constraints **/
@@ -171,40 +235,19 @@ public class NumericDatasetGenerator extends BiclusterDatasetGenerator {
 				
 				System.out.println("Bic " + (k+1) + " - Generating columns...");
 				bicsCols[k] = generate(numColsBics, numCols, overlappingColsPerc, bicsCols, bicsWithOverlap,
-						bicsExcluded, bicStructure.getContiguity().equals(Contiguity.COLUMNS), null);
-				System.out.println("Columns: " + bicsCols[k].length);
+						excludedCols, bicStructure.getContiguity().equals(Contiguity.COLUMNS), null);
 			
-				System.out.println("Bic " + (k+1) + " - Generating rows...");
-				bicsRows[k] = generateRows(numRowsBics, numRows, overlappingRowsPerc, bicsRows, bicsWithOverlap,
-						bicsExcluded, bicsCols[k], data.getElements());
-				System.out.println("Rows: " + bicsRows[k].length);
-				
-				if(bicsRows[k] == null) {
-					hasSpace = false;
-					k--;
-					if(numAttempts == 15) {
-						numBics--;
-						numAttempts = 0;
-					}
-					else
-						numAttempts++;
+				if(bicsCols[k] != null) {
+					System.out.println("Columns: " + bicsCols[k].length);
+					System.out.println("Bic " + (k+1) + " - Generating rows...");
+					bicsRows[k] = generateRows(numRowsBics, numRows, overlappingRowsPerc, bicsRows, bicsWithOverlap,
+							excludedRows, bicsCols[k], data);
 				}
 				else
-					numAttempts = 0;
-			}
-			else {
-				System.out.println("Bic " + (k+1) + " - Generating columns...");
-				bicsCols[k] = generateNonOverlappingOthers(numColsBics, numCols, chosenCols, bicStructure.getContiguity().equals(Contiguity.COLUMNS),
-						null);
-				System.out.println("Columns: " + bicsCols[k].length);
+					bicsRows[k] = null;
 				
-				System.out.println("Bic " + (k+1) + " - Generating rows...");
-				bicsRows[k] = generateNonOverlappingRows(numRowsBics, numRows, bicsCols[k], data.getElements());
-				System.out.println("Rows: " + bicsRows[k].length);
-
 				if(bicsRows[k] == null) {
 					hasSpace = false;
-					System.out.println("Bic " + (k+1) + " no space :(");
 					k--;
 					if(numAttempts == 15) {
 						numBics--;
@@ -213,34 +256,70 @@ public class NumericDatasetGenerator extends BiclusterDatasetGenerator {
 					else
 						numAttempts++;
 				}
-				else
+				else {
+					System.out.println("Rows: " + bicsRows[k].length);
 					numAttempts = 0;
+					excludedRows.addAll(bicsRows[k]);
+					excludedCols.addAll(bicsCols[k]);
+				}
+			}
+			else {
+				System.out.println("Bic " + (k+1) + " - Placing rows and columns...");
+				int[][] placement = placeNonOverlapping(k, numRowsBics, numRows, new int[] {numColsBics},
+						Collections.singletonList(new Pair<>(0, numCols)), bicStructure.getContiguity().equals(Contiguity.COLUMNS), chosenCols, data);
+				bicsRows[k] = placement[0];
+				bicsCols[k] = placement[1];
+				System.out.println("Rows: " + bicsRows[k].length + ", Columns: " + bicsCols[k].length);
 			}
 
 			if(hasSpace) {
 				
 				System.out.println("Bic " + (k+1) + " - Has space, lets plant the patterns");
 				
-				for (Integer c : bicsCols[k])
-					chosenCols.add(c);
+				useColumns(bicsCols[k], chosenCols);
 
 				Arrays.parallelSort(bicsRows[k]);
 				Arrays.parallelSort(bicsCols[k]);
 				
 				NumericBicluster<Double> bicK;
 				if(columnType.equals(PatternType.ORDER_PRESERVING))
-					bicK = new NumericBicluster<>(k, BicMath.getSet(bicsRows[k]), 
-						BicMath.getSet(bicsCols[k]), rowType, columnType, new Double[numRowsBics], new Double[numColsBics], plaidPattern, timeProfile);
+					bicK = new NumericBicluster<>(k, bicsRows[k], bicsCols[k], rowType, columnType, new double[numRowsBics], new double[numColsBics],
+						plaidPattern, timeProfile);
 				else
-					bicK = new NumericBicluster<>(k, BicMath.getSet(bicsRows[k]), 
-							BicMath.getSet(bicsCols[k]), rowType, columnType, new Double[numRowsBics], new Double[numColsBics], plaidPattern);
+					bicK = new NumericBicluster<>(k, bicsRows[k], bicsCols[k], rowType, columnType, new double[numRowsBics], new double[numColsBics],
+						plaidPattern);
 
 				
 				/** PART VI: generate biclusters coherencies **/
-				Double[][] bicsymbols = new Double[bicsRows[k].length][bicsCols[k].length];
+				double[] bicsymbols = null;
 
 				double maxAlphabet = realValued ? data.getMaxM().doubleValue() : data.getMaxM().intValue();
 				double minAlphabet = realValued ? data.getMinM().doubleValue() : data.getMinM().intValue();
+
+				//Its values are drawn from a stream of their own, which the plan keeps to draw them again
+				long[] stream = {RandomObject.PATTERNS, k};
+				useStream(RandomObject.getStream(data.getSeed(), stream));
+				boolean factors = PlannedBicluster.hasFactors(rowType, columnType);
+
+				if(!this.allowsOverlap) {
+					//Its elements overlap no other bicluster: reserve them, and draw its factors (if it has any) while
+					//the next biclusters are placed
+					reserveElements(data, k, bicsRows[k], bicsCols[k]);
+
+					NumericBicluster<Double> bic = bicK;
+					if(isParallelPlanting())
+						plantInParallel(() -> {
+							if(factors)
+								generatePattern(currentPattern, bic, minAlphabet, maxAlphabet);
+							return () -> plan.addBicluster(PlannedBicluster.of(bic, minAlphabet, maxAlphabet, stream));
+						});
+					else {
+						if(factors)
+							generatePattern(currentPattern, bic, minAlphabet, maxAlphabet);
+						plan.addBicluster(PlannedBicluster.of(bic, minAlphabet, maxAlphabet, stream));
+					}
+					continue;
+				}
 				double maxAllowed = maxAlphabet;
 				double minAllowed = minAlphabet;
 				double lowerBound = maxAlphabet;
@@ -267,7 +346,7 @@ public class NumericDatasetGenerator extends BiclusterDatasetGenerator {
 					//the previous one, we should check which are the maximum and minimum values on the area that will be overlapped by
 					//this new bicluster.
 					else {
-						overlappLimits = getLimitsOnOverlappedArea(this.data.getElements(), bicsRows[k], bicsCols[k]);
+						overlappLimits = getLimitsOnOverlappedArea(bicsRows[k], bicsCols[k]);
 					}
 
 
@@ -303,8 +382,13 @@ public class NumericDatasetGenerator extends BiclusterDatasetGenerator {
 						}
 
 						//when the alphabet is strictly positive
-						if(Double.compare(minAlphabet, 0) >= 0)
+						if(Double.compare(minAlphabet, 0) >= 0) {
 							maxAllowed = BicMath.nthRoot(maxAlphabet / maxOverlapp, (maxBicsPerOverlappedArea - (k % maxBicsPerOverlappedArea)));
+
+							//an overlapped area of zeros puts no bound on the factors
+							if(Double.compare(maxAllowed, maxAlphabet) > 0)
+								maxAllowed = maxAlphabet;
+						}
 						else { 
 							lowerBound = Math.min(Math.abs(minAlphabet), Math.abs(maxAlphabet));
 							maxAllowed = BicMath.nthRoot(lowerBound / maxOverlapp, (maxBicsPerOverlappedArea - (k % maxBicsPerOverlappedArea)));
@@ -317,74 +401,16 @@ public class NumericDatasetGenerator extends BiclusterDatasetGenerator {
 					}
 				}
 
-				if(currentPattern.contains(PatternType.ADDITIVE)) {				
-					bicsymbols = generateAdditiveFactors(realValued, currentPattern, bicK, minAllowed, maxAllowed);
-				}
-
-				else if(currentPattern.contains(PatternType.MULTIPLICATIVE)) {
-
-					bicsymbols = generateMultiplicativeFactors(realValued, currentPattern, bicK, minAllowed, maxAllowed);
-				} 
-
-				else if(currentPattern.contains(PatternType.ORDER_PRESERVING)) {
-					bicsymbols = generateOrderPreserving(realValued, currentPattern, bicK, minAllowed, maxAllowed);
+				bicsymbols = generatePattern(currentPattern, bicK, minAllowed, maxAllowed);
 
-
-				}
-				else if (currentPattern.contains(PatternType.CONSTANT)){
-					bicsymbols = generateConstant(realValued, currentPattern, bicK, minAllowed, maxAllowed);
-				}
-
-				
 				/**
 				 * Part VII: generate the layers according to plaid type and put them in the
-				 * background
+				 * background (of the scratch dataset, where the next biclusters read the limits of their values)
 				 **/
 				System.out.println("Bic " + (k+1) + " - planting the bic");
 				
-				for (int row = 0; row < bicsRows[k].length; row++) {
-					for (int col = 0; col < bicsCols[k].length; col++) {
-
-						Double value = bicsymbols[row][col];
-
-						if(data.getElements().contains(bicsRows[k][row] + ":" + bicsCols[k][col])) {
-
-							switch (plaidPattern) {
-							case ADDITIVE:
-								value += data.getMatrixItem(bicsRows[k][row], bicsCols[k][col]).doubleValue();
-								break;
-							case MULTIPLICATIVE:
-								value *= data.getMatrixItem(bicsRows[k][row], bicsCols[k][col]).doubleValue();
-								break;
-							case INTERPOLED:
-								value = ((value + data.getMatrixItem(bicsRows[k][row], bicsCols[k][col]).doubleValue()) / 2);
-
-								if(!realValued) {
-									if(Double.compare(Math.round(value), minAlphabet) >= 0 && 
-											Double.compare(Math.round(value), maxAlphabet) <= 0)
-										value = (double) Math.round(value);
-									else
-										value = (double) value.intValue();
-								}
-
-								break;
-							default:
-								break;
-							}			
-						}
-
-						if(realValued)
-							data.setMatrixItem(bicsRows[k][row], bicsCols[k][col], value);
-						else
-							data.setMatrixItem(bicsRows[k][row], bicsCols[k][col], new Integer(value.intValue()));
-
-						if(Double.compare(value.doubleValue(), minAlphabet) < 0 || Double.compare(value.doubleValue(), maxAlphabet) > 0)
-							throw new ExceedDatasetBoundsException("Exceeded dataset limits: Value = " + value.doubleValue());
-
-						data.addElement(bicsRows[k][row] + ":" + bicsCols[k][col], k);
-					}
-				}
-				data.addBicluster(bicK);
+				plantBicluster(k, bicsRows[k], bicsCols[k], bicsymbols, plaidPattern, minAlphabet, maxAlphabet, 0, numRows, true, null);
+				plan.addBicluster(PlannedBicluster.of(bicK, minAllowed, maxAllowed, stream));
 				
 				int mb = 1024*1024;
 
@@ -408,22 +434,242 @@ public class NumericDatasetGenerator extends BiclusterDatasetGenerator {
 				System.out.println("Max Memory:" + runtime.maxMemory() / mb);
 			}
 		}
+		plantPending();
+		return plan;
+	}
+
+	/**
+	 * Render a generation plan into its dataset: plant the planned biclusters in order, composing the ones that
+	 * overlap, and the missing, noisy and error elements of its quality settings
+	 * @param plan The generation plan
+	 * @return The dataset, with its biclusters
+	 * @throws Exception
+	 */
+	public NumericDataset<? extends Number> render(GenerationPlan plan) throws Exception {
+		return renderRows(plan, 0, plan.getNumRows());
+	}
+
+	/**
+	 * Render a range of rows of a generation plan. The values are the ones the whole dataset has on those rows: the
+	 * missing, noisy and error elements are still drawn over the whole dataset, but only the rows' elements are stored,
+	 * so the memory taken grows with the range, not with the dataset
+	 * @param plan The generation plan
+	 * @param fromRow The first row (inclusive)
+	 * @param toRow The last row (exclusive)
+	 * @return The rows' values, indexed from fromRow (NaN marks a missing element)
+	 * @throws Exception
+	 */
+	public double[][] render(GenerationPlan plan, int fromRow, int toRow) throws Exception {
+
+		NumericDataset<? extends Number> dataset = renderRows(plan, fromRow, toRow);
+
+		double[][] values = new double[toRow - fromRow][plan.getNumCols()];
+		for(int row = fromRow; row < toRow; row++)
+			dataset.getRowValues(row, values[row - fromRow]);
+		return values;
+	}
+
+	private NumericDataset<? extends Number> renderRows(GenerationPlan plan, int fromRow, int toRow) throws Exception {
+
+		this.data = plan.createDataset();
+		this.realValued = plan.isRealValued();
+		//the biclusters and quality settings are drawn over the whole dataset, but only the rows' values are stored
+		data.restrictRows(fromRow, toRow);
+
+		double maxAlphabet = data.getMaxM().doubleValue();
+		double minAlphabet = data.getMinM().doubleValue();
+		QualitySettings quality = plan.getQualitySettings();
+		//the quality settings read every bicluster's elements, so these are indexed on every row
+		boolean indexAll = quality != null;
+
+		for(PlannedBicluster planned : plan.getBiclusters()) {
+
+			NumericBicluster<Double> bic = planned.toBicluster();
+			if(planned.getStream() != null)
+				useStream(RandomObject.getStream(plan.getSeed(), planned.getStream()));
+
+			if(isParallelPlanting()) {
+				//the syntheses read nothing from the dataset, and the plantings run in the plan's order
+				plantInParallel(() -> {
+					double[] values = synthesize(planned, bic);
+					PlantedFormula formula = toFormula(planned, values);
+					return () -> {
+						plantBicluster(planned.getId(), planned.getRows(), planned.getColumns(), values, planned.getPlaidCoherency(),
+								minAlphabet, maxAlphabet, fromRow, toRow, indexAll, formula);
+						data.addBicluster(bic);
+					};
+				});
+			}
+			else {
+				double[] values = synthesize(planned, bic);
+				PlantedFormula formula = toFormula(planned, values);
+				plantBicluster(planned.getId(), planned.getRows(), planned.getColumns(), values, planned.getPlaidCoherency(),
+						minAlphabet, maxAlphabet, fromRow, toRow, indexAll, formula);
+				data.addBicluster(bic);
+			}
+		}
+		plantPending();
+
+		if(quality != null) {
+			data.plantMissingElements(quality.getPercMissingsOnBackground(), quality.getPercMissingsOnBics(),
+					RandomObject.getStream(plan.getSeed(), plan.getMissingsStream()));
+			data.plantNoisyElements(quality.getPercNoiseOnBackground(), quality.getPercNoiseOnBics(), quality.getNoiseDeviation(),
+					RandomObject.getStream(plan.getSeed(), plan.getNoiseStream()));
+			data.plantErrors(quality.getPercErrorsOnBackground(), quality.getPercErrorsOnBics(), quality.getNoiseDeviation(),
+					RandomObject.getStream(plan.getSeed(), plan.getErrorsStream()));
+		}
 		return data;
 	}
+
+	//the values of a planned bicluster before composition: given by its factors, or drawn again from its stream
+	private double[] synthesize(PlannedBicluster planned, NumericBicluster<Double> bic) throws Exception {
+
+		PlantedFormula factors = planned.getFactorFormula(!realValued);
+		if(factors != null)
+			return factors.values();
+
+		SingleBiclusterPattern pattern = new SingleBiclusterPattern(BiclusterType.NUMERIC, planned.getRowPattern(),
+				planned.getColumnPattern(), planned.getTimeProfile());
+		return generatePattern(pattern, bic, planned.getMinAllowed(), planned.getMaxAllowed());
+	}
+
+	private double[] generatePattern(SingleBiclusterPattern currentPattern, NumericBicluster<Double> bicK, double minAllowed,
+			double maxAllowed) throws Exception {
+
+		if(currentPattern.contains(PatternType.ADDITIVE))
+			return generateAdditiveFactors(realValued, currentPattern, bicK, minAllowed, maxAllowed);
+		else if(currentPattern.contains(PatternType.MULTIPLICATIVE))
+			return generateMultiplicativeFactors(realValued, currentPattern, bicK, minAllowed, maxAllowed);
+		else if(currentPattern.contains(PatternType.ORDER_PRESERVING))
+			return generateOrderPreserving(realValued, currentPattern, bicK, minAllowed, maxAllowed);
+		else if(currentPattern.contains(PatternType.CONSTANT))
+			return generateConstant(realValued, currentPattern, bicK, minAllowed, maxAllowed);
+		return null;
+	}
+
+	/**
+	 * Get the formula of a bicluster, if formula-backed cells are on and its pattern has one
+	 * @param planned The planned bicluster
+	 * @param bicsymbols The bicluster's values before composition, in row-major order
+	 * @return The formula, or null if the bicluster's elements must be stored
+	 */
+	private PlantedFormula toFormula(PlannedBicluster planned, double[] bicsymbols) {
+
+		if(!this.formulaCells)
+			return null;
+
+		int[] rows = planned.getRows();
+		int[] cols = planned.getColumns();
+		PlantedFormula formula = planned.getFactorFormula(!realValued);
+
+		if(formula != null || planned.getRowPattern().equals(PatternType.ORDER_PRESERVING)
+				|| planned.getColumnPattern().equals(PatternType.ORDER_PRESERVING))
+			;
+		else if(planned.getColumnPattern().equals(PatternType.CONSTANT)) {
+			//one value per row
+			double[] rowTerms = new double[rows.length];
+			for(int r = 0; r < rows.length; r++)
+				rowTerms[r] = bicsymbols[r * cols.length];
+			formula = new PlantedFormula(rows, cols, Operation.ROW, rowTerms, null, planned.getMinAllowed(),
+					planned.getMaxAllowed(), !realValued);
+		}
+		else if(planned.getRowPattern().equals(PatternType.CONSTANT)) {
+			//one value per column
+			double[] colTerms = Arrays.copyOf(bicsymbols, cols.length);
+			formula = new PlantedFormula(rows, cols, Operation.COLUMN, null, colTerms, planned.getMinAllowed(),
+					planned.getMaxAllowed(), !realValued);
+		}
+
+		//the formula replaces the values only if it gives them back exactly
+		return (formula != null && formula.matches(bicsymbols)) ? formula : null;
+	}
+
+	/**
+	 * Plant a bicluster's values, composing each row with the layer below it where other biclusters hold its elements
+	 * @param k The bicluster ID
+	 * @param rows The bicluster's rows
+	 * @param cols The bicluster's columns
+	 * @param bicsymbols The bicluster's values, in row-major order
+	 * @param plaidPattern The plaid coherency
+	 * @param minAlphabet The dataset's minimum value
+	 * @param maxAlphabet The dataset's maximum value
+	 * @param fromRow The first dataset row whose values are planted (inclusive)
+	 * @param toRow The last dataset row whose values are planted (exclusive)
+	 * @param indexAll Whether the bicluster's elements on the other rows are indexed all the same
+	 * @param formula The bicluster's formula, planted instead of its values, or null to store them
+	 * @throws ExceedDatasetBoundsException
+	 */
+	private void plantBicluster(int k, int[] rows, int[] cols, double[] bicsymbols, PlaidCoherency plaidPattern, double minAlphabet,
+			double maxAlphabet, int fromRow, int toRow, boolean indexAll, PlantedFormula formula)
+			throws ExceedDatasetBoundsException {
+
+		int numColsBic = cols.length;
+		boolean composes = PatternKernels.composes(plaidPattern);
+		long[] columnMask = composes ? data.getOccupancy().columnMask(cols) : null;
+		double[] below = new double[numColsBic];
+		double[] weight = new double[numColsBic];
+		
+		for (int row = 0; row < rows.length; row++) {
+
+			int offset = row * numColsBic;
+			int rowId = rows[row];
+
+			if(rowId < fromRow || rowId >= toRow) {
+				if(indexAll)
+					for (int col = 0; col < numColsBic; col++)
+						data.addElement(data.getElementKey(rowId, cols[col]), k);
+				continue;
+			}
+
+			//Compose the row with the layer below it, if another bicluster holds any of its elements
+			boolean composed = composes && data.getOccupancy().intersectsRow(rowId, columnMask);
+			if(composed) {
+				for (int col = 0; col < numColsBic; col++) {
+					boolean planted = data.isPlanted(rowId, cols[col]);
+					below[col] = planted ? data.getMatrixValue(rowId, cols[col]) : PatternKernels.identity(plaidPattern);
+					weight[col] = planted ? 0.5 : 1;
+				}
+				PatternKernels.compose(plaidPattern, bicsymbols, offset, below, weight, numColsBic);
+
+				if(!realValued && plaidPattern.equals(PlaidCoherency.INTERPOLED))
+					PatternKernels.roundToAlphabet(bicsymbols, offset, numColsBic, minAlphabet, maxAlphabet);
+			}
+
+			double lowest = PatternKernels.min(bicsymbols, offset, numColsBic);
+			double highest = PatternKernels.max(bicsymbols, offset, numColsBic);
+			if(Double.compare(lowest, minAlphabet) < 0)
+				throw new ExceedDatasetBoundsException("Exceeded dataset limits: Value = " + lowest);
+			if(Double.compare(highest, maxAlphabet) > 0)
+				throw new ExceedDatasetBoundsException("Exceeded dataset limits: Value = " + highest);
+
+			//A composed row departs from the formula, so its values are stored over it
+			for (int col = 0; col < numColsBic; col++) {
+				if(formula == null || composed)
+					data.setMatrixValue(rowId, cols[col], bicsymbols[offset + col]);
+				data.addElement(data.getElementKey(rowId, cols[col]), k);
+			}
+		}
+
+		if(formula != null)
+			data.plantFormula(formula);
+	}
 	
-	private Pair<Double, Double> getLimitsOnOverlappedArea(Set<String> existingValues, int[] rows, int[] cols) {
+	private Pair<Double, Double> getLimitsOnOverlappedArea(int[] rows, int[] cols) {
 
 		double min = this.data.getMaxM().doubleValue() + 1;
 		double max = this.data.getMinM().doubleValue() - 1 ;
 
-		
-		for(Integer row : rows) {
-			for(Integer col : cols) {
-				if(existingValues.contains(row + ":" + col)) {
-					double value = this.data.getMatrixItem(row, col).doubleValue();
-					min = (Double.compare(value, min) < 0) ? value : min;
-					max = (Double.compare(value, max) > 0) ? value : max;
-				}
+		//only the elements other biclusters hold are read, found a word of columns at a time
+		OccupancyIndex occupancy = this.data.getOccupancy();
+		long[] columnMask = occupancy.columnMask(cols);
+		int[] taken = new int[cols.length];
+
+		for(int row : rows) {
+			int numTaken = occupancy.takenColumns(row, columnMask, taken);
+			for(int i = 0; i < numTaken; i++) {
+				double value = this.data.getMatrixValue(row, taken[i]);
+				min = (Double.compare(value, min) < 0) ? value : min;
+				max = (Double.compare(value, max) > 0) ? value : max;
 			}
 		}
 		return new Pair<>(min, max);
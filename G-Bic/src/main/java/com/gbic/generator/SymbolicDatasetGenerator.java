@@ -14,6 +14,8 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
+import org.apache.commons.math3.util.Pair;
+
 import com.gbic.domain.bicluster.SymbolicBicluster;
 import com.gbic.domain.dataset.Dataset;
 import com.gbic.domain.dataset.SymbolicDataset;
@@ -23,18 +25,16 @@ import com.gbic.types.Contiguity;
 import com.gbic.types.PatternType;
 import com.gbic.types.PlaidCoherency;
 import com.gbic.types.TimeProfile;
-import com.gbic.utils.BicMath;
 import com.gbic.utils.OverlappingSettings;
 import com.gbic.utils.SingleBiclusterPattern;
-import com.gbic.utils.RandomObject;
 import com.gbic.utils.BiclusterPattern;
 import com.gbic.utils.BiclusterStructure;
+import com.gbic.utils.IndexUnion;
 
 public class SymbolicDatasetGenerator extends BiclusterDatasetGenerator {
 
 
 	private SymbolicDataset data;
-	private Random random = RandomObject.getInstance();
 	private boolean allowsOverlap = false;
 	private int numBics;
 
@@ -95,11 +95,23 @@ public class SymbolicDatasetGenerator extends BiclusterDatasetGenerator {
 		int[][] bicsCols = new int[numBics][];
 
 		Set<Integer> chosenCols = new HashSet<Integer>();
+		//rows and columns of the biclusters planted so far, left out when drawing free ones
+		IndexUnion excludedRows = new IndexUnion(numRows);
+		IndexUnion excludedCols = new IndexUnion(numCols);
 
 		int numAttempts = 0;
+		//the bicluster whose stream is in use, and how many times it was attempted so far
+		int streamK = -1;
+		int attempt = 0;
 		
 		/** PART I: generate pattern ranges **/
 		for (int k = 0; k < numBics; k++) {
+
+			if(k != streamK) {
+				streamK = k;
+				attempt = 0;
+			}
+			useBiclusterStream(data, k, attempt++);
 			
 			boolean hasSpace = true;
 			
@@ -113,7 +125,7 @@ public class SymbolicDatasetGenerator extends BiclusterDatasetGenerator {
 			SingleBiclusterPattern currentPattern;
 			
 			if(numBics < patterns.size())
-				currentPattern = (SingleBiclusterPattern) patterns.get(random.nextInt(patterns.size()));
+				currentPattern = (SingleBiclusterPattern) patterns.get(random().nextInt(patterns.size()));
 			else
 				currentPattern = (SingleBiclusterPattern) patterns.get(k % patterns.size());
 			
@@ -129,7 +141,6 @@ public class SymbolicDatasetGenerator extends BiclusterDatasetGenerator {
 
 			/** PART IV: select biclusters with (non-)overlapping elements **/
 			int[] bicsWithOverlap = null;
-			int[] bicsExcluded = null;
 			
 			
 			if (allowsOverlap) {
@@ -145,10 +156,6 @@ public class SymbolicDatasetGenerator extends BiclusterDatasetGenerator {
 				else if (k % maxBicsPerOverlappedArea != 0)
 					bicsWithOverlap = new int[] { k - 1 };
 
-				int l = Math.max((k / maxBicsPerOverlappedArea) * maxBicsPerOverlappedArea, k-1);
-				bicsExcluded = new int[l];
-				for (int i = 0; i < l; i++)
-					bicsExcluded[i] = i;
 			}
 
 			/** PART V: generate rows and columns using overlapping constraints **/
@@ -162,37 +169,16 @@ public class SymbolicDatasetGenerator extends BiclusterDatasetGenerator {
 				
 				System.out.println("Tric " + (k+1) + " - Generating columns...");
 				bicsCols[k] = generate(numColsBics, numCols, overlappingColsPerc, bicsCols, bicsWithOverlap,
-						bicsExcluded, tricStructure.getContiguity().equals(Contiguity.COLUMNS), null);
-				
-				System.out.println("Tric " + (k+1) + " - Generating rows...");
-				bicsRows[k] = generate(numRowsBics, numRows, overlappingRowsPerc, bicsRows, bicsWithOverlap,
-						bicsExcluded, false, null);
-				System.out.println("Rows: " + bicsRows[k].length);
-				
+						excludedCols, tricStructure.getContiguity().equals(Contiguity.COLUMNS), null);
 				
-				if(bicsRows[k] == null) {
-					hasSpace = false;
-					k--;
-					if(numAttempts == 15) {
-						numBics--;
-						numAttempts = 0;
-					}
-					else
-						numAttempts++;
+				if(bicsCols[k] != null) {
+					System.out.println("Tric " + (k+1) + " - Generating rows...");
+					bicsRows[k] = generate(numRowsBics, numRows, overlappingRowsPerc, bicsRows, bicsWithOverlap,
+							excludedRows, false, null);
 				}
 				else
-					numAttempts = 0;
-			}
-			else {
+					bicsRows[k] = null;
 				
-				System.out.println("Tric " + (k+1) + " - Generating columns...");
-				bicsCols[k] = generateNonOverlappingOthers(numColsBics, numCols, chosenCols, tricStructure.getContiguity().equals(Contiguity.COLUMNS),
-						null);
-				System.out.println("Columns: " + bicsCols[k].length);
-				
-				System.out.println("Tric " + (k+1) + " - Generating rows...");
-				bicsRows[k] = generateNonOverlappingRows(numRowsBics, numRows, bicsCols[k], data.getElements());
-				System.out.println("Rows: " + bicsRows[k].length);
 				
 				if(bicsRows[k] == null) {
 					hasSpace = false;
@@ -204,16 +190,27 @@ public class SymbolicDatasetGenerator extends BiclusterDatasetGenerator {
 					else
 						numAttempts++;
 				}
-				else
+				else {
+					System.out.println("Rows: " + bicsRows[k].length);
 					numAttempts = 0;
+					excludedRows.addAll(bicsRows[k]);
+					excludedCols.addAll(bicsCols[k]);
+				}
+			}
+			else {
+				System.out.println("Tric " + (k+1) + " - Placing rows and columns...");
+				int[][] placement = placeNonOverlapping(k, numRowsBics, numRows, new int[] {numColsBics},
+						Collections.singletonList(new Pair<>(0, numCols)), tricStructure.getContiguity().equals(Contiguity.COLUMNS), chosenCols, data);
+				bicsRows[k] = placement[0];
+				bicsCols[k] = placement[1];
+				System.out.println("Rows: " + bicsRows[k].length + ", Columns: " + bicsCols[k].length);
 			}
 
 			if(hasSpace) {
 	
 				System.out.println("Tric " + (k+1) + " - Has space, lets plant the patterns");
 				
-				for (Integer c : bicsCols[k])
-					chosenCols.add(c);				
+				useColumns(bicsCols[k], chosenCols);				
 				
 				Arrays.parallelSort(bicsRows[k]);
 				Arrays.parallelSort(bicsCols[k]);
@@ -221,72 +218,29 @@ public class SymbolicDatasetGenerator extends BiclusterDatasetGenerator {
 				SymbolicBicluster bicK;
 				
 				if(columnType.equals(PatternType.ORDER_PRESERVING))
-					bicK = new SymbolicBicluster(k, BicMath.getSet(bicsRows[k]), BicMath.getSet(bicsCols[k]), rowType, columnType, 
+					bicK = new SymbolicBicluster(k, bicsRows[k], bicsCols[k], rowType, columnType, 
 							overlapping.getPlaidCoherency(), timeProfile);
 				else
-					bicK = new SymbolicBicluster(k, BicMath.getSet(bicsRows[k]), BicMath.getSet(bicsCols[k]), rowType, columnType, 
+					bicK = new SymbolicBicluster(k, bicsRows[k], bicsCols[k], rowType, columnType, 
 							overlapping.getPlaidCoherency());
 	
-				/** PART VI: generate biclusters coherencies **/
-				String[][] bicsymbols = new String[bicsRows[k].length][bicsCols[k].length];
-				
-				if(rowType.equals(PatternType.ORDER_PRESERVING)) {
-					bicsymbols = new String[bicsCols[k].length][bicsRows[k].length];
-					Integer[] order = generateOrder(bicsRows[k].length);
-					
-					
-					for(int col = 0; col < numColsBics; col++) {
-						for (int row = 0; row < numRowsBics; row++)
-							bicsymbols[col][row] = alphabet[random.nextInt(alphabet.length)];
-						Arrays.parallelSort(bicsymbols[col]);
-						bicsymbols[col] = shuffle(order, bicsymbols[col]);
-					}					
-					bicsymbols = transposeMatrix(bicsymbols, "x", "y");
-				}
-				else if(columnType.equals(PatternType.ORDER_PRESERVING)) {
-					Integer[] order = generateOrder(bicsCols[k].length);
-					for(int row = 0; row < numRowsBics; row++) {
-						for (int col = 0; col < numColsBics; col++)
-							bicsymbols[row][col] = alphabet[random.nextInt(alphabet.length)];
-						
-						Arrays.parallelSort(bicsymbols[row]);
-						bicsymbols[row] = shuffle(order, bicsymbols[row]);
-						
-						if(timeProfile.equals(TimeProfile.RANDOM)) {
-							Arrays.parallelSort(bicsymbols[row]);
-							bicsymbols[row] = shuffle(order, bicsymbols[row]);
-						}
-						else if(timeProfile.equals(TimeProfile.MONONICALLY_INCREASING))
-							Arrays.sort(bicsymbols[row]);
-						
-						else
-							Arrays.sort(bicsymbols[row], Collections.reverseOrder());
-					}
-				}
-				else if(rowType.equals(PatternType.CONSTANT) && columnType.equals(PatternType.CONSTANT)) {
-					String seed = alphabet[random.nextInt(alphabet.length)];
-					
-					for(int row = 0; row < numRowsBics; row++) 
-						for (int col = 0; col < numColsBics; col++)
-							bicsymbols[row][col] = seed;	
-					
-				
-					bicK.setSeed(bicsymbols);
-				}
-				else if(columnType.equals(PatternType.CONSTANT)) {
-						for (int row = 0; row < numRowsBics; row++) {
-							String seed = alphabet[random.nextInt(alphabet.length)];
-							for(int col = 0; col < numColsBics; col++)
-								bicsymbols[row][col] = seed;
-						}
-				}
-				else if(rowType.equals(PatternType.CONSTANT)) {
-						for (int col = 0; col < numColsBics; col++) {
-							String seed = alphabet[random.nextInt(alphabet.length)];
-							for(int row = 0; row < numRowsBics; row++)
-								bicsymbols[row][col] = seed;
-						}
+				if(!this.allowsOverlap && isParallelPlanting()) {
+					//Its elements overlap no other bicluster: reserve them, and place the next biclusters while its pattern is synthesized
+					reserveElements(data, k, bicsRows[k], bicsCols[k]);
+					data.addBicluster(bicK);
+
+					SymbolicBicluster bic = bicK;
+					int[] rows = bicsRows[k];
+					int[] cols = bicsCols[k];
+					plantInParallel(() -> {
+						String[][] symbols = generateSymbols(bic, alphabet);
+						return () -> plantBicluster(bic.getId(), rows, cols, symbols, true);
+					});
+					continue;
 				}
+
+				/** PART VI: generate biclusters coherencies **/
+				String[][] bicsymbols = generateSymbols(bicK, alphabet);
 	
 				/**
 				 * Part VII: generate the layers according to plaid type and put them in the
@@ -294,12 +248,7 @@ public class SymbolicDatasetGenerator extends BiclusterDatasetGenerator {
 				 **/
 				System.out.println("Tric " + (k+1) + " - planting the tric");
 				
-				for (int row = 0; row < bicsRows[k].length; row++) {
-					for (int col = 0; col < bicsCols[k].length; col++) {
-						this.data.setMatrixItem(bicsRows[k][row], bicsCols[k][col], bicsymbols[row][col]);
-						data.addElement(bicsRows[k][row] + ":" + bicsCols[k][col], k);
-					}
-				}
+				plantBicluster(k, bicsRows[k], bicsCols[k], bicsymbols, false);
 				data.addBicluster(bicK);
 				int mb = 1024*1024;
 
@@ -323,6 +272,97 @@ public class SymbolicDatasetGenerator extends BiclusterDatasetGenerator {
 				System.out.println("Max Memory:" + runtime.maxMemory() / mb);
 			}
 		}
+		plantPending();
 		return data;
 	}
+
+	private String[][] generateSymbols(SymbolicBicluster bicK, String[] alphabet) {
+
+		Random random = random();
+		int numRowsBics = bicK.getNumRows();
+		int numColsBics = bicK.getNumCols();
+		PatternType rowType = bicK.getRowPattern();
+		PatternType columnType = bicK.getColumnPattern();
+		TimeProfile timeProfile = bicK.getTimeProfile();
+
+		String[][] bicsymbols = new String[numRowsBics][numColsBics];
+		
+		if(rowType.equals(PatternType.ORDER_PRESERVING)) {
+			bicsymbols = new String[numColsBics][numRowsBics];
+			int[] order = generateOrder(numRowsBics);
+			
+			
+			for(int col = 0; col < numColsBics; col++) {
+				for (int row = 0; row < numRowsBics; row++)
+					bicsymbols[col][row] = alphabet[random.nextInt(alphabet.length)];
+				Arrays.parallelSort(bicsymbols[col]);
+				bicsymbols[col] = shuffle(order, bicsymbols[col]);
+			}					
+			bicsymbols = transposeMatrix(bicsymbols, "x", "y");
+		}
+		else if(columnType.equals(PatternType.ORDER_PRESERVING)) {
+			int[] order = generateOrder(numColsBics);
+			for(int row = 0; row < numRowsBics; row++) {
+				for (int col = 0; col < numColsBics; col++)
+					bicsymbols[row][col] = alphabet[random.nextInt(alphabet.length)];
+				
+				Arrays.parallelSort(bicsymbols[row]);
+				bicsymbols[row] = shuffle(order, bicsymbols[row]);
+				
+				if(timeProfile.equals(TimeProfile.RANDOM)) {
+					Arrays.parallelSort(bicsymbols[row]);
+					bicsymbols[row] = shuffle(order, bicsymbols[row]);
+				}
+				else if(timeProfile.equals(TimeProfile.MONONICALLY_INCREASING))
+					Arrays.sort(bicsymbols[row]);
+				
+				else
+					Arrays.sort(bicsymbols[row], Collections.reverseOrder());
+			}
+		}
+		else if(rowType.equals(PatternType.CONSTANT) && columnType.equals(PatternType.CONSTANT)) {
+			String seed = alphabet[random.nextInt(alphabet.length)];
+			
+			for(int row = 0; row < numRowsBics; row++) 
+				for (int col = 0; col < numColsBics; col++)
+					bicsymbols[row][col] = seed;	
+			
+		
+			bicK.setSeed(seed);
+		}
+		else if(columnType.equals(PatternType.CONSTANT)) {
+				for (int row = 0; row < numRowsBics; row++) {
+					String seed = alphabet[random.nextInt(alphabet.length)];
+					for(int col = 0; col < numColsBics; col++)
+						bicsymbols[row][col] = seed;
+				}
+		}
+		else if(rowType.equals(PatternType.CONSTANT)) {
+				for (int col = 0; col < numColsBics; col++) {
+					String seed = alphabet[random.nextInt(alphabet.length)];
+					for(int row = 0; row < numRowsBics; row++)
+						bicsymbols[row][col] = seed;
+				}
+		}
+
+		return bicsymbols;
+	}
+
+	/**
+	 * Plant a bicluster's symbols, over the symbols of any bicluster planted below it
+	 * @param k The bicluster ID
+	 * @param rows The bicluster's rows
+	 * @param cols The bicluster's columns
+	 * @param bicsymbols The bicluster's symbols
+	 * @param reserved Whether the bicluster's elements were reserved (see reserveElements) and are already indexed
+	 */
+	private void plantBicluster(int k, int[] rows, int[] cols, String[][] bicsymbols, boolean reserved) {
+		for (int row = 0; row < rows.length; row++) {
+			for (int col = 0; col < cols.length; col++) {
+				this.data.setMatrixItem(rows[row], cols[col], bicsymbols[row][col]);
+				if(!reserved)
+					data.addElement(data.getElementKey(rows[row], cols[col]), k);
+			}
+		}
+	}
 }
\ No newline at end of file
@@ -17,6 +17,7 @@ import java.util.Observer;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -25,6 +26,7 @@ import org.apache.commons.math3.util.Pair;
 import org.json.JSONObject;
 
 import com.gbic.domain.dataset.Dataset;
+import com.gbic.domain.dataset.GenerationPlan;
 import com.gbic.domain.dataset.HeterogeneousDataset;
 import com.gbic.domain.dataset.NumericDataset;
 import com.gbic.domain.dataset.SymbolicDataset;
@@ -39,9 +41,11 @@ import com.gbic.types.BiclusterType;
 import com.gbic.types.Contiguity;
 import com.gbic.types.Distribution;
 import com.gbic.types.PatternType;
+import com.gbic.types.OutputFormat;
 import com.gbic.types.PlaidCoherency;
 import com.gbic.types.TimeProfile;
 import com.gbic.utils.BiclusterPattern;
+import com.gbic.utils.BinaryDatasetWriter;
 import com.gbic.utils.BiclusterStructure;
 import com.gbic.utils.ComposedBiclusterPattern;
 import com.gbic.utils.IOUtils;
@@ -49,12 +53,18 @@ import com.gbic.utils.OverlappingSettings;
 import com.gbic.utils.QualitySettings;
 import com.gbic.utils.RandomObject;
 import com.gbic.utils.SingleBiclusterPattern;
+import com.gbic.utils.TSVWriter;
 
 public class GBicService extends Observable implements Observer {
 
 	private String path = "data/";
 	private String filename = "";
 	private boolean singleFile;
+	private boolean parallelOutput = true;
+	private boolean parallelPlanting = true;
+	private boolean formulaBackedCells = false;
+	private boolean savePlan = false;
+	private OutputFormat outputFormat = OutputFormat.TSV;
 	
 	//Helper class to organize the tricluster's patterns
 	public class BiclusterPatternWrapper{
@@ -130,6 +140,8 @@ public class GBicService extends Observable implements Observer {
 	
 	private JSONObject biclustersJSON;
 	private Dataset generatedDataset;
+	//The plan the last numeric dataset was rendered from
+	private GenerationPlan generationPlan;
 	
 	private BiConsumer<Integer, Integer> progressUpdate;
 	private Consumer<String> messageUpdate;
@@ -256,6 +268,88 @@ public class GBicService extends Observable implements Observer {
 		return this.singleFile;
 	}
 	
+	/**
+	 * Set whether the single output file should be formatted in parallel (the file's content is the same)
+	 * @param b true to format row blocks in parallel, false to format them on the calling thread
+	 */
+	public void setParallelOutput(boolean b) {
+		this.parallelOutput = b;
+	}
+	
+	/**
+	 * Check if the single output file is formatted in parallel
+	 * @return true if row blocks are formatted in parallel, false otherwise
+	 */
+	public boolean isParallelOutput() {
+		return this.parallelOutput;
+	}
+	
+	/**
+	 * Set whether the biclusters that cannot overlap others are synthesized in parallel (the dataset is the same)
+	 * @param b true to synthesize them on the common fork-join pool, false to generate them one after another
+	 */
+	public void setParallelPlanting(boolean b) {
+		this.parallelPlanting = b;
+	}
+	
+	/**
+	 * Check if the biclusters that cannot overlap others are synthesized in parallel
+	 * @return true if they are synthesized on the common fork-join pool, false otherwise
+	 */
+	public boolean isParallelPlanting() {
+		return this.parallelPlanting;
+	}
+	
+	/**
+	 * Set whether the numeric biclusters that overlap no other are kept as formulas over their factors instead of
+	 * storing their elements (the dataset is the same)
+	 * @param b true to keep them as formulas, false to store their elements
+	 */
+	public void setFormulaBackedCells(boolean b) {
+		this.formulaBackedCells = b;
+	}
+	
+	/**
+	 * Check if the numeric biclusters that overlap no other are kept as formulas
+	 * @return true if they are kept as formulas, false if their elements are stored
+	 */
+	public boolean isFormulaBackedCells() {
+		return this.formulaBackedCells;
+	}
+	
+	/**
+	 * Set whether numeric datasets also write their generation plan (the seed, the background, the planned biclusters
+	 * and the quality settings), from which the dataset, or any range of its rows, can be rendered again
+	 * @param b true to write the plan, false otherwise
+	 */
+	public void setSavePlan(boolean b) {
+		this.savePlan = b;
+	}
+	
+	/**
+	 * Check if numeric datasets also write their generation plan
+	 * @return true if the plan is written, false otherwise
+	 */
+	public boolean isSavePlan() {
+		return this.savePlan;
+	}
+	
+	/**
+	 * Set the dataset's output format
+	 * @param format TSV for a tab separated file, BINARY for a memory-mappable binary file with a JSON sidecar
+	 */
+	public void setOutputFormat(OutputFormat format) {
+		this.outputFormat = format;
+	}
+	
+	/**
+	 * Get the dataset's output format
+	 * @return the output format
+	 */
+	public OutputFormat getOutputFormat() {
+		return this.outputFormat;
+	}
+	
 	private void fillNumericPatterns() {
 		
 		BufferedReader patternReader = null;
@@ -808,6 +902,14 @@ public class GBicService extends Observable implements Observer {
 		return this.generatedDataset;
 	}
 	
+	/**
+	 * Get the plan the last numeric dataset was rendered from
+	 * @return the generation plan
+	 */
+	public GenerationPlan getGenerationPlan() {
+		return this.generationPlan;
+	}
+	
 	/**
 	 * Generated a numeric dataset
 	 * @throws Exception
@@ -842,31 +944,28 @@ public class GBicService extends Observable implements Observer {
 		stopTimeGen = System.currentTimeMillis();
 		
 		generator.addObserver(this);
+		generator.setParallelPlanting(this.parallelPlanting);
+		generator.setFormulaBackedCells(this.formulaBackedCells);
 		
 		System.out.println("(TricDatasetGenerator) Execution Time: " + ((double)(stopTimeGen - startTimeGen)) / 1000);
 		
 		updateProgressStatusAndMessage(20, "Generating Biclusters...");
 		
 		startTimeBics = System.currentTimeMillis();
-		NumericDataset generatedDataset = (NumericDataset) generator.generate(bicPatterns, bicStructure, overlappingSettings);
+		GenerationPlan plan = generator.plan(bicPatterns, bicStructure, overlappingSettings);
+		plan.setQualitySettings(this.qualitySettings);
 		stopTimeBics = System.currentTimeMillis();
 
 		System.out.println("(GeneratePlaidRealBics) Execution Time: " + ((double) (stopTimeBics - startTimeBics)) / 1000);
 		
-		updateProgressStatusAndMessage(80, "Generating Missings...");
-		System.out.println("Generating Missings...");
-		generatedDataset.plantMissingElements(this.qualitySettings.getPercMissingsOnBackground(), this.qualitySettings.getPercMissingsOnBics());
-		
-		updateProgressStatusAndMessage(85, "Generating Noise...");
-		System.out.println("Generating Noise...");
-		generatedDataset.plantNoisyElements(this.qualitySettings.getPercNoiseOnBackground(), this.qualitySettings.getPercNoiseOnBics(), this.qualitySettings.getNoiseDeviation());
-		
-		updateProgressStatusAndMessage(90, "Generating Errors...");
-		System.out.println("Generating Errors...");
-		generatedDataset.plantErrors(this.qualitySettings.getPercErrorsOnBackground(), this.qualitySettings.getPercErrorsOnBics(), this.qualitySettings.getNoiseDeviation());
+		updateProgressStatusAndMessage(80, "Rendering the dataset...");
+		System.out.println("Rendering the dataset (with its missings, noise and errors)...");
+		NumericDataset<? extends Number> generatedDataset = generator.render(plan);
 		
 		updateProgressStatusAndMessage(95, "Writing output...");
 		
+		this.generationPlan = plan;
+		
 		this.generatedDataset = generatedDataset;
 		this.generatedDataset.destroyElementsMap();
 		
@@ -898,6 +997,42 @@ public class GBicService extends Observable implements Observer {
 		//updateProgressStatusAndMessage(100, "Completed!");
 	}
 	
+	/**
+	 * Render a numeric dataset from a generation plan, such as one written by a previous generation (see setSavePlan)
+	 * @param plan The generation plan
+	 * @throws Exception
+	 */
+	public void renderNumericDataset(GenerationPlan plan) throws Exception {
+		
+		String tricDataFileName;
+		String datasetFileName;
+		
+		if(this.filename.isEmpty()) {	
+			tricDataFileName = "dataset" + "_" + plan.getNumRows() + "x" + plan.getNumCols();
+			datasetFileName = "dataset" + "_" + plan.getNumRows() + "x" + plan.getNumCols();
+		}
+		else {
+			tricDataFileName = this.filename + "_bics";
+			datasetFileName = this.filename + "_data";
+		}
+		
+		NumericDatasetGenerator generator = new NumericDatasetGenerator(plan);
+		generator.addObserver(this);
+		generator.setParallelPlanting(this.parallelPlanting);
+		generator.setFormulaBackedCells(this.formulaBackedCells);
+		
+		updateProgressStatusAndMessage(20, "Rendering the dataset...");
+		NumericDataset<? extends Number> generatedDataset = generator.render(plan);
+		
+		updateProgressStatusAndMessage(95, "Writing output...");
+		
+		this.generationPlan = plan;
+		this.generatedDataset = generatedDataset;
+		this.generatedDataset.destroyElementsMap();
+		
+		saveNumericResult(generatedDataset, tricDataFileName, datasetFileName);
+	}
+	
 	public void generateHeterogeneousDataset() throws Exception {
 		
 		long startTimeGen;
@@ -935,6 +1070,7 @@ public class GBicService extends Observable implements Observer {
 		stopTimeGen = System.currentTimeMillis();
 		
 		generator.addObserver(this);
+		generator.setParallelPlanting(this.parallelPlanting);
 		
 		System.out.println("(TricDatasetGenerator) Execution Time: " + ((double)(stopTimeGen - startTimeGen)) / 1000);
 		
@@ -1029,6 +1165,7 @@ public class GBicService extends Observable implements Observer {
 		stopTimeGen = System.currentTimeMillis();
 
 		generator.addObserver(this);
+		generator.setParallelPlanting(this.parallelPlanting);
 		
 		System.out.println("(BicMatrixGenerator) Execution Time: " + ((double)(stopTimeGen - startTimeGen))/1000 + " secs");
 
@@ -1118,33 +1255,12 @@ public class GBicService extends Observable implements Observer {
 		
 		this.biclustersJSON = this.biclustersJSON.getJSONObject("biclusters");
 		
-		int threshold = generatedDataset.getNumRows() / 10;
-		
-		if (threshold == 0)
-			threshold++;
-		
-		int step = generatedDataset.getNumRows() / threshold;
-
-		ExecutorService es = null;
-		
-		if(!this.isSingleFileOutput())
-			es = Executors.newCachedThreadPool();
-		
-		for(int s = 0; s < step; s++)
-			if(this.isSingleFileOutput())
-				IOUtils.writeFile(path, datasetFileName + ".tsv", IOUtils.matrixToStringColOriented(generatedDataset, threshold, s, s==0), s!=0);	
-			else {
-				Thread t = new Thread(new OutputWriterThread(path, datasetFileName, s, threshold, generatedDataset));
-				es.execute(t);
-			}
-		
-
-		if(!this.isSingleFileOutput()) {
-			es.shutdown();
-			es.awaitTermination(5, TimeUnit.MINUTES);
+		if(this.savePlan && this.generationPlan != null) {
+			IOUtils.writeFile(path, datasetFileName + "_plan.json", this.generationPlan.toJSON().toString(), false);
+			System.out.println("Generation plan written!");
 		}
 		
-		System.out.println("Dataset tsv file written!");
+		saveDataset(generatedDataset, tricDataFileName, datasetFileName);
 
 	}
 	
@@ -1169,32 +1285,7 @@ public class GBicService extends Observable implements Observer {
 		
 		this.biclustersJSON = this.biclustersJSON.getJSONObject("biclusters");
 
-		int threshold = generatedDataset.getNumRows() / 10;
-		
-		if (threshold == 0)
-			threshold++;
-		
-		int step = generatedDataset.getNumRows() / threshold;
-
-		ExecutorService es = null;
-		
-		if(!this.isSingleFileOutput())
-			es = Executors.newCachedThreadPool();
-		
-		for(int s = 0; s <= step; s++)
-			if(this.isSingleFileOutput())
-				IOUtils.writeFile(path, datasetFileName + ".tsv", IOUtils.matrixToStringColOriented(generatedDataset, threshold, s, s==0), s!=0);
-			else {
-				Thread t = new Thread(new OutputWriterThread(path, datasetFileName, s, threshold, generatedDataset));
-				es.execute(t);
-			}
-
-		if(!this.isSingleFileOutput()) {
-			es.shutdown();
-			es.awaitTermination(5, TimeUnit.MINUTES);
-		}
-		
-		System.out.println("Dataset tsv file written!");
+		saveDataset(generatedDataset, tricDataFileName, datasetFileName);
 
 	}
 
@@ -1230,28 +1321,50 @@ public class GBicService extends Observable implements Observer {
 		
 		//this.biclustersJSON = this.biclustersJSON.getJSONObject("biclusters");
 		
+		saveDataset(generatedDataset, tricDataFileName, datasetFileName);
+	}
+	
+	/**
+	 * Write the dataset's file. In TSV format: a single file (optionally formatted in parallel), or one file per tenth
+	 * of the rows written in parallel. In BINARY format: a binary file and its JSON sidecar
+	 * @param generatedDataset The dataset
+	 * @param tricDataFileName The name of the tricluster's files
+	 * @param datasetFileName The name of the dataset file
+	 * @throws Exception
+	 */
+	private void saveDataset(Dataset generatedDataset, String tricDataFileName, String datasetFileName) throws Exception {
+		
+		if(this.getOutputFormat().equals(OutputFormat.BINARY)) {
+			JSONObject sidecar = BinaryDatasetWriter.write(generatedDataset, path + datasetFileName + ".bin", tricDataFileName + ".json");
+			IOUtils.writeFile(path, datasetFileName + ".json", sidecar.toString(), false);
+			System.out.println("Dataset binary file written!");
+			return;
+		}
+		
 		int threshold = generatedDataset.getNumRows() / 10;
 		
 		if (threshold == 0)
 			threshold++;
 		
-		int step = generatedDataset.getNumRows() / threshold;
-
-		ExecutorService es = null;
-		
-		if(!this.isSingleFileOutput())
-			es = Executors.newCachedThreadPool();
-		
-		for(int s = 0; s < step; s++)
-			if(this.isSingleFileOutput())
-				IOUtils.writeFile(path, datasetFileName + ".tsv", IOUtils.matrixToStringColOriented(generatedDataset, threshold, s, s==0), s!=0);	
-			else {
-				Thread t = new Thread(new OutputWriterThread(path, datasetFileName, s, threshold, generatedDataset));
-				es.execute(t);
+		int step = (generatedDataset.getNumRows() + threshold - 1) / threshold;
+		
+		if(this.isSingleFileOutput()) {
+			try(TSVWriter writer = new TSVWriter(path + datasetFileName + ".tsv", false)) {
+				writer.writeHeader(generatedDataset.getNumCols());
+				if(this.isParallelOutput())
+					writer.writeRowsParallel(generatedDataset, 0, generatedDataset.getNumRows(), ForkJoinPool.commonPool());
+				else for(int s = 0; s < step; s++) {
+					System.out.println("Writing dataset file: " + (((double) s) / step * 100) + "%");
+					writer.writeRows(generatedDataset, s * threshold, Math.min((s + 1) * threshold, generatedDataset.getNumRows()));
+				}
 			}
-		
-
-		if(!this.isSingleFileOutput()) {
+		}
+		else {
+			ExecutorService es = Executors.newCachedThreadPool();
+			
+			for(int s = 0; s < step; s++)
+				es.execute(new OutputWriterThread(path, datasetFileName, s, threshold, generatedDataset));
+			
 			es.shutdown();
 			es.awaitTermination(5, TimeUnit.MINUTES);
 		}
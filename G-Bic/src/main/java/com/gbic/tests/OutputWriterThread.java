@@ -1,9 +1,7 @@
 package com.gbic.tests;
 
-import com.gbic.domain.dataset.HeterogeneousDataset;
-import com.gbic.domain.dataset.NumericDataset;
-import com.gbic.domain.dataset.SymbolicDataset;
-import com.gbic.utils.IOUtils;
+import com.gbic.domain.dataset.Dataset;
+import com.gbic.utils.TSVWriter;
 
 public class OutputWriterThread implements Runnable {
 
@@ -11,22 +9,20 @@ public class OutputWriterThread implements Runnable {
 	private String name;
 	private int step;
 	private int threshold;
-	
-	private NumericDataset numericDataset;
-	private SymbolicDataset symbolicDataset;
-	private HeterogeneousDataset mixedDataset;
-	
+
+	private Dataset dataset;
+
 	@Override
 	public void run() {
-		try {
-			
-			if(numericDataset != null)
-				IOUtils.writeFile(path, this.name + "_" + step + ".txt", IOUtils.matrixToStringColOriented(numericDataset, threshold, step, true), false);
-			else if(symbolicDataset != null)
-				IOUtils.writeFile(path, this.name + "_" + step + ".txt", IOUtils.matrixToStringColOriented(symbolicDataset, threshold, step, true), false);
-			else
-				IOUtils.writeFile(path, this.name + "_" + step + ".txt", IOUtils.matrixToStringColOriented(mixedDataset, threshold, step, true), false);
-				
+
+		int fromRow = step * threshold;
+		int toRow = Math.min(fromRow + threshold, dataset.getNumRows());
+
+		try(TSVWriter writer = new TSVWriter(path + this.name + "_" + step + ".txt", false)) {
+
+			writer.writeHeader(dataset.getNumCols());
+			writer.writeRows(dataset, fromRow, toRow);
+
 		} catch (Exception e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -35,30 +31,11 @@ public class OutputWriterThread implements Runnable {
 
 	}
 
-	public OutputWriterThread(String path, String name, int step, int threshold, NumericDataset numericDataset) {
-		this.path = path;
-		this.name = name;
-		this.step = step;
-		this.threshold = threshold;
-		this.numericDataset = numericDataset;
-		this.symbolicDataset = null;
-	}
-	
-	public OutputWriterThread(String path, String name, int step, int threshold, SymbolicDataset symbolicDataset) {
-		this.path = path;
-		this.name = name;
-		this.step = step;
-		this.threshold = threshold;
-		this.symbolicDataset = symbolicDataset;
-		this.numericDataset = null;
-	}
-	
-	public OutputWriterThread(String path, String name, int step, int threshold, HeterogeneousDataset miedDataset) {
+	public OutputWriterThread(String path, String name, int step, int threshold, Dataset dataset) {
 		this.path = path;
 		this.name = name;
 		this.step = step;
 		this.threshold = threshold;
-		this.mixedDataset = mixedDataset;
-		this.numericDataset = null;
+		this.dataset = dataset;
 	}
 }
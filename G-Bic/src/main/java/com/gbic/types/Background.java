@@ -1,11 +1,15 @@
 package com.gbic.types;
 
+import com.gbic.utils.AliasTable;
+
 public class Background {
 
 	private BackgroundType type;
 	private double param1;
 	private double param2;
 	private double[] param3;
+	//Built on first use from param3, and shared by every sampler of this background
+	private AliasTable aliasTable;
 	
 	//When background is UNIFORM or MISSING
 	public Background(BackgroundType type) {
@@ -61,6 +65,17 @@ public class Background {
 
 	public void setParam3(double[] param3) {
 		this.param3 = param3;
+		this.aliasTable = null;
+	}
+
+	/**
+	 * Get the alias table of the discrete probabilities (param3), to draw them in constant time
+	 * @return the alias table
+	 */
+	public AliasTable getAliasTable() {
+		if(aliasTable == null)
+			aliasTable = new AliasTable(param3);
+		return aliasTable;
 	}
 	
 	
@@ -0,0 +1,6 @@
+package com.gbic.types;
+
+public enum OutputFormat {
+
+	TSV, BINARY;
+}
@@ -0,0 +1,88 @@
+/**
+ * AliasTable Class
+ *
+ * Walker's alias method, built with Vose's algorithm: after an O(n) setup, drawing from a discrete
+ * distribution over n outcomes takes one uniform column and one biased coin flip, whatever n and the
+ * skew of the probabilities. Tables are immutable and can be shared between threads.
+ */
+package com.gbic.utils;
+
+public class AliasTable {
+
+	private final double[] prob;
+	private final int[] alias;
+
+	/**
+	 * Builds the table of a discrete distribution
+	 * @param probs The outcomes' probabilities (weights are normalized by their sum)
+	 */
+	public AliasTable(double[] probs) {
+
+		int n = probs.length;
+		if(n == 0)
+			throw new IllegalArgumentException("A discrete distribution needs at least one outcome");
+
+		double sum = 0;
+		for(double p : probs) {
+			if(p < 0 || Double.isNaN(p))
+				throw new IllegalArgumentException("Probabilities must be non-negative, found " + p);
+			sum += p;
+		}
+		if(sum <= 0)
+			throw new IllegalArgumentException("The probabilities must not all be zero");
+
+		this.prob = new double[n];
+		this.alias = new int[n];
+
+		//Scaled probabilities: columns under 1 are filled up by the surplus of columns over 1
+		double[] scaled = new double[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int smallSize = 0;
+		int largeSize = 0;
+
+		for(int i = 0; i < n; i++) {
+			scaled[i] = probs[i] * n / sum;
+			if(scaled[i] < 1)
+				small[smallSize++] = i;
+			else
+				large[largeSize++] = i;
+		}
+
+		while(smallSize > 0 && largeSize > 0) {
+			int less = small[--smallSize];
+			int more = large[--largeSize];
+			prob[less] = scaled[less];
+			alias[less] = more;
+			scaled[more] = (scaled[more] + scaled[less]) - 1;
+			if(scaled[more] < 1)
+				small[smallSize++] = more;
+			else
+				large[largeSize++] = more;
+		}
+
+		//What is left is 1 up to rounding errors
+		while(largeSize > 0)
+			prob[large[--largeSize]] = 1;
+		while(smallSize > 0)
+			prob[small[--smallSize]] = 1;
+	}
+
+	/**
+	 * Draw an outcome
+	 * @param r The random stream
+	 * @return the outcome's index
+	 */
+	public int sample(CounterRandom r) {
+		int column = r.nextInt(prob.length);
+		return (r.nextDouble() < prob[column]) ? column : alias[column];
+	}
+
+	/**
+	 * Get the number of outcomes
+	 * @return the number of outcomes
+	 */
+	public int size() {
+		return prob.length;
+	}
+}
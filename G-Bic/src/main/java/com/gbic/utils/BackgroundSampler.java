@@ -0,0 +1,219 @@
+/**
+ * BackgroundSampler Class
+ *
+ * Draws a dataset's background elements. Each element is drawn from its own counter-based stream
+ * (see CounterRandom), so an element's value does not depend on how, or by which thread, it is
+ * requested. The parameters of the distribution are resolved once, when the sampler is built, and
+ * whole row segments can be filled at once into a caller's buffer: the draws go first, then the
+ * scaling and clamping run as plain loops over the buffer.
+ */
+package com.gbic.utils;
+
+import com.gbic.types.Background;
+import com.gbic.types.BackgroundType;
+
+public class BackgroundSampler {
+
+	private final BackgroundType type;
+	private final long seed;
+	private final int numCols;
+
+	//Numeric range (numeric samplers) or alphabet size (symbolic samplers)
+	private final double min;
+	private final double max;
+	private final boolean integer;
+	private final int alphabetLength;
+
+	private final double mean;
+	private final double sd;
+	private final AliasTable aliasTable;
+
+	private BackgroundSampler(Background background, long seed, int numCols, double min, double max, boolean integer,
+			int alphabetLength) {
+
+		this.type = background.getType();
+		this.seed = seed;
+		this.numCols = numCols;
+		this.min = min;
+		this.max = max;
+		this.integer = integer;
+		this.alphabetLength = alphabetLength;
+		this.mean = background.getParam1();
+		this.sd = background.getParam2();
+		this.aliasTable = (type == BackgroundType.DISCRETE) ? background.getAliasTable() : null;
+	}
+
+	/**
+	 * Build the sampler of a numeric background
+	 * @param background The background
+	 * @param seed The background seed
+	 * @param numCols The dataset's number of columns (elements are keyed by their row-major position)
+	 * @param min The minimum value
+	 * @param max The maximum value
+	 * @param integer Whether the values are integers
+	 * @return the sampler
+	 */
+	public static BackgroundSampler numeric(Background background, long seed, int numCols, double min, double max,
+			boolean integer) {
+		return new BackgroundSampler(background, seed, numCols, min, max, integer, 0);
+	}
+
+	/**
+	 * Build the sampler of a symbolic background
+	 * @param background The background
+	 * @param seed The background seed
+	 * @param numCols The dataset's number of columns (elements are keyed by their row-major position)
+	 * @param alphabetLength The alphabet's number of symbols
+	 * @return the sampler
+	 */
+	public static BackgroundSampler symbolic(Background background, long seed, int numCols, int alphabetLength) {
+		return new BackgroundSampler(background, seed, numCols, 0, 0, false, alphabetLength);
+	}
+
+	/**
+	 * Get the background value of an element
+	 * @param row The row ID
+	 * @param col The column ID
+	 * @return the element's value, or NaN if the background is missing
+	 */
+	public double value(int row, int col) {
+
+		CounterRandom r = new CounterRandom(seed, key(row, col));
+
+		switch(type) {
+			case UNIFORM:
+				return uniform(r);
+			case DISCRETE:
+				return discrete(r);
+			case NORMAL:
+				return clamp(mean + sd * r.nextGaussian());
+			default:
+				return Double.NaN;
+		}
+	}
+
+	/**
+	 * Fill the background values of a row segment
+	 * @param row The row ID
+	 * @param fromCol The first column (inclusive)
+	 * @param toCol The last column (exclusive)
+	 * @param out The buffer, indexed from 0 (NaN marks a missing background)
+	 */
+	public void fill(int row, int fromCol, int toCol, double[] out) {
+
+		int length = toCol - fromCol;
+		long key = key(row, fromCol);
+		CounterRandom r = new CounterRandom(seed, key);
+
+		switch(type) {
+			case UNIFORM:
+				for(int i = 0; i < length; i++)
+					out[i] = uniform(r.at(key + i));
+				break;
+			case DISCRETE:
+				for(int i = 0; i < length; i++)
+					out[i] = discrete(r.at(key + i));
+				break;
+			case NORMAL:
+				for(int i = 0; i < length; i++)
+					out[i] = r.at(key + i).nextGaussian();
+				for(int i = 0; i < length; i++)
+					out[i] = mean + sd * out[i];
+				for(int i = 0; i < length; i++)
+					out[i] = Math.min(Math.max(out[i], min), max);
+				if(integer)
+					for(int i = 0; i < length; i++)
+						out[i] = (int) out[i];
+				break;
+			default:
+				for(int i = 0; i < length; i++)
+					out[i] = Double.NaN;
+		}
+	}
+
+	/**
+	 * Get the background symbol of an element
+	 * @param row The row ID
+	 * @param col The column ID
+	 * @return the symbol's index in the alphabet, or -1 if the background is missing
+	 */
+	public int symbol(int row, int col) {
+
+		CounterRandom r = new CounterRandom(seed, key(row, col));
+
+		switch(type) {
+			case UNIFORM:
+				return r.nextInt(alphabetLength);
+			case DISCRETE:
+				return discreteSymbol(r);
+			case NORMAL:
+				return clampSymbol((int) (mean + sd * r.nextGaussian()));
+			default:
+				return -1;
+		}
+	}
+
+	/**
+	 * Fill the background symbols of a row segment
+	 * @param row The row ID
+	 * @param fromCol The first column (inclusive)
+	 * @param toCol The last column (exclusive)
+	 * @param out The buffer, indexed from 0, with the symbols' indexes in the alphabet (-1 marks a missing background)
+	 */
+	public void fillSymbols(int row, int fromCol, int toCol, int[] out) {
+
+		int length = toCol - fromCol;
+		long key = key(row, fromCol);
+		CounterRandom r = new CounterRandom(seed, key);
+
+		switch(type) {
+			case UNIFORM:
+				for(int i = 0; i < length; i++)
+					out[i] = r.at(key + i).nextInt(alphabetLength);
+				break;
+			case DISCRETE:
+				for(int i = 0; i < length; i++)
+					out[i] = discreteSymbol(r.at(key + i));
+				break;
+			case NORMAL:
+				for(int i = 0; i < length; i++)
+					out[i] = clampSymbol((int) (mean + sd * r.at(key + i).nextGaussian()));
+				break;
+			default:
+				for(int i = 0; i < length; i++)
+					out[i] = -1;
+		}
+	}
+
+	private long key(int row, int col) {
+		return (long) row * numCols + col;
+	}
+
+	private double uniform(CounterRandom r) {
+		if(integer)
+			return r.nextInt((int) max - (int) min + 1) + (int) min;
+		return r.nextDouble() * (max - min) + min;
+	}
+
+	private double clamp(double value) {
+		value = Math.min(Math.max(value, min), max);
+		return integer ? (int) value : value;
+	}
+
+	private int clampSymbol(int index) {
+		if(index < 0)
+			return 0;
+		if(index >= alphabetLength)
+			return alphabetLength - 1;
+		return index;
+	}
+
+	//Numeric discrete backgrounds give the (1-based) position of the drawn probability
+	private int discrete(CounterRandom r) {
+		return aliasTable.sample(r) + 1;
+	}
+
+	private int discreteSymbol(CounterRandom r) {
+		return aliasTable.sample(r);
+	}
+}
@@ -367,33 +367,13 @@ public class BicMath {
 		return min;
 	}
 	
+	/**
+	 * Get the Nth root of a value
+	 * @param A The value
+	 * @param N The root's degree
+	 * @return A^(1/N)
+	 */
 	public static double nthRoot(double A, double N) {
-          
-        // intially guessing a random number between 
-        // 0 and 9 
-        double xPre = Math.random() % 10; 
-      
-        // smaller eps, denotes more accuracy 
-        double eps = 0.001; 
-      
-        // initializing difference between two 
-        // roots by INT_MAX 
-        double delX = 2147483647; 
-      
-        // xK denotes current value of x 
-        double xK = 0.0; 
-      
-        // loop untill we reach desired accuracy 
-        while (delX > eps) 
-        { 
-            // calculating current value from previous 
-            // value by newton's method 
-            xK = ((N - 1.0) * xPre + 
-            A / Math.pow(xPre, N - 1)) / N; 
-            delX = Math.abs(xK - xPre); 
-            xPre = xK; 
-        } 
-      
-        return xK; 
-    } 
+		return Math.pow(A, 1.0 / N);
+	}
 }
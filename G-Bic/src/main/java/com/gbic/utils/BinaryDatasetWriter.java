@@ -0,0 +1,256 @@
+/**
+ * BinaryDatasetWriter Class
+ *
+ * Writes a dataset in a binary, memory-mappable layout (all little-endian, every block 8-byte aligned):
+ *
+ *   header   64 bytes: magic "GBIC", version, rows, columns, numeric columns, symbolic columns,
+ *            value type, code width, and the offsets (longs) of the three blocks below
+ *   values   row-major [rows][numeric columns] int32 or float64 values (missing: Integer.MIN_VALUE or NaN)
+ *   missing  row-major bitmap over all [rows][columns], as 64-bit words with the lowest bit first
+ *   codes    row-major [rows][symbolic columns] alphabet indexes, uint8 or uint16 (missing: all bits set)
+ *
+ * In heterogeneous datasets the numeric columns come first, as in the tsv output. The layout, the
+ * alphabet and the name of the biclusters' JSON file are described in a JSON sidecar.
+ */
+package com.gbic.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.json.JSONObject;
+
+import com.gbic.domain.dataset.Dataset;
+import com.gbic.domain.dataset.HeterogeneousDataset;
+import com.gbic.domain.dataset.NumericDataset;
+import com.gbic.domain.dataset.SymbolicDataset;
+
+public class BinaryDatasetWriter {
+
+	public static final int MAGIC = 0x43494247;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 64;
+
+	public static final int VALUE_NONE = 0;
+	public static final int VALUE_INT32 = 1;
+	public static final int VALUE_FLOAT64 = 2;
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final Dataset dataset;
+	private final int numericCols;
+	private final int symbolicCols;
+	private final int valueType;
+	private final int codeWidth;
+	private final String[] alphabet;
+
+	private FileChannel channel;
+	private ByteBuffer buffer;
+
+	private BinaryDatasetWriter(Dataset dataset) {
+
+		this.dataset = dataset;
+
+		if(dataset instanceof NumericDataset) {
+			NumericDataset<? extends Number> numeric = (NumericDataset<? extends Number>) dataset;
+			this.numericCols = dataset.getNumCols();
+			this.symbolicCols = 0;
+			this.valueType = numeric.isRealValued() ? VALUE_FLOAT64 : VALUE_INT32;
+			this.alphabet = new String[0];
+		}
+		else if(dataset instanceof SymbolicDataset) {
+			this.numericCols = 0;
+			this.symbolicCols = dataset.getNumCols();
+			this.valueType = VALUE_NONE;
+			this.alphabet = ((SymbolicDataset) dataset).getAlphabet();
+		}
+		else {
+			HeterogeneousDataset heterogeneous = (HeterogeneousDataset) dataset;
+			this.numericCols = heterogeneous.getNumericCols();
+			this.symbolicCols = heterogeneous.getSymbolicCols();
+			this.valueType = heterogeneous.isRealValued() ? VALUE_FLOAT64 : VALUE_INT32;
+			this.alphabet = heterogeneous.getAlphabet();
+		}
+
+		if(symbolicCols == 0)
+			this.codeWidth = 0;
+		else
+			this.codeWidth = (alphabet.length < 0xFF) ? 1 : 2;
+	}
+
+	/**
+	 * Write a dataset in the binary layout
+	 * @param dataset The dataset
+	 * @param file The binary file's path
+	 * @param biclustersFile The name of the file with the biclusters' JSON
+	 * @return The sidecar describing the file's layout
+	 * @throws IOException
+	 */
+	public static JSONObject write(Dataset dataset, String file, String biclustersFile) throws IOException {
+
+		BinaryDatasetWriter writer = new BinaryDatasetWriter(dataset);
+
+		try(FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			writer.channel = channel;
+			writer.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			return writer.write(biclustersFile);
+		}
+	}
+
+	private JSONObject write(String biclustersFile) throws IOException {
+
+		int numRows = dataset.getNumRows();
+		int numCols = dataset.getNumCols();
+		int valueBytes = (valueType == VALUE_FLOAT64) ? 8 : (valueType == VALUE_INT32) ? 4 : 0;
+
+		long valuesOffset = HEADER_SIZE;
+		long missingOffset = align((long) numRows * numericCols * valueBytes + valuesOffset);
+		long codesOffset = missingOffset + 8 * (((long) numRows * numCols + 63) >>> 6);
+		long length = align((long) numRows * symbolicCols * codeWidth + codesOffset);
+
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(numRows).putInt(numCols);
+		buffer.putInt(numericCols).putInt(symbolicCols).putInt(valueType).putInt(codeWidth);
+		buffer.putLong(valuesOffset).putLong(missingOffset).putLong(codesOffset);
+		pad(HEADER_SIZE);
+
+		double[] values = new double[numericCols];
+		int[] codes = new int[symbolicCols];
+
+		for(int row = 0; row < numRows; row++) {
+			numericRow(row, values);
+			for(int col = 0; col < numericCols; col++) {
+				ensure(8);
+				if(valueType == VALUE_FLOAT64)
+					buffer.putDouble(values[col]);
+				else
+					buffer.putInt(Double.isNaN(values[col]) ? Integer.MIN_VALUE : (int) values[col]);
+			}
+		}
+		pad(missingOffset);
+
+		long word = 0;
+		int bit = 0;
+		for(int row = 0; row < numRows; row++) {
+			numericRow(row, values);
+			symbolicRow(row, codes);
+			for(int col = 0; col < numCols; col++) {
+				boolean missing = (col < numericCols) ? Double.isNaN(values[col]) : codes[col - numericCols] < 0;
+				if(missing)
+					word |= 1L << bit;
+				if(++bit == 64) {
+					ensure(8);
+					buffer.putLong(word);
+					word = 0;
+					bit = 0;
+				}
+			}
+		}
+		if(bit > 0) {
+			ensure(8);
+			buffer.putLong(word);
+		}
+
+		for(int row = 0; row < numRows; row++) {
+			symbolicRow(row, codes);
+			for(int col = 0; col < symbolicCols; col++) {
+				ensure(2);
+				if(codeWidth == 1)
+					buffer.put((byte) codes[col]);
+				else
+					buffer.putShort((short) codes[col]);
+			}
+		}
+		pad(length);
+		flush();
+
+		JSONObject sidecar = new JSONObject();
+		sidecar.put("format", "G-Bic binary");
+		sidecar.put("version", VERSION);
+		sidecar.put("byteOrder", "LITTLE_ENDIAN");
+		sidecar.put("rows", numRows);
+		sidecar.put("columns", numCols);
+		sidecar.put("numericColumns", numericCols);
+		sidecar.put("symbolicColumns", symbolicCols);
+		sidecar.put("valueType", (valueType == VALUE_FLOAT64) ? "float64" : (valueType == VALUE_INT32) ? "int32" : "none");
+		sidecar.put("codeType", (codeWidth == 1) ? "uint8" : (codeWidth == 2) ? "uint16" : "none");
+		sidecar.put("valuesOffset", valuesOffset);
+		sidecar.put("missingOffset", missingOffset);
+		sidecar.put("codesOffset", codesOffset);
+		sidecar.put("alphabet", alphabet);
+		sidecar.put("biclustersFile", biclustersFile);
+
+		return sidecar;
+	}
+
+	//The row's numeric values (stored or background), NaN where they are missing
+	private void numericRow(int row, double[] values) {
+
+		if(numericCols == 0)
+			return;
+
+		if(dataset instanceof NumericDataset) {
+			NumericDataset<? extends Number> numeric = (NumericDataset<? extends Number>) dataset;
+			numeric.generateBackgroundRow(row, 0, numericCols, values);
+			for(int col = 0; col < numericCols; col++)
+				if(numeric.existsMatrixItem(row, col))
+					values[col] = numeric.isMissingItem(row, col) ? Double.NaN : numeric.getMatrixValue(row, col);
+		}
+		else {
+			HeterogeneousDataset heterogeneous = (HeterogeneousDataset) dataset;
+			heterogeneous.generateNumericBackgroundRow(row, 0, numericCols, values);
+			for(int col = 0; col < numericCols; col++)
+				if(heterogeneous.existsNumericElement(row, col))
+					values[col] = heterogeneous.isMissingNumericElement(row, col) ? Double.NaN : heterogeneous.getNumericValue(row, col);
+		}
+	}
+
+	//The row's alphabet indexes (stored or background), -1 where they are missing
+	private void symbolicRow(int row, int[] codes) {
+
+		if(symbolicCols == 0)
+			return;
+
+		if(dataset instanceof SymbolicDataset) {
+			SymbolicDataset symbolic = (SymbolicDataset) dataset;
+			symbolic.generateBackgroundRow(row, 0, symbolicCols, codes);
+			for(int col = 0; col < symbolicCols; col++)
+				if(symbolic.existsMatrixItem(row, col))
+					codes[col] = symbolic.getSymbolIndex(row, col);
+		}
+		else {
+			HeterogeneousDataset heterogeneous = (HeterogeneousDataset) dataset;
+			int numCols = dataset.getNumCols();
+			heterogeneous.generateSymbolicBackgroundRow(row, numericCols, numCols, codes);
+			for(int col = numericCols; col < numCols; col++)
+				if(heterogeneous.existsSymbolicElement(row, col))
+					codes[col - numericCols] = heterogeneous.getSymbolicIndex(row, col);
+		}
+	}
+
+	private static long align(long offset) {
+		return (offset + 7) & ~7L;
+	}
+
+	private void pad(long offset) throws IOException {
+		while(channel.position() + buffer.position() < offset) {
+			ensure(1);
+			buffer.put((byte) 0);
+		}
+	}
+
+	private void ensure(int length) throws IOException {
+		if(buffer.remaining() < length)
+			flush();
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+}
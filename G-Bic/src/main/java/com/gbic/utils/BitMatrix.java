@@ -0,0 +1,221 @@
+/**
+ * BitMatrix Class
+ *
+ * Row-major bitset over the positions of a numRows x numCols matrix. Each position is
+ * addressed by row * numCols + col, so it costs one bit and no key building.
+ */
+package com.gbic.utils;
+
+import java.util.Random;
+
+public class BitMatrix {
+
+	private final int numRows;
+	private final int numCols;
+	private final long[] words;
+	private long cardinality;
+
+	/**
+	 * Constructs an empty bit matrix
+	 * @param numRows The matrix's number of rows
+	 * @param numCols The matrix's number of columns
+	 */
+	public BitMatrix(int numRows, int numCols) {
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.words = new long[(int) ((((long) numRows * numCols) + 63) >>> 6)];
+		this.cardinality = 0;
+	}
+
+	/**
+	 * Get the position of an element in the row-major key space
+	 * @param row The row ID
+	 * @param col The column ID
+	 * @return row * numCols + col
+	 */
+	public long key(int row, int col) {
+		return (long) row * numCols + col;
+	}
+
+	/**
+	 * Set an element
+	 * @param row The row ID
+	 * @param col The column ID
+	 * @return True if the element was not set before, False otherwise
+	 */
+	public boolean set(int row, int col) {
+		return set(key(row, col));
+	}
+
+	/**
+	 * Set an element by its key
+	 * @param key The element's position in the row-major key space
+	 * @return True if the element was not set before, False otherwise
+	 */
+	public boolean set(long key) {
+		int w = (int) (key >>> 6);
+		long mask = 1L << key;
+		if((words[w] & mask) != 0)
+			return false;
+		words[w] |= mask;
+		cardinality++;
+		return true;
+	}
+
+	/**
+	 * Clear an element
+	 * @param row The row ID
+	 * @param col The column ID
+	 * @return True if the element was set before, False otherwise
+	 */
+	public boolean clear(int row, int col) {
+		long key = key(row, col);
+		int w = (int) (key >>> 6);
+		long mask = 1L << key;
+		if((words[w] & mask) == 0)
+			return false;
+		words[w] &= ~mask;
+		cardinality--;
+		return true;
+	}
+
+	/**
+	 * Check if an element is set
+	 * @param row The row ID
+	 * @param col The column ID
+	 * @return True if the element is set, False otherwise
+	 */
+	public boolean get(int row, int col) {
+		return get(key(row, col));
+	}
+
+	/**
+	 * Check if an element is set by its key
+	 * @param key The element's position in the row-major key space
+	 * @return True if the element is set, False otherwise
+	 */
+	public boolean get(long key) {
+		return (words[(int) (key >>> 6)] & (1L << key)) != 0;
+	}
+
+	/**
+	 * Get the number of set elements
+	 * @return |set elements|
+	 */
+	public long cardinality() {
+		return cardinality;
+	}
+
+	/**
+	 * Get the first set element at or after a given key
+	 * @param fromKey The key to start searching from
+	 * @return The key of the next set element, or -1 if there is none
+	 */
+	public long nextSetKey(long fromKey) {
+		long size = (long) numRows * numCols;
+		if(fromKey >= size)
+			return -1;
+		int w = (int) (fromKey >>> 6);
+		long word = words[w] & (-1L << fromKey);
+		while(true) {
+			if(word != 0) {
+				long key = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+				return key < size ? key : -1;
+			}
+			if(++w == words.length)
+				return -1;
+			word = words[w];
+		}
+	}
+
+	/**
+	 * Pick elements uniformly at random, without replacement, among the elements that are clear in every given
+	 * matrix, and set them in the target matrix. Uses Floyd's algorithm over the ranks of the clear elements, so it
+	 * takes count draws whatever the share of clear elements (no rejection)
+	 * @param count The number of elements to pick (at most the number of clear elements)
+	 * @param rand The random stream
+	 * @param target The matrix where the picked elements are set (one of the occupied matrices)
+	 * @param occupied Matrices with the same shape whose set elements cannot be picked
+	 * @return The keys of the picked elements
+	 */
+	public static long[] sampleClear(int count, Random rand, BitMatrix target, BitMatrix... occupied) {
+
+		long size = (long) target.numRows * target.numCols;
+		int numWords = target.words.length;
+
+		//Clear elements, and the number of clear elements before each word
+		long[] free = new long[numWords];
+		int[] rank = new int[numWords + 1];
+		for(int w = 0; w < numWords; w++) {
+			long word = 0;
+			for(BitMatrix m : occupied)
+				word |= m.words[w];
+			free[w] = ~word;
+		}
+		if((size & 63) != 0)
+			free[numWords - 1] &= (1L << size) - 1;
+		for(int w = 0; w < numWords; w++)
+			rank[w + 1] = rank[w] + Long.bitCount(free[w]);
+
+		int available = rank[numWords];
+		count = Math.min(count, available);
+		long[] picked = new long[count];
+
+		for(int j = available - count, i = 0; j < available; j++, i++) {
+			long key = select(free, rank, rand.nextInt(j + 1));
+			if(!target.set(key)) {
+				key = select(free, rank, j);
+				target.set(key);
+			}
+			picked[i] = key;
+		}
+
+		return picked;
+	}
+
+	//Key of the clear element with the given rank
+	private static long select(long[] free, int[] rank, int r) {
+
+		int lo = 0;
+		int hi = free.length - 1;
+		while(lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if(rank[mid] <= r)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+
+		long word = free[lo];
+		for(int k = r - rank[lo]; k > 0; k--)
+			word &= word - 1;
+
+		return ((long) lo << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * Get the row of a key
+	 * @param key The element's position in the row-major key space
+	 * @return The row ID
+	 */
+	public int rowOf(long key) {
+		return (int) (key / numCols);
+	}
+
+	/**
+	 * Get the column of a key
+	 * @param key The element's position in the row-major key space
+	 * @return The column ID
+	 */
+	public int colOf(long key) {
+		return (int) (key % numCols);
+	}
+
+	public int getNumRows() {
+		return numRows;
+	}
+
+	public int getNumCols() {
+		return numCols;
+	}
+}
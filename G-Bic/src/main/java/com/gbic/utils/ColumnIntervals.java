@@ -0,0 +1,97 @@
+/**
+ * ColumnIntervals Class
+ *
+ * The free gaps of a range of columns, that is, the maximal runs of columns that no bicluster uses yet. Gaps are
+ * kept by their first column and, apart, by their length, so marking a column as used and finding a gap that
+ * holds a window of contiguous columns both take O(log n).
+ */
+package com.gbic.utils;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+public class ColumnIntervals {
+
+	private final int low;
+	private final int high;
+
+	//first column of a gap -> its last column (exclusive)
+	private final TreeMap<Integer, Integer> gaps;
+	//length of a gap -> first columns of the gaps with that length
+	private final TreeMap<Integer, TreeSet<Integer>> gapsByLength;
+
+	/**
+	 * Constructs the gaps of a range with no used columns
+	 * @param low The range's first column (inclusive)
+	 * @param high The range's last column (exclusive)
+	 */
+	public ColumnIntervals(int low, int high) {
+		this.low = low;
+		this.high = high;
+		this.gaps = new TreeMap<>();
+		this.gapsByLength = new TreeMap<>();
+		if(high > low)
+			addGap(low, high);
+	}
+
+	/**
+	 * Mark a column as used, splitting the gap that holds it
+	 * @param col The column ID (columns out of the range are ignored)
+	 */
+	public void use(int col) {
+
+		if(col < low || col >= high)
+			return;
+
+		Map.Entry<Integer, Integer> gap = gaps.floorEntry(col);
+		if(gap == null || gap.getValue() <= col)
+			return;
+
+		int start = gap.getKey();
+		int end = gap.getValue();
+		removeGap(start, end);
+		if(col > start)
+			addGap(start, col);
+		if(col + 1 < end)
+			addGap(col + 1, end);
+	}
+
+	/**
+	 * Find a window of free contiguous columns. The smallest gap that holds the window is taken (best fit keeps
+	 * the large gaps for the large biclusters) and the window is placed at random within it
+	 * @param length The window's number of columns
+	 * @param random The random generator
+	 * @return The window's first column, or -1 if no gap is long enough
+	 */
+	public int findWindow(int length, Random random) {
+
+		Map.Entry<Integer, TreeSet<Integer>> fit = gapsByLength.ceilingEntry(length);
+		if(fit == null)
+			return -1;
+
+		return fit.getValue().first() + random.nextInt(fit.getKey() - length + 1);
+	}
+
+	/**
+	 * Get the length of the longest gap
+	 * @return The longest run of free columns
+	 */
+	public int getLongestGap() {
+		return gapsByLength.isEmpty() ? 0 : gapsByLength.lastKey();
+	}
+
+	private void addGap(int start, int end) {
+		gaps.put(start, end);
+		gapsByLength.computeIfAbsent(end - start, length -> new TreeSet<>()).add(start);
+	}
+
+	private void removeGap(int start, int end) {
+		gaps.remove(start);
+		TreeSet<Integer> starts = gapsByLength.get(end - start);
+		starts.remove(start);
+		if(starts.isEmpty())
+			gapsByLength.remove(end - start);
+	}
+}
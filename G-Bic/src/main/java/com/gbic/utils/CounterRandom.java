@@ -0,0 +1,148 @@
+/**
+ * CounterRandom Class
+ *
+ * Counter-based generator (SplitMix64): the numbers drawn for a key are a pure function of the
+ * seed and the key, so a value (e.g. a background element) can be regenerated on its own, in any
+ * order and from any thread. Instances are cheap cursors (they can be moved to another key without
+ * allocating) and are not meant to be shared. Normal values use the Marsaglia-Tsang ziggurat.
+ */
+package com.gbic.utils;
+
+public class CounterRandom {
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+	//Ziggurat with 128 layers: K holds the layers' rejection thresholds, W the scale of each layer and F the density at its edge
+	private static final int LAST_LAYER = 127;
+	private static final double TAIL_START = 3.442619855899;
+	private static final double LAYER_AREA = 9.91256303526217e-3;
+	private static final double TWO_POW_63 = 0x1.0p63;
+	private static final long[] K = new long[LAST_LAYER + 1];
+	private static final double[] W = new double[LAST_LAYER + 1];
+	private static final double[] F = new double[LAST_LAYER + 1];
+
+	static {
+		double d = TAIL_START;
+		double t = d;
+		double fd = gauss(d);
+		double q = LAYER_AREA / fd;
+
+		K[0] = (long) ((d / q) * TWO_POW_63);
+		K[1] = 0;
+		W[0] = q / TWO_POW_63;
+		W[LAST_LAYER] = d / TWO_POW_63;
+		F[0] = 1;
+		F[LAST_LAYER] = fd;
+
+		for(int i = LAST_LAYER - 1; i >= 1; i--) {
+			d = Math.sqrt(-2 * Math.log(LAYER_AREA / d + fd));
+			fd = gauss(d);
+			K[i + 1] = (long) ((d / t) * TWO_POW_63);
+			t = d;
+			F[i] = fd;
+			W[i] = d / TWO_POW_63;
+		}
+	}
+
+	private final long seed;
+	private long state;
+
+	/**
+	 * Constructs a generator positioned at the start of a key's stream
+	 * @param seed The stream seed
+	 * @param key The key (e.g. the element's position in row-major order)
+	 */
+	public CounterRandom(long seed, long key) {
+		this.seed = seed;
+		at(key);
+	}
+
+	/**
+	 * Move the generator to the start of another key's stream
+	 * @param key The key
+	 * @return this generator
+	 */
+	public CounterRandom at(long key) {
+		this.state = seed + mix64((key + 1) * GOLDEN_GAMMA);
+		return this;
+	}
+
+	/**
+	 * SplitMix64 finalizer: scrambles the bits of a value
+	 * @param z The value
+	 * @return The mixed value
+	 */
+	public static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Get the next 64 random bits of the stream
+	 * @return a random long
+	 */
+	public long nextLong() {
+		state += GOLDEN_GAMMA;
+		return mix64(state);
+	}
+
+	/**
+	 * Get a uniform double in [0, 1)
+	 * @return a random double
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	/**
+	 * Get a uniform int in [0, bound)
+	 * @param bound The upper bound (exclusive), must be positive
+	 * @return a random int
+	 */
+	public int nextInt(int bound) {
+		return (int) (((nextLong() >>> 32) * bound) >>> 32);
+	}
+
+	/**
+	 * Get a random boolean
+	 * @return a random boolean
+	 */
+	public boolean nextBoolean() {
+		return nextLong() < 0;
+	}
+
+	/**
+	 * Get a standard normal value (ziggurat: one 64-bit draw and a table lookup for ~99% of the values)
+	 * @return a random double from N(0, 1)
+	 */
+	public double nextGaussian() {
+		while(true) {
+			long bits = nextLong();
+			int layer = (int) (bits & LAST_LAYER);
+
+			if(Math.abs(bits) < K[layer])
+				return bits * W[layer];
+
+			if(layer == 0) {
+				//Tail beyond TAIL_START
+				double x;
+				double y;
+				do {
+					x = -Math.log(1.0 - nextDouble()) / TAIL_START;
+					y = -Math.log(1.0 - nextDouble());
+				} while(y + y < x * x);
+				return (bits > 0) ? TAIL_START + x : -(TAIL_START + x);
+			}
+
+			double x = bits * W[layer];
+			if(F[layer] + nextDouble() * (F[layer - 1] - F[layer]) < gauss(x))
+				return x;
+		}
+	}
+
+	private static double gauss(double x) {
+		return Math.exp(-0.5 * x * x);
+	}
+}
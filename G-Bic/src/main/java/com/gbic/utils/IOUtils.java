@@ -15,8 +15,6 @@ import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import com.gbic.domain.dataset.HeterogeneousDataset;
 import com.gbic.domain.dataset.NumericDataset;
@@ -77,155 +75,6 @@ public class IOUtils {
 		return result.toString();
 	}
 
-	/**
-	 * Converts the dataset into a string oriented by columns
-	 * @param dataset The generated dataset
-	 * @param threshold How many rows to convert
-	 * @param step In which row to start printing
-	 * @param printHeader boolean that indicates if the header should be added
-	 * @return
-	 */
-	public static String matrixToStringColOriented(NumericDataset dataset, int threshold, int step, boolean printHeader) {
-
-		StringBuilder result = new StringBuilder();
-		DecimalFormat df = new DecimalFormat();
-		df.setMaximumFractionDigits(2);
-		df.setGroupingUsed(false);
-
-		System.out.println("Writing dataset file: " + (((double) step) / (dataset.getNumRows() / threshold) * 100) + "%");
-		
-		if(printHeader) {
-			result.append("X\t"); 
-
-			//O Header é sempre igual para cada excerto logo podemos guardar numa variavel local/global
-				for(int y=0; y< dataset.getNumCols(); y++) {
-					if(y == dataset.getNumCols() - 1)
-						result.append("y" + y + "\n");
-					else
-						result.append("y" + y + "\t");  			
-				}
-		}    	
-
-		int max = ((threshold * (step + 1)) > dataset.getNumRows()) ? dataset.getNumRows() - (threshold * step) : threshold;
-		for(int row = 0; row < max; row++){
-			result.append("x"+ (step * threshold + row) +"\t");
-			for(int col = 0; col < dataset.getNumCols(); col ++) {
-				if(dataset.existsMatrixItem(step * threshold + row, col)) {
-					if(dataset.getMatrixItem(step * threshold + row, col).intValue() == Integer.MIN_VALUE) {
-						result.append("\t");
-					}
-					else
-						result.append(df.format(dataset.getMatrixItem(step * threshold + row, col))+"\t");
-				}
-				else {
-					result.append(df.format(dataset.generateBackgroundValue()) + "\t");
-				}	
-			}
-			result.replace(result.length()-1, result.length(),"\n"); 
-		}
-		return result.toString();
-	}
-
-	/**
-	 * Converts the dataset into a string oriented by columns
-	 * @param dataset The generated dataset
-	 * @param threshold How many rows to convert
-	 * @param step In which row to start printing
-	 * @param printHeader boolean that indicates if the header should be added
-	 * @return
-	 */
-	public static String matrixToStringColOriented(SymbolicDataset dataset, int threshold, int step, boolean printHeade) {
-
-		StringBuilder result = new StringBuilder();
-
-		System.out.println("Writing dataset file: " + (((double) step) / (dataset.getNumRows() / threshold) * 100) + "%");
-		
-		if(printHeade) {
-			result.append("X\t"); 
-			for(int y=0; y< dataset.getNumCols(); y++) {
-				if(y == dataset.getNumCols() - 1)
-					result.append("y" + y + "\n");
-				else
-					result.append("y" + y + "\t");  			
-			}
-		}    	
-
-		int max = ((threshold * (step + 1)) > dataset.getNumRows()) ? dataset.getNumRows() - (threshold * step) : threshold;
-		for(int row = 0; row < max; row++){
-			result.append("x"+ (step * threshold + row) +"\t");
-			for(int col = 0; col < dataset.getNumCols(); col ++) {
-				if(dataset.existsMatrixItem(step * threshold + row, col))
-					result.append(dataset.getMatrixItem(step * threshold + row, col) + "\t");
-				else
-					result.append(dataset.generateBackgroundValue() + "\t");
-			}
-			
-			result.replace(result.length()-1, result.length(),"\n"); 
-		}
-
-		return result.toString();
-	}
-
-	
-	/**
-	 * Converts the dataset into a string oriented by columns
-	 * @param dataset The generated dataset
-	 * @param threshold How many rows to convert
-	 * @param step In which row to start printing
-	 * @param printHeader boolean that indicates if the header should be added
-	 * @return
-	 */
-	public static String matrixToStringColOriented(HeterogeneousDataset dataset, int threshold, int step, boolean printHeader) {
-
-		StringBuilder result = new StringBuilder();
-		DecimalFormat df = new DecimalFormat();
-		int decimal = (dataset.isRealValued()) ? 2 : 0;
-		df.setMaximumFractionDigits(decimal);
-		df.setGroupingUsed(false);
-
-		System.out.println("Writing dataset file: " + (((double) step) / (dataset.getNumRows() / threshold) * 100) + "%");
-		
-		if(printHeader) {
-			result.append("X\t"); 
-
-			//O Header é sempre igual para cada excerto logo podemos guardar numa variavel local/global
-				for(int y=0; y< dataset.getNumCols(); y++) {
-					if(y == dataset.getNumCols() - 1)
-						result.append("y" + y + "\n");
-					else
-						result.append("y" + y + "\t");  			
-				}
-		}    	
-
-		int max = ((threshold * (step + 1)) > dataset.getNumRows()) ? dataset.getNumRows() - (threshold * step) : threshold;
-		for(int row = 0; row < max; row++){
-			result.append("x"+ (step * threshold + row) +"\t");
-			for(int col = 0; col < dataset.getNumCols(); col ++) {
-				
-				if(dataset.isSymbolicFeature(col)) {
-					if(dataset.existsSymbolicElement(step * threshold + row, col))
-						result.append(dataset.getSymbolicElement(step * threshold + row, col) + "\t");
-					else
-						result.append(dataset.generateSymbolicBackgroundValue() + "\t");
-				}
-				else {
-					if(dataset.existsNumericElement(step * threshold + row, col)) {
-						if(dataset.getNumericElement(step * threshold + row, col).intValue() == Integer.MIN_VALUE) {
-							result.append("\t");
-						}
-						else
-							result.append(df.format(dataset.getNumericElement(step * threshold + row, col))+"\t");
-					}
-					else {
-						result.append(df.format(dataset.generateNumericBackgroundValue()) + "\t");
-					}
-				}				
-			}
-			result.replace(result.length()-1, result.length(),"\n"); 
-		}
-		return result.toString();
-	}
-	
 	/**
 	 * Writes the dataset into a file
 	 * @param path The file path
@@ -240,18 +89,12 @@ public class IOUtils {
 		out.close();
 	}
 
-	public static String printSymbolicBicluster(Map<String, String> matrix, Set<Integer> rows, Set<Integer> cols) {
+	public static String printSymbolicBicluster(SymbolicDataset dataset, int[] rowsArray, int[] colsArray) {
 
 		StringBuilder result = new StringBuilder();
 
 		result.append("X\t"); 
 		
-		Integer[] rowsArray = new Integer[rows.size()];
-	    rows.toArray(rowsArray);
-		
-		Integer[] colsArray = new Integer[cols.size()];
-	    cols.toArray(colsArray);
-		
 		for(int y = 0; y < colsArray.length; y++) {
 			if((y == colsArray.length - 1))
 				result.append("y" + colsArray[y] + "\n");
@@ -264,7 +107,7 @@ public class IOUtils {
 			result.append("x"+ rowsArray[row] +"\t");
 			
 			for(int col = 0; col < colsArray.length; col ++) 
-				result.append(matrix.get(rowsArray[row] + ":" + colsArray[col]) + "\t");
+				result.append(dataset.getMatrixItem(rowsArray[row], colsArray[col]) + "\t");
 			
 			result.replace(result.length()-1, result.length(),"\n"); 
 		}
@@ -272,7 +115,7 @@ public class IOUtils {
 		return result.toString();
 	}
 	
-	public static String printNumericBicluster(Map<String, ? extends Number> matrix, Set<Integer> rows, Set<Integer> cols) {
+	public static String printNumericBicluster(NumericDataset<? extends Number> dataset, int[] rowsArray, int[] colsArray) {
 
 		DecimalFormat df = new DecimalFormat("#.##");
 		df.setMaximumFractionDigits(2);
@@ -280,12 +123,6 @@ public class IOUtils {
 
 		result.append("X\t"); 
 		
-		Integer[] rowsArray = new Integer[rows.size()];
-	    rows.toArray(rowsArray);
-		
-		Integer[] colsArray = new Integer[cols.size()];
-	    cols.toArray(colsArray);
-		
 		for(int y = 0; y < colsArray.length; y++) {
 			if((y == colsArray.length - 1))
 				result.append("y" + colsArray[y] + "\n");
@@ -298,10 +135,10 @@ public class IOUtils {
 			result.append("x"+ rowsArray[row] +"\t");
 			
 			for(int col = 0; col < colsArray.length; col ++)
-				if(matrix.get(rowsArray[row] + ":" + colsArray[col]).intValue() == Integer.MIN_VALUE)
+				if(dataset.isMissingItem(rowsArray[row], colsArray[col]))
 					result.append("\t");
 				else
-					result.append(df.format(matrix.get(rowsArray[row] + ":" + colsArray[col])) + "\t");
+					result.append(df.format(dataset.getMatrixValue(rowsArray[row], colsArray[col])) + "\t");
 			
 			result.replace(result.length()-1, result.length(),"\n"); 
 		}
@@ -309,8 +146,7 @@ public class IOUtils {
 		return result.toString();
 	}
 	
-	public static String printMixedBicluster(Map<String, ? extends Number> numericMatrix, Map<String, String> symbolicMatrix,
-			Set<Integer> rows, Set<Integer> cols) {
+	public static String printMixedBicluster(HeterogeneousDataset dataset, int[] rowsArray, int[] colsArray) {
 
 		DecimalFormat df = new DecimalFormat("#.##");
 		df.setMaximumFractionDigits(2);
@@ -318,12 +154,6 @@ public class IOUtils {
 
 		result.append("X\t"); 
 		
-		Integer[] rowsArray = new Integer[rows.size()];
-	    rows.toArray(rowsArray);
-		
-		Integer[] colsArray = new Integer[cols.size()];
-	    cols.toArray(colsArray);
-		
 		for(int y = 0; y < colsArray.length; y++) {
 			if((y == colsArray.length - 1))
 				result.append("y" + colsArray[y] + "\n");
@@ -336,16 +166,12 @@ public class IOUtils {
 			result.append("x"+ rowsArray[row] +"\t");
 			
 			for(int col = 0; col < colsArray.length; col ++) {
-				if(numericMatrix.containsKey(rowsArray[row] + ":" + colsArray[col])) {
-					if(numericMatrix.get(rowsArray[row] + ":" + colsArray[col]).intValue() == Integer.MIN_VALUE)
-						result.append("\t");
-					else
-						result.append(df.format(numericMatrix.get(rowsArray[row] + ":" + colsArray[col])) + "\t");
-				}
-				else {
-					result.append(symbolicMatrix.get(rowsArray[row] + ":" + colsArray[col]) + "\t");
-				}
-				
+				if(dataset.isSymbolicFeature(colsArray[col]))
+					result.append(dataset.getSymbolicElement(rowsArray[row], colsArray[col]) + "\t");
+				else if(dataset.isMissingNumericElement(rowsArray[row], colsArray[col]))
+					result.append("\t");
+				else
+					result.append(df.format(dataset.getNumericValue(rowsArray[row], colsArray[col])) + "\t");
 			}
 			
 			result.replace(result.length()-1, result.length(),"\n"); 
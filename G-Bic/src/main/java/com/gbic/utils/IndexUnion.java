@@ -0,0 +1,54 @@
+/**
+ * IndexUnion Class
+ *
+ * The union of the rows (or columns) of the biclusters planted so far, kept as a bitset and its cardinality.
+ * Each bicluster is added once, when it is committed, so the overlap placement no longer rebuilds the union of
+ * every previous bicluster: adding one costs O(its size), and membership and size are O(1).
+ */
+package com.gbic.utils;
+
+public class IndexUnion {
+
+	private final long[] bits;
+	private int size;
+
+	/**
+	 * Constructs an empty union
+	 * @param dimSize The dimension's number of rows (or columns)
+	 */
+	public IndexUnion(int dimSize) {
+		this.bits = new long[(dimSize + 63) >>> 6];
+		this.size = 0;
+	}
+
+	/**
+	 * Add the rows (or columns) of a bicluster
+	 * @param values The IDs
+	 */
+	public void addAll(int[] values) {
+		for(int value : values) {
+			long mask = 1L << value;
+			if((bits[value >>> 6] & mask) == 0) {
+				bits[value >>> 6] |= mask;
+				size++;
+			}
+		}
+	}
+
+	/**
+	 * Check if a row (or column) belongs to the union
+	 * @param value The ID
+	 * @return True if some bicluster in the union holds it, False otherwise
+	 */
+	public boolean contains(int value) {
+		return (bits[value >>> 6] & (1L << value)) != 0;
+	}
+
+	/**
+	 * Get the number of rows (or columns) in the union
+	 * @return The union's size
+	 */
+	public int size() {
+		return size;
+	}
+}
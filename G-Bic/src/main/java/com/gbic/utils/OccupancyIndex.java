@@ -0,0 +1,188 @@
+/**
+ * OccupancyIndex Class
+ *
+ * Tracks the elements taken by planted biclusters twice: for each row, a bitset of its taken columns, and
+ * for each column, a bitset of its taken rows. Checking whether a row meets any of a set of columns (or a
+ * column meets any of a set of rows) is then an AND over a few words, with the set given as a mask.
+ */
+package com.gbic.utils;
+
+public class OccupancyIndex {
+
+	private final int numRows;
+	private final int numCols;
+	private final long[][] rowBits;
+	private final long[][] colBits;
+
+	/**
+	 * Constructs an empty index
+	 * @param numRows The dataset's number of rows
+	 * @param numCols The dataset's number of columns
+	 */
+	public OccupancyIndex(int numRows, int numCols) {
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.rowBits = new long[numRows][words(numCols)];
+		this.colBits = new long[numCols][words(numRows)];
+	}
+
+	private static int words(int bits) {
+		return (bits + 63) >>> 6;
+	}
+
+	/**
+	 * Mark an element as taken
+	 * @param row The row ID
+	 * @param col The column ID
+	 */
+	public void set(int row, int col) {
+		rowBits[row][col >>> 6] |= 1L << col;
+		colBits[col][row >>> 6] |= 1L << row;
+	}
+
+	/**
+	 * Check if an element is taken
+	 * @param row The row ID
+	 * @param col The column ID
+	 * @return True if the element is taken, False otherwise
+	 */
+	public boolean get(int row, int col) {
+		return (rowBits[row][col >>> 6] & (1L << col)) != 0;
+	}
+
+	/**
+	 * Build the mask of a set of columns
+	 * @param cols The column IDs
+	 * @return The mask, to be used with intersectsRow
+	 */
+	public long[] columnMask(int[] cols) {
+		long[] mask = new long[words(numCols)];
+		for(int col : cols)
+			mask[col >>> 6] |= 1L << col;
+		return mask;
+	}
+
+	/**
+	 * Build the mask of a set of rows
+	 * @param rows The row IDs
+	 * @return The mask, to be used with intersectsColumn
+	 */
+	public long[] rowMask(int[] rows) {
+		long[] mask = new long[words(numRows)];
+		for(int row : rows)
+			mask[row >>> 6] |= 1L << row;
+		return mask;
+	}
+
+	/**
+	 * Check if any of a row's elements in a set of columns is taken
+	 * @param row The row ID
+	 * @param columnMask The columns' mask (see columnMask)
+	 * @return True if the row meets a taken element in those columns, False otherwise
+	 */
+	public boolean intersectsRow(int row, long[] columnMask) {
+		long[] bits = rowBits[row];
+		for(int w = 0; w < bits.length; w++)
+			if((bits[w] & columnMask[w]) != 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Check if any of a column's elements in a set of rows is taken
+	 * @param col The column ID
+	 * @param rowMask The rows' mask (see rowMask)
+	 * @return True if the column meets a taken element in those rows, False otherwise
+	 */
+	public boolean intersectsColumn(int col, long[] rowMask) {
+		long[] bits = colBits[col];
+		for(int w = 0; w < bits.length; w++)
+			if((bits[w] & rowMask[w]) != 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Get the taken elements of a row in a set of columns
+	 * @param row The row ID
+	 * @param columnMask The columns' mask (see columnMask)
+	 * @param result Where to put the taken columns, in ascending order (with room for every column in the mask)
+	 * @return The number of taken columns
+	 */
+	public int takenColumns(int row, long[] columnMask, int[] result) {
+		long[] bits = rowBits[row];
+		int count = 0;
+		for(int w = 0; w < bits.length; w++)
+			for(long word = bits[w] & columnMask[w]; word != 0; word &= word - 1)
+				result[count++] = (w << 6) + Long.numberOfTrailingZeros(word);
+		return count;
+	}
+
+	/**
+	 * Build the mask of every row
+	 * @return The mask, to be narrowed with keepFreeRows
+	 */
+	public long[] allRows() {
+		long[] mask = new long[words(numRows)];
+		for(int row = 0; row < numRows; row++)
+			mask[row >>> 6] |= 1L << row;
+		return mask;
+	}
+
+	/**
+	 * Count the rows of a set that are free in a column
+	 * @param col The column ID
+	 * @param rowMask The rows' mask (see rowMask)
+	 * @return The number of rows in the mask whose element in the column is not taken
+	 */
+	public int countFreeRows(int col, long[] rowMask) {
+		long[] bits = colBits[col];
+		int count = 0;
+		for(int w = 0; w < bits.length; w++)
+			count += Long.bitCount(rowMask[w] & ~bits[w]);
+		return count;
+	}
+
+	/**
+	 * Remove from a set of rows the rows whose element in a column is taken
+	 * @param col The column ID
+	 * @param rowMask The rows' mask (see rowMask), updated in place
+	 */
+	public void keepFreeRows(int col, long[] rowMask) {
+		long[] bits = colBits[col];
+		for(int w = 0; w < bits.length; w++)
+			rowMask[w] &= ~bits[w];
+	}
+
+	/**
+	 * Get the number of taken elements of a row
+	 * @param row The row ID
+	 * @return The number of taken columns in the row
+	 */
+	public int rowCount(int row) {
+		int count = 0;
+		for(long word : rowBits[row])
+			count += Long.bitCount(word);
+		return count;
+	}
+
+	/**
+	 * Get the number of taken elements of a column
+	 * @param col The column ID
+	 * @return The number of taken rows in the column
+	 */
+	public int columnCount(int col) {
+		int count = 0;
+		for(long word : colBits[col])
+			count += Long.bitCount(word);
+		return count;
+	}
+
+	public int getNumRows() {
+		return numRows;
+	}
+
+	public int getNumCols() {
+		return numCols;
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * PatternKernels Class
+ *
+ * Element-wise loops over segments of a bicluster's row-major values: the plaid composition with the layer
+ * below an overlapping bicluster, the rounding of integer datasets and the min/max reductions used to check
+ * the dataset's limits. Each loop runs over primitive arrays with unit stride and no branches in its body,
+ * which is the shape the JIT unrolls and vectorizes (SuperWord), so their cost follows memory bandwidth.
+ */
+package com.gbic.utils;
+
+import com.gbic.types.PlaidCoherency;
+
+public final class PatternKernels {
+
+	private PatternKernels() {}
+
+	/**
+	 * Get the value of the layer below an element that no other bicluster holds, that is, the value that leaves
+	 * the element unchanged when composed with it
+	 * @param plaidPattern The plaid coherency
+	 * @return 1 for multiplicative plaids, 0 otherwise
+	 */
+	public static double identity(PlaidCoherency plaidPattern) {
+		return plaidPattern.equals(PlaidCoherency.MULTIPLICATIVE) ? 1 : 0;
+	}
+
+	/**
+	 * Check whether a plaid coherency composes overlapping elements
+	 * @param plaidPattern The plaid coherency
+	 * @return True for additive, multiplicative and interpoled plaids, False otherwise
+	 */
+	public static boolean composes(PlaidCoherency plaidPattern) {
+		return plaidPattern.equals(PlaidCoherency.ADDITIVE) || plaidPattern.equals(PlaidCoherency.MULTIPLICATIVE)
+				|| plaidPattern.equals(PlaidCoherency.INTERPOLED);
+	}
+
+	/**
+	 * Compose a segment of a bicluster with the layer below it
+	 * @param plaidPattern The plaid coherency
+	 * @param values The bicluster's values, updated in place
+	 * @param from The segment's first position in values
+	 * @param below The layer below each element (the identity where no bicluster holds the element)
+	 * @param weight The weight of each element's own value when interpoling: 0.5 where another bicluster holds
+	 * the element, 1 elsewhere
+	 * @param length The segment's length
+	 */
+	public static void compose(PlaidCoherency plaidPattern, double[] values, int from, double[] below, double[] weight, int length) {
+		switch(plaidPattern) {
+			case ADDITIVE:
+				for(int i = 0; i < length; i++)
+					values[from + i] += below[i];
+				break;
+			case MULTIPLICATIVE:
+				for(int i = 0; i < length; i++)
+					values[from + i] *= below[i];
+				break;
+			case INTERPOLED:
+				for(int i = 0; i < length; i++)
+					values[from + i] = values[from + i] * weight[i] + below[i] * (1 - weight[i]);
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Round a segment to integers within [min, max], truncating the values that rounding would take out of it
+	 * @param values The values, updated in place
+	 * @param from The segment's first position
+	 * @param length The segment's length
+	 * @param min The minimum value
+	 * @param max The maximum value
+	 */
+	public static void roundToAlphabet(double[] values, int from, int length, double min, double max) {
+		for(int i = from; i < from + length; i++) {
+			double rounded = Math.round(values[i]);
+			values[i] = (rounded >= min && rounded <= max) ? rounded : (int) values[i];
+		}
+	}
+
+	/**
+	 * Get the smallest value of a segment
+	 * @param values The values
+	 * @param from The segment's first position
+	 * @param length The segment's length
+	 * @return The smallest value (positive infinity for an empty segment)
+	 */
+	public static double min(double[] values, int from, int length) {
+		double result = Double.POSITIVE_INFINITY;
+		for(int i = from; i < from + length; i++)
+			result = Math.min(result, values[i]);
+		return result;
+	}
+
+	/**
+	 * Get the largest value of a segment
+	 * @param values The values
+	 * @param from The segment's first position
+	 * @param length The segment's length
+	 * @return The largest value (negative infinity for an empty segment)
+	 */
+	public static double max(double[] values, int from, int length) {
+		double result = Double.NEGATIVE_INFINITY;
+		for(int i = from; i < from + length; i++)
+			result = Math.max(result, values[i]);
+		return result;
+	}
+}
@@ -1,24 +1,125 @@
 package com.gbic.utils;
 
 import java.util.Random;
+import java.util.SplittableRandom;
 
+/**
+ * RandomObject Class
+ *
+ * Random number service. Every stream is derived from a root seed: the main stream drives the sequential
+ * decisions (e.g. each dataset's seed), and independent streams are derived by key, for instance per
+ * bicluster, per quality phase or per block of rows. A stream depends only on the root seed and its keys,
+ * so work spread over threads gives the same results for the same seed.
+ */
 public class RandomObject {
-	
+
+	//Keys of the streams derived from a dataset's seed
+	public static final long MAIN = 0;
+	public static final long BACKGROUND = 1;
+	public static final long BICLUSTERS = 2;
+	public static final long MISSINGS = 3;
+	public static final long NOISE = 4;
+	public static final long ERRORS = 5;
+	//The biclusters' patterns are drawn apart from their placement, so a generation plan can replay them
+	public static final long PATTERNS = 6;
+
+	private static long rootSeed;
 	private static Random single_instance = null;
 
 	private RandomObject() {}
-	
+
+	/**
+	 * Set the root seed
+	 * @param seed The seed, or -1 for an unpredictable seed
+	 */
 	public static void initialization(int seed) {
-		if(seed != -1)
-			single_instance = new Random(seed);
-		else
-			single_instance = new Random();
+		rootSeed = (seed != -1) ? seed : new SplittableRandom().nextLong();
+		single_instance = new StreamRandom(deriveSeed(rootSeed, MAIN));
 	}
-	
+
+	/**
+	 * Get the main stream
+	 * @return the main stream (not meant to be shared between threads)
+	 */
 	public static Random getInstance(){
         if (single_instance == null)
-            single_instance = new Random();
-  
+            initialization(-1);
+
         return single_instance;
     }
+
+	/**
+	 * Get the root seed
+	 * @return the root seed
+	 */
+	public static long getRootSeed() {
+		getInstance();
+		return rootSeed;
+	}
+
+	/**
+	 * Derive the seed of a stream
+	 * @param seed The parent seed
+	 * @param keys The keys identifying the stream (e.g. BICLUSTERS and a bicluster ID)
+	 * @return the stream's seed
+	 */
+	public static long deriveSeed(long seed, long... keys) {
+		for(long key : keys)
+			seed = new CounterRandom(seed, key).nextLong();
+		return seed;
+	}
+
+	/**
+	 * Get an independent stream derived from a seed
+	 * @param seed The parent seed
+	 * @param keys The keys identifying the stream
+	 * @return a new generator for the stream
+	 */
+	public static Random getStream(long seed, long... keys) {
+		return new StreamRandom(deriveSeed(seed, keys));
+	}
+
+	/**
+	 * SplittableRandom behind the Random interface: no seed updates by CAS, and no locking
+	 */
+	private static class StreamRandom extends Random {
+
+		private static final long serialVersionUID = 1L;
+
+		private final SplittableRandom stream;
+
+		StreamRandom(long seed) {
+			this.stream = new SplittableRandom(seed);
+		}
+
+		@Override
+		protected int next(int bits) {
+			return (int) (stream.nextLong() >>> (64 - bits));
+		}
+
+		@Override
+		public int nextInt() {
+			return stream.nextInt();
+		}
+
+		@Override
+		public int nextInt(int bound) {
+			return stream.nextInt(bound);
+		}
+
+		@Override
+		public long nextLong() {
+			return stream.nextLong();
+		}
+
+		@Override
+		public double nextDouble() {
+			return stream.nextDouble();
+		}
+
+		@Override
+		public boolean nextBoolean() {
+			return stream.nextBoolean();
+		}
+	}
 }
@@ -0,0 +1,125 @@
+/**
+ * SortedIntSet Class
+ *
+ * An unmodifiable SortedSet view over a range of a sorted array of distinct ints. It lets the biclusters keep
+ * their rows and columns as plain arrays while still handing a SortedSet to the code that iterates, counts or
+ * prints them: membership is a binary search and sub-sets are narrower views over the same array.
+ */
+package com.gbic.utils;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+public class SortedIntSet extends AbstractSet<Integer> implements SortedSet<Integer> {
+
+	private final int[] values;
+	private final int from;
+	private final int to;
+
+	/**
+	 * Constructs the view of a whole array
+	 * @param values The values, sorted in ascending order and without repetitions
+	 */
+	public SortedIntSet(int[] values) {
+		this(values, 0, values.length);
+	}
+
+	private SortedIntSet(int[] values, int from, int to) {
+		this.values = values;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * Get the sorted array of a set of integers
+	 * @param set The set
+	 * @return The set's values, sorted in ascending order
+	 */
+	public static int[] toArray(SortedSet<Integer> set) {
+		if(set instanceof SortedIntSet) {
+			SortedIntSet view = (SortedIntSet) set;
+			return Arrays.copyOfRange(view.values, view.from, view.to);
+		}
+		int[] result = new int[set.size()];
+		int i = 0;
+		for(int value : set)
+			result[i++] = value;
+		return result;
+	}
+
+	@Override
+	public int size() {
+		return to - from;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return (o instanceof Integer) && Arrays.binarySearch(values, from, to, (Integer) o) >= 0;
+	}
+
+	@Override
+	public Iterator<Integer> iterator() {
+		return new Iterator<Integer>() {
+
+			private int next = from;
+
+			@Override
+			public boolean hasNext() {
+				return next < to;
+			}
+
+			@Override
+			public Integer next() {
+				if(next >= to)
+					throw new NoSuchElementException();
+				return values[next++];
+			}
+		};
+	}
+
+	@Override
+	public Comparator<? super Integer> comparator() {
+		return null;
+	}
+
+	@Override
+	public SortedSet<Integer> subSet(Integer fromElement, Integer toElement) {
+		if(fromElement > toElement)
+			throw new IllegalArgumentException("fromElement > toElement");
+		return new SortedIntSet(values, lowerBound(fromElement), lowerBound(toElement));
+	}
+
+	@Override
+	public SortedSet<Integer> headSet(Integer toElement) {
+		return new SortedIntSet(values, from, lowerBound(toElement));
+	}
+
+	@Override
+	public SortedSet<Integer> tailSet(Integer fromElement) {
+		return new SortedIntSet(values, lowerBound(fromElement), to);
+	}
+
+	@Override
+	public Integer first() {
+		if(from == to)
+			throw new NoSuchElementException();
+		return values[from];
+	}
+
+	@Override
+	public Integer last() {
+		if(from == to)
+			throw new NoSuchElementException();
+		return values[to - 1];
+	}
+
+	//position of the first value in the view that is not smaller than the given one
+	private int lowerBound(int value) {
+		int position = Arrays.binarySearch(values, from, to, value);
+		return position >= 0 ? position : -position - 1;
+	}
+}
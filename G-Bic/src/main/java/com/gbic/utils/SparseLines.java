@@ -0,0 +1,140 @@
+/**
+ * SparseLines Class
+ *
+ * Sparse storage of the elements of a matrix's lines (its rows or its columns): each line keeps the positions it
+ * stores, sorted, with their values. A line is meant to hold few elements, such as a background row with a few
+ * missing, noisy or error elements; once it would hold more than a given number, its owner moves it to dense
+ * storage (see put), so a line never costs more than its dense counterpart.
+ */
+package com.gbic.utils;
+
+import java.util.Arrays;
+
+public class SparseLines {
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	private final int maxEntries;
+	//Per line: the stored positions (sorted in ascending order), their values and how many there are
+	private final int[][] positions;
+	private final double[][] values;
+	private final int[] sizes;
+
+	/**
+	 * Constructs an empty sparse storage
+	 * @param numLines The number of lines
+	 * @param maxEntries The number of elements a line holds at most
+	 */
+	public SparseLines(int numLines, int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.positions = new int[numLines][];
+		this.values = new double[numLines][];
+		this.sizes = new int[numLines];
+	}
+
+	/**
+	 * Get the number of elements a line may hold before it costs as much as a dense line. Each sparse element takes
+	 * 12 bytes (its position and its value)
+	 * @param length The number of positions of a line
+	 * @param bytesPerElement The bytes each element takes in a dense line
+	 * @return The number of elements
+	 */
+	public static int maxEntries(int length, int bytesPerElement) {
+		return (int) ((long) length * bytesPerElement / 12);
+	}
+
+	/**
+	 * Store an element's value, replacing the value it had, unless the line is full
+	 * @param line The line ID
+	 * @param position The element's position in the line
+	 * @param value The element's value
+	 * @return True if the value was stored, False if the line is full (the caller should move it to dense storage)
+	 */
+	public boolean put(int line, int position, double value) {
+
+		int size = sizes[line];
+		int[] linePositions = positions[line];
+
+		//elements are mostly stored in ascending order, so the last position is checked first
+		int i = (size == 0 || linePositions[size - 1] < position) ? -(size + 1)
+				: Arrays.binarySearch(linePositions, 0, size, position);
+		if(i >= 0) {
+			values[line][i] = value;
+			return true;
+		}
+		if(size >= maxEntries)
+			return false;
+
+		i = -(i + 1);
+		if(linePositions == null) {
+			linePositions = positions[line] = new int[Math.min(INITIAL_CAPACITY, maxEntries)];
+			values[line] = new double[linePositions.length];
+		}
+		else if(size == linePositions.length) {
+			int capacity = Math.min(2 * size, maxEntries);
+			linePositions = positions[line] = Arrays.copyOf(linePositions, capacity);
+			values[line] = Arrays.copyOf(values[line], capacity);
+		}
+		double[] lineValues = values[line];
+		System.arraycopy(linePositions, i, linePositions, i + 1, size - i);
+		System.arraycopy(lineValues, i, lineValues, i + 1, size - i);
+		linePositions[i] = position;
+		lineValues[i] = value;
+		sizes[line] = size + 1;
+		return true;
+	}
+
+	/**
+	 * Get an element's value
+	 * @param line The line ID
+	 * @param position The element's position in the line
+	 * @param absent The value of an element that is not stored
+	 * @return The element's value, or absent if it is not stored
+	 */
+	public double get(int line, int position, double absent) {
+		int size = sizes[line];
+		if(size == 0)
+			return absent;
+		int i = Arrays.binarySearch(positions[line], 0, size, position);
+		return (i >= 0) ? values[line][i] : absent;
+	}
+
+	/**
+	 * Get the number of elements a line stores
+	 * @param line The line ID
+	 * @return The number of elements
+	 */
+	public int size(int line) {
+		return sizes[line];
+	}
+
+	/**
+	 * Get the position of a line's i-th stored element
+	 * @param line The line ID
+	 * @param i The element's index, in ascending order of position
+	 * @return The position
+	 */
+	public int position(int line, int i) {
+		return positions[line][i];
+	}
+
+	/**
+	 * Get the value of a line's i-th stored element
+	 * @param line The line ID
+	 * @param i The element's index, in ascending order of position
+	 * @return The value
+	 */
+	public double value(int line, int i) {
+		return values[line][i];
+	}
+
+	/**
+	 * Remove every element of a line, such as one moved to dense storage
+	 * @param line The line ID
+	 */
+	public void clear(int line) {
+		positions[line] = null;
+		values[line] = null;
+		sizes[line] = 0;
+	}
+}
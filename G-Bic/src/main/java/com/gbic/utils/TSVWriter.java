@@ -0,0 +1,383 @@
+/**
+ * TSVWriter Class
+ *
+ * Streams a dataset's rows into a tab separated file. Rows are formatted straight into a reusable
+ * byte buffer that is flushed to a file channel, so memory does not grow with the dataset. Numbers
+ * are printed as DecimalFormat would print them (at most two fraction digits for real values, no
+ * grouping), but without building a String per element. Row blocks can also be formatted in parallel
+ * into in-memory writers and appended to the file in order.
+ */
+package com.gbic.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.gbic.domain.dataset.Dataset;
+import com.gbic.domain.dataset.HeterogeneousDataset;
+import com.gbic.domain.dataset.NumericDataset;
+import com.gbic.domain.dataset.SymbolicDataset;
+
+public class TSVWriter implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final int BLOCK_BUFFER_SIZE = 1 << 16;
+	//Number of elements formatted by each parallel task
+	private static final int BLOCK_ELEMENTS = 1 << 16;
+	//Longest element written by the fast path: sign, integer digits, separator and fraction digits
+	private static final int MAX_FAST_LENGTH = 24;
+	//Values at or above this magnitude, or whose scaled fraction is this close to a tie, are printed by DecimalFormat
+	private static final double FAST_LIMIT = 1e7;
+	private static final double TIE_WINDOW = 1e-6;
+	private static final long[] POWERS_OF_TEN = {1, 10, 100};
+
+	private final FileChannel channel;
+	private final Charset charset;
+	private byte[] buffer;
+	private int size;
+
+	private DecimalFormat format;
+	private int fractionDigits;
+	private boolean asciiFormat;
+
+	/**
+	 * Opens a writer on a file
+	 * @param file The file's path
+	 * @param append True to write at the end of the file, False to replace its content
+	 * @throws IOException
+	 */
+	public TSVWriter(String file, boolean append) throws IOException {
+		this.channel = append
+				? FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+				: FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.charset = Charset.defaultCharset();
+		this.buffer = new byte[BUFFER_SIZE];
+		this.size = 0;
+		setFractionDigits(2);
+	}
+
+	/**
+	 * Opens a writer that keeps everything it formats in memory, to be appended to a file writer later
+	 */
+	public TSVWriter() {
+		this.channel = null;
+		this.charset = Charset.defaultCharset();
+		this.buffer = new byte[BLOCK_BUFFER_SIZE];
+		this.size = 0;
+		setFractionDigits(2);
+	}
+
+	private void setFractionDigits(int fractionDigits) {
+		this.fractionDigits = fractionDigits;
+		this.format = new DecimalFormat();
+		this.format.setMaximumFractionDigits(fractionDigits);
+		this.format.setGroupingUsed(false);
+
+		DecimalFormatSymbols symbols = this.format.getDecimalFormatSymbols();
+		this.asciiFormat = symbols.getDecimalSeparator() == '.' && symbols.getMinusSign() == '-' && symbols.getZeroDigit() == '0';
+	}
+
+	/**
+	 * Write the header line (X followed by the column names)
+	 * @param numCols The dataset's number of columns
+	 * @throws IOException
+	 */
+	public void writeHeader(int numCols) throws IOException {
+		writeByte('X');
+		for(int col = 0; col < numCols; col++) {
+			ensure(MAX_FAST_LENGTH);
+			buffer[size++] = '\t';
+			buffer[size++] = 'y';
+			writeLong(col);
+		}
+		writeByte('\n');
+	}
+
+	/**
+	 * Write a range of a dataset's rows
+	 * @param dataset The dataset
+	 * @param fromRow The first row (inclusive)
+	 * @param toRow The last row (exclusive)
+	 * @throws IOException
+	 */
+	public void writeRows(Dataset dataset, int fromRow, int toRow) throws IOException {
+		if(dataset instanceof NumericDataset)
+			writeRows((NumericDataset<? extends Number>) dataset, fromRow, toRow);
+		else if(dataset instanceof SymbolicDataset)
+			writeRows((SymbolicDataset) dataset, fromRow, toRow);
+		else
+			writeRows((HeterogeneousDataset) dataset, fromRow, toRow);
+	}
+
+	/**
+	 * Write a range of a dataset's rows, formatting blocks of rows in parallel. Blocks are appended in row
+	 * order as they complete, with a bounded number of blocks in flight, so the output is the same as writeRows
+	 * @param dataset The dataset
+	 * @param fromRow The first row (inclusive)
+	 * @param toRow The last row (exclusive)
+	 * @param pool The pool that formats the blocks
+	 * @throws IOException
+	 */
+	public void writeRowsParallel(Dataset dataset, int fromRow, int toRow, ForkJoinPool pool) throws IOException {
+
+		int blockRows = Math.max(1, BLOCK_ELEMENTS / Math.max(1, dataset.getNumCols()));
+		int maxPending = 2 * pool.getParallelism();
+		Deque<ForkJoinTask<TSVWriter>> pending = new ArrayDeque<>();
+		int nextRow = fromRow;
+
+		while(nextRow < toRow || !pending.isEmpty()) {
+			while(nextRow < toRow && pending.size() < maxPending) {
+				int blockFrom = nextRow;
+				int blockTo = Math.min(nextRow + blockRows, toRow);
+				pending.add(pool.submit(() -> {
+					TSVWriter block = new TSVWriter();
+					block.writeRows(dataset, blockFrom, blockTo);
+					return block;
+				}));
+				nextRow = blockTo;
+			}
+			append(pending.poll().join());
+		}
+	}
+
+	/**
+	 * Append what an in-memory writer formatted
+	 * @param block The in-memory writer
+	 * @throws IOException
+	 */
+	public void append(TSVWriter block) throws IOException {
+		if(channel == null) {
+			ensure(block.size);
+			System.arraycopy(block.buffer, 0, buffer, size, block.size);
+			size += block.size;
+		}
+		else {
+			flush();
+			write(ByteBuffer.wrap(block.buffer, 0, block.size));
+		}
+	}
+
+	/**
+	 * Write a range of a numeric dataset's rows
+	 * @param dataset The dataset
+	 * @param fromRow The first row (inclusive)
+	 * @param toRow The last row (exclusive)
+	 * @throws IOException
+	 */
+	public void writeRows(NumericDataset<? extends Number> dataset, int fromRow, int toRow) throws IOException {
+
+		setFractionDigits(2);
+		double[] background = new double[dataset.getNumCols()];
+
+		for(int row = fromRow; row < toRow; row++) {
+			writeRowLabel(row);
+			dataset.generateBackgroundRow(row, 0, dataset.getNumCols(), background);
+			for(int col = 0; col < dataset.getNumCols(); col++) {
+				ensure(MAX_FAST_LENGTH);
+				buffer[size++] = '\t';
+				if(dataset.existsMatrixItem(row, col)) {
+					if(!dataset.isMissingItem(row, col))
+						writeDecimal(dataset.getMatrixValue(row, col));
+				}
+				else if(!Double.isNaN(background[col]))
+					writeDecimal(background[col]);
+			}
+			writeByte('\n');
+		}
+	}
+
+	/**
+	 * Write a range of a symbolic dataset's rows
+	 * @param dataset The dataset
+	 * @param fromRow The first row (inclusive)
+	 * @param toRow The last row (exclusive)
+	 * @throws IOException
+	 */
+	public void writeRows(SymbolicDataset dataset, int fromRow, int toRow) throws IOException {
+
+		byte[][] symbols = encode(dataset.getAlphabet());
+		int[] background = new int[dataset.getNumCols()];
+
+		for(int row = fromRow; row < toRow; row++) {
+			writeRowLabel(row);
+			dataset.generateBackgroundRow(row, 0, dataset.getNumCols(), background);
+			for(int col = 0; col < dataset.getNumCols(); col++) {
+				writeByte('\t');
+				int index;
+				if(dataset.existsMatrixItem(row, col))
+					index = dataset.getSymbolIndex(row, col);
+				else
+					index = background[col];
+				if(index >= 0)
+					writeBytes(symbols[index]);
+			}
+			writeByte('\n');
+		}
+	}
+
+	/**
+	 * Write a range of a heterogeneous dataset's rows (numeric columns first, then the symbolic columns)
+	 * @param dataset The dataset
+	 * @param fromRow The first row (inclusive)
+	 * @param toRow The last row (exclusive)
+	 * @throws IOException
+	 */
+	public void writeRows(HeterogeneousDataset dataset, int fromRow, int toRow) throws IOException {
+
+		setFractionDigits(dataset.isRealValued() ? 2 : 0);
+		byte[][] symbols = encode(dataset.getAlphabet());
+		int numericCols = dataset.getNumericCols();
+		double[] numericBackground = new double[numericCols];
+		int[] symbolicBackground = new int[dataset.getSymbolicCols()];
+
+		for(int row = fromRow; row < toRow; row++) {
+			writeRowLabel(row);
+			dataset.generateNumericBackgroundRow(row, 0, numericCols, numericBackground);
+			dataset.generateSymbolicBackgroundRow(row, numericCols, dataset.getNumCols(), symbolicBackground);
+			for(int col = 0; col < numericCols; col++) {
+				ensure(MAX_FAST_LENGTH);
+				buffer[size++] = '\t';
+				if(dataset.existsNumericElement(row, col)) {
+					if(!dataset.isMissingNumericElement(row, col))
+						writeDecimal(dataset.getNumericValue(row, col));
+				}
+				else if(!Double.isNaN(numericBackground[col]))
+					writeDecimal(numericBackground[col]);
+			}
+			for(int col = numericCols; col < dataset.getNumCols(); col++) {
+				writeByte('\t');
+				int index;
+				if(dataset.existsSymbolicElement(row, col))
+					index = dataset.getSymbolicIndex(row, col);
+				else
+					index = symbolicBackground[col - numericCols];
+				if(index >= 0)
+					writeBytes(symbols[index]);
+			}
+			writeByte('\n');
+		}
+	}
+
+	private byte[][] encode(String[] alphabet) {
+		byte[][] symbols = new byte[alphabet.length][];
+		for(int i = 0; i < alphabet.length; i++)
+			symbols[i] = alphabet[i].getBytes(charset);
+		return symbols;
+	}
+
+	private void writeRowLabel(int row) throws IOException {
+		ensure(MAX_FAST_LENGTH);
+		buffer[size++] = 'x';
+		writeLong(row);
+	}
+
+	/**
+	 * Print a value rounded half-even to the current number of fraction digits, dropping trailing zeros.
+	 * Near ties the scaled value may be off by an ulp, so those (and large or non-finite values) go through DecimalFormat
+	 */
+	private void writeDecimal(double value) throws IOException {
+
+		double scaled = Math.abs(value) * POWERS_OF_TEN[fractionDigits];
+		double fraction = scaled - Math.floor(scaled);
+
+		if(!asciiFormat || !(Math.abs(value) < FAST_LIMIT) || (fractionDigits > 0 && Math.abs(fraction - 0.5) < TIE_WINDOW)) {
+			writeBytes(format.format(value).getBytes(charset));
+			return;
+		}
+
+		long rounded = (long) Math.rint(scaled);
+		long integerPart = rounded / POWERS_OF_TEN[fractionDigits];
+		long fractionPart = rounded % POWERS_OF_TEN[fractionDigits];
+
+		ensure(MAX_FAST_LENGTH);
+		//DecimalFormat keeps the sign of negative values that round to zero (and of -0.0)
+		if(value < 0 || (value == 0 && 1 / value < 0))
+			buffer[size++] = '-';
+		writeLong(integerPart);
+
+		if(fractionPart != 0) {
+			buffer[size++] = '.';
+			int digits = fractionDigits;
+			while(fractionPart % 10 == 0) {
+				fractionPart /= 10;
+				digits--;
+			}
+			for(int i = digits - 1; i >= 0; i--) {
+				buffer[size + i] = (byte) ('0' + fractionPart % 10);
+				fractionPart /= 10;
+			}
+			size += digits;
+		}
+	}
+
+	//Callers make sure there is room for MAX_FAST_LENGTH bytes
+	private void writeLong(long value) {
+		int digits = 1;
+		for(long v = value; v >= 10; v /= 10)
+			digits++;
+		for(int i = size + digits - 1; i >= size; i--) {
+			buffer[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		size += digits;
+	}
+
+	private void writeByte(char c) throws IOException {
+		ensure(1);
+		buffer[size++] = (byte) c;
+	}
+
+	private void writeBytes(byte[] bytes) throws IOException {
+		ensure(bytes.length);
+		System.arraycopy(bytes, 0, buffer, size, bytes.length);
+		size += bytes.length;
+	}
+
+	//File writers flush when the buffer is full, in-memory writers (and oversized elements) grow it
+	private void ensure(int length) throws IOException {
+		if(size + length <= buffer.length)
+			return;
+		if(channel != null)
+			flush();
+		if(size + length > buffer.length)
+			buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, size + length));
+	}
+
+	private void write(ByteBuffer bytes) throws IOException {
+		while(bytes.hasRemaining())
+			channel.write(bytes);
+	}
+
+	/**
+	 * Write the buffered bytes to the file
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		if(channel == null)
+			return;
+		write(ByteBuffer.wrap(buffer, 0, size));
+		size = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(channel == null)
+			return;
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}